@@ -0,0 +1,131 @@
+package kendoui.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import kendoui.utils.CatalogDataGenerator;
+
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * An embedded PostgreSQL migrated like the application database and seeded with a generated catalog, with the
+ * application context of the DAOs and services running on it.
+ */
+public final class BenchmarkDatabase {
+
+    public static final String URL_PROPERTY = "benchmark.jdbc.url";
+
+    private static final long SEED = 42L;
+
+    private final EmbeddedPostgres postgres;
+
+    private final CatalogDataGenerator.Catalog catalog;
+
+    private final ClassPathXmlApplicationContext context;
+
+    private BenchmarkDatabase(EmbeddedPostgres postgres, CatalogDataGenerator.Catalog catalog,
+                              ClassPathXmlApplicationContext context) {
+        this.postgres = postgres;
+        this.catalog = catalog;
+        this.context = context;
+    }
+
+    /**
+     * Start a database, create the schema, seed it and start the application context on it
+     *
+     * @return the database
+     * @throws Exception if the database can not be started or seeded
+     */
+    public static BenchmarkDatabase start() throws Exception {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        String url = postgres.getJdbcUrl("postgres", "postgres");
+        Class.forName("org.postgresql.Driver");
+        Connection connection = DriverManager.getConnection(url);
+        CatalogDataGenerator.Catalog catalog;
+        try {
+            migrate(connection);
+            catalog = generator().generate(connection);
+        } finally {
+            connection.close();
+        }
+        System.setProperty(URL_PROPERTY, url);
+        return new BenchmarkDatabase(postgres, catalog, new ClassPathXmlApplicationContext("benchmark_context.xml"));
+    }
+
+    /**
+     * The catalog of the benchmarks: 200 points of sale of 50 categories out of 3110, in a DAG of depth 5
+     */
+    private static CatalogDataGenerator generator() {
+        CatalogDataGenerator generator = new CatalogDataGenerator();
+        generator.setSeed(SEED);
+        generator.setPointOfSaleCount(200);
+        generator.setCategoriesPerPointOfSale(50);
+        generator.setRootCount(2);
+        generator.setTreeDepth(5);
+        generator.setFanOut(6);
+        generator.setExtraParentRatio(0.1);
+        generator.setInUseRatio(0.5);
+        return generator;
+    }
+
+    /**
+     * Get the ids and counts of the seeded catalog
+     *
+     * @return the catalog
+     */
+    public CatalogDataGenerator.Catalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Get a bean of the application context
+     *
+     * @param type the type of the bean
+     * @return the bean
+     */
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Stop the application context and the database
+     *
+     * @throws IOException if the database does not stop
+     */
+    public void stop() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+    /**
+     * Apply the migrations of core in the order of their names, each one as a single statement
+     */
+    private static void migrate(Connection connection) throws IOException, SQLException {
+        Resource[] migrations = new PathMatchingResourcePatternResolver().getResources("classpath:migrations/*.sql");
+        Arrays.sort(migrations, new Comparator<Resource>() {
+            @Override
+            public int compare(Resource a, Resource b) {
+                return a.getFilename().compareTo(b.getFilename());
+            }
+        });
+        Statement statement = connection.createStatement();
+        try {
+            for (Resource migration : migrations) {
+                statement.execute(FileCopyUtils.copyToString(new InputStreamReader(migration.getInputStream(),
+                        "UTF-8")));
+            }
+        } finally {
+            statement.close();
+        }
+    }
+}
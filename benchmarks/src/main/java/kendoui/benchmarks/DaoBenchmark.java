@@ -0,0 +1,119 @@
+package kendoui.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import kendoui.dao.ICategoryDao;
+import kendoui.dao.IPointOfSaleCategoryDao;
+import kendoui.dao.IPointOfSaleDao;
+import kendoui.exception.DAOException;
+import kendoui.model.PointOfSale;
+import kendoui.utils.CatalogDataGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The hot paths of the DAOs, on the seeded embedded database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class DaoBenchmark {
+
+    private BenchmarkDatabase database;
+
+    private IPointOfSaleDao pointOfSaleDao;
+
+    private ICategoryDao categoryDao;
+
+    private IPointOfSaleCategoryDao pointOfSaleCategoryDao;
+
+    private TransactionTemplate transactionTemplate;
+
+    private CatalogDataGenerator.Catalog catalog;
+
+    private PointOfSale pointOfSale;
+
+    private long merges;
+
+    private long categoryId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.start();
+        pointOfSaleDao = database.getBean(IPointOfSaleDao.class);
+        categoryDao = database.getBean(ICategoryDao.class);
+        pointOfSaleCategoryDao = database.getBean(IPointOfSaleCategoryDao.class);
+        transactionTemplate = new TransactionTemplate(database.getBean(PlatformTransactionManager.class));
+        catalog = database.getCatalog();
+        pointOfSale = pointOfSaleDao.find(catalog.getFirstPointOfSaleId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.stop();
+    }
+
+    /**
+     * Merge a detached point of sale with its version, a real update each time as the name changes
+     */
+    @Benchmark
+    public PointOfSale mergeWithLastUpdated() {
+        pointOfSale = transactionTemplate.execute(new TransactionCallback<PointOfSale>() {
+            @Override
+            public PointOfSale doInTransaction(TransactionStatus status) {
+                pointOfSale.setName("Point of sale " + merges++);
+                return pointOfSaleDao.merge(pointOfSale, pointOfSale.getLastUpdated());
+            }
+        });
+        return pointOfSale;
+    }
+
+    @Benchmark
+    public PointOfSale getByField() {
+        return pointOfSaleDao.getByField("id", catalog.getFirstPointOfSaleId() + 1);
+    }
+
+    @Benchmark
+    public void persistentClassAndEntityName(Blackhole blackhole) {
+        blackhole.consume(categoryDao.getPersistentClass());
+        blackhole.consume(categoryDao.getEntityName());
+    }
+
+    /**
+     * Clear the inUse flag of the points of sale of a category, cycling through the categories
+     */
+    @Benchmark
+    public void updatePosInUseStateFalse() {
+        final long id = catalog.getFirstCategoryId() + categoryId++ % catalog.getCategoryCount();
+        transactionTemplate.execute(new TransactionCallback<Object>() {
+            @Override
+            public Object doInTransaction(TransactionStatus status) {
+                try {
+                    pointOfSaleCategoryDao.updatePosInUseStateFalse(id);
+                } catch (DAOException e) {
+                    throw new IllegalStateException(e);
+                }
+                return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,92 @@
+package kendoui.benchmarks;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.Entity;
+import javax.persistence.Version;
+
+import kendoui.dao.BaseDao;
+import kendoui.dao.EntityMetadata;
+import kendoui.model.PointOfSaleCategory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The per-call cost of the entity metadata lookups of {@link BaseDao}, the reflection based implementation it used
+ * to have against the precomputed {@link EntityMetadata}. Needs no database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EntityMetadataBenchmark {
+
+    private static class PointOfSaleCategoryBenchmarkDao extends BaseDao<PointOfSaleCategory> {
+    }
+
+    private final BaseDao<PointOfSaleCategory> dao = new PointOfSaleCategoryBenchmarkDao();
+
+    private final Timestamp lastUpdated = new Timestamp(System.currentTimeMillis());
+
+    @Benchmark
+    public Object getPersistentClassByReflection() {
+        return ((ParameterizedType) dao.getClass().getGenericSuperclass()).getActualTypeArguments()[0];
+    }
+
+    @Benchmark
+    public Object getPersistentClassByMetadata() {
+        return dao.getPersistentClass();
+    }
+
+    @Benchmark
+    public String getEntityNameByReflection() {
+        Class<?> clazz = (Class<?>) ((ParameterizedType) dao.getClass().getGenericSuperclass())
+                .getActualTypeArguments()[0];
+        String name = clazz.getAnnotation(Entity.class).name();
+        return name.length() == 0 ? clazz.getSimpleName() : name;
+    }
+
+    @Benchmark
+    public String getEntityNameByMetadata() {
+        return dao.getEntityName();
+    }
+
+    /**
+     * The clone with its version the merge used to build
+     */
+    @Benchmark
+    public Object newVersionedInstanceByReflection() throws Exception {
+        Object obj = Class.forName(PointOfSaleCategory.class.getName()).newInstance();
+        for (Field field : obj.getClass().getDeclaredFields()) {
+            for (Annotation annotation : field.getAnnotations()) {
+                if (annotation instanceof Version) {
+                    obj.getClass().getMethod(BaseDao.parSetName(field.getName()), field.getType())
+                            .invoke(obj, lastUpdated);
+                }
+            }
+        }
+        return obj;
+    }
+
+    @Benchmark
+    public Object newVersionedInstanceByMetadata() {
+        EntityMetadata<PointOfSaleCategory> metadata = dao.getEntityMetadata();
+        PointOfSaleCategory obj = metadata.newInstance();
+        metadata.setVersion(obj, lastUpdated);
+        return obj;
+    }
+}
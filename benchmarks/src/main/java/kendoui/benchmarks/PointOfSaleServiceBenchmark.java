@@ -0,0 +1,63 @@
+package kendoui.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import kendoui.exception.MTXException;
+import kendoui.model.Category;
+import kendoui.service.IPointOfSaleService;
+import kendoui.utils.CatalogDataGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The categories of a point of sale through the service, read-only transaction and query cache included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class PointOfSaleServiceBenchmark {
+
+    private BenchmarkDatabase database;
+
+    private IPointOfSaleService pointOfSaleService;
+
+    private CatalogDataGenerator.Catalog catalog;
+
+    private long pointOfSaleId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.start();
+        pointOfSaleService = database.getBean(IPointOfSaleService.class);
+        catalog = database.getCatalog();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.stop();
+    }
+
+    /**
+     * Get the categories of the points of sale in turn
+     */
+    @Benchmark
+    public List<Category> getCategoryByPosId() throws MTXException {
+        return pointOfSaleService.getCategoryByPosId(catalog.getFirstPointOfSaleId()
+                + pointOfSaleId++ % catalog.getPointOfSaleCount());
+    }
+}
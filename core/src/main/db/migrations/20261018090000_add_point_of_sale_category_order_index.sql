@@ -0,0 +1,8 @@
+-- Index: point_of_sale_category_order_idx
+
+-- DROP INDEX point_of_sale_category_order_idx;
+
+-- Serves the keyset pagination of the categories of a point of sale, ordered by pointofsaleorder with the id as
+-- tiebreaker, so any page is an index range scan instead of scanning and discarding the previous pages.
+CREATE INDEX point_of_sale_category_order_idx
+  ON point_of_sale_category (pointofsale, pointofsaleorder, id);
@@ -0,0 +1,17 @@
+--
+-- The id generators reserve a block of ids per sequence call: every value v returned by nextval reserves
+-- [v, v + INCREMENT BY) to one application node. The increments must match the block sizes of the generators in
+-- kendoui.model (see Constant.*_ID_BLOCK_SIZE), the sequences restart right after the highest id in use.
+--
+
+ALTER SEQUENCE default_text_sequence INCREMENT BY 100;
+SELECT setval('default_text_sequence', (SELECT COALESCE(max(id), 0) + 1 FROM default_text), false);
+
+ALTER SEQUENCE category_sequence INCREMENT BY 50;
+SELECT setval('category_sequence', (SELECT COALESCE(max(id), 0) + 1 FROM category), false);
+
+ALTER SEQUENCE point_of_sale_sequence INCREMENT BY 20;
+SELECT setval('point_of_sale_sequence', (SELECT COALESCE(max(id), 0) + 1 FROM point_of_sale), false);
+
+ALTER SEQUENCE point_of_sale_category_sequence INCREMENT BY 100;
+SELECT setval('point_of_sale_category_sequence', (SELECT COALESCE(max(id), 0) + 1 FROM point_of_sale_category), false);
@@ -0,0 +1,129 @@
+-- Table: category_closure
+
+-- DROP TABLE category_closure;
+
+-- Transitive closure of category_tree: one row per path from an ancestor to a descendant, every category being its
+-- own ancestor at depth 0. The category hierarchy may have several parents per category, so paths counts the
+-- distinct paths of a given depth between two categories and a row only disappears with its last path. The table is
+-- maintained by the triggers below in the transaction that changes category or category_tree, never by the
+-- application.
+CREATE TABLE category_closure
+(
+  ancestor bigint NOT NULL,
+  descendant bigint NOT NULL,
+  depth integer NOT NULL,
+  paths bigint NOT NULL DEFAULT 1,
+  CONSTRAINT category_closure_pkey PRIMARY KEY (ancestor , depth , descendant ),
+  CONSTRAINT category_closure_ancestor_fkey FOREIGN KEY (ancestor)
+      REFERENCES category (id) MATCH SIMPLE
+      ON UPDATE NO ACTION ON DELETE CASCADE,
+  CONSTRAINT category_closure_descendant_fkey FOREIGN KEY (descendant)
+      REFERENCES category (id) MATCH SIMPLE
+      ON UPDATE NO ACTION ON DELETE CASCADE
+);
+
+-- The primary key serves the descendants and depth limited subtrees of a category, this index its ancestors.
+CREATE INDEX category_closure_descendant_idx
+  ON category_closure (descendant , depth , ancestor );
+
+INSERT INTO category_closure (ancestor, descendant, depth, paths)
+WITH RECURSIVE path (ancestor, descendant, depth) AS (
+    SELECT id, id, 0 FROM category
+  UNION ALL
+    SELECT path.ancestor, category_tree.child, path.depth + 1
+      FROM path JOIN category_tree ON category_tree.parent = path.descendant
+)
+SELECT ancestor, descendant, depth, count(*) FROM path GROUP BY ancestor, descendant, depth;
+
+-- Function: category_closure_add_edge(bigint, bigint)
+
+-- Adds the paths going through the new edge parent -> child: every path ending at the parent joined with every path
+-- starting at the child.
+CREATE OR REPLACE FUNCTION category_closure_add_edge(p_parent bigint, p_child bigint) RETURNS void AS $$
+BEGIN
+  IF EXISTS (SELECT 1 FROM category_closure WHERE ancestor = p_child AND descendant = p_parent) THEN
+    RAISE EXCEPTION 'category % is a descendant of category %, the edge would create a cycle', p_parent, p_child;
+  END IF;
+
+  WITH new_path AS (
+    SELECT up.ancestor, down.descendant, up.depth + down.depth + 1 AS depth, sum(up.paths * down.paths) AS paths
+      FROM category_closure up, category_closure down
+     WHERE up.descendant = p_parent AND down.ancestor = p_child
+     GROUP BY up.ancestor, down.descendant, up.depth + down.depth + 1
+  ), existing AS (
+    UPDATE category_closure c SET paths = c.paths + new_path.paths
+      FROM new_path
+     WHERE c.ancestor = new_path.ancestor AND c.depth = new_path.depth AND c.descendant = new_path.descendant
+    RETURNING c.ancestor, c.depth, c.descendant
+  )
+  INSERT INTO category_closure (ancestor, descendant, depth, paths)
+  SELECT new_path.ancestor, new_path.descendant, new_path.depth, new_path.paths
+    FROM new_path
+   WHERE NOT EXISTS (SELECT 1 FROM existing
+                      WHERE existing.ancestor = new_path.ancestor AND existing.depth = new_path.depth
+                        AND existing.descendant = new_path.descendant);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Function: category_closure_remove_edge(bigint, bigint)
+
+-- Removes the paths going through the removed edge parent -> child. The paths ending at the parent and starting at the
+-- child never go through the edge in an acyclic hierarchy, so deleting the rows left without path does not change
+-- them and they are joined again to decrement the other rows.
+CREATE OR REPLACE FUNCTION category_closure_remove_edge(p_parent bigint, p_child bigint) RETURNS void AS $$
+BEGIN
+  WITH old_path AS (
+    SELECT up.ancestor, down.descendant, up.depth + down.depth + 1 AS depth, sum(up.paths * down.paths) AS paths
+      FROM category_closure up, category_closure down
+     WHERE up.descendant = p_parent AND down.ancestor = p_child
+     GROUP BY up.ancestor, down.descendant, up.depth + down.depth + 1
+  )
+  DELETE FROM category_closure c
+   USING old_path
+   WHERE c.ancestor = old_path.ancestor AND c.depth = old_path.depth AND c.descendant = old_path.descendant
+     AND c.paths <= old_path.paths;
+
+  WITH old_path AS (
+    SELECT up.ancestor, down.descendant, up.depth + down.depth + 1 AS depth, sum(up.paths * down.paths) AS paths
+      FROM category_closure up, category_closure down
+     WHERE up.descendant = p_parent AND down.ancestor = p_child
+     GROUP BY up.ancestor, down.descendant, up.depth + down.depth + 1
+  )
+  UPDATE category_closure c SET paths = c.paths - old_path.paths
+    FROM old_path
+   WHERE c.ancestor = old_path.ancestor AND c.depth = old_path.depth AND c.descendant = old_path.descendant;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Function: category_tree_closure()
+
+-- Hierarchy changes are rare, they are serialized so two concurrent edges can not both miss the paths of the other.
+CREATE OR REPLACE FUNCTION category_tree_closure() RETURNS trigger AS $$
+BEGIN
+  LOCK TABLE category_closure IN SHARE ROW EXCLUSIVE MODE;
+  IF TG_OP = 'DELETE' OR TG_OP = 'UPDATE' THEN
+    PERFORM category_closure_remove_edge(OLD.parent, OLD.child);
+  END IF;
+  IF TG_OP = 'INSERT' OR TG_OP = 'UPDATE' THEN
+    PERFORM category_closure_add_edge(NEW.parent, NEW.child);
+  END IF;
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER category_tree_closure_trigger
+  AFTER INSERT OR UPDATE OF parent, child OR DELETE ON category_tree
+  FOR EACH ROW EXECUTE PROCEDURE category_tree_closure();
+
+-- Function: category_closure_self()
+
+CREATE OR REPLACE FUNCTION category_closure_self() RETURNS trigger AS $$
+BEGIN
+  INSERT INTO category_closure (ancestor, descendant, depth, paths) VALUES (NEW.id, NEW.id, 0, 1);
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER category_closure_self_trigger
+  AFTER INSERT ON category
+  FOR EACH ROW EXECUTE PROCEDURE category_closure_self();
@@ -0,0 +1,8 @@
+-- Index: point_of_sale_category_category_idx
+
+-- DROP INDEX point_of_sale_category_category_idx;
+
+-- Serves the lookups of the point of sales of a set of categories, e.g. the set-based updates of point_of_sale.inuse,
+-- the unique constraint only covers lookups by point of sale.
+CREATE INDEX point_of_sale_category_category_idx
+  ON point_of_sale_category (category, pointofsale);
@@ -0,0 +1,13 @@
+--
+-- The categories of a point of sale are ordered by pointofsaleorder spaced by 1024 (Constant.POINT_OF_SALE_ORDER_GAP):
+-- a category moved between two others takes the middle value, only its row is updated. Renumber the existing rows in
+-- their current order, ties broken by id.
+--
+
+UPDATE point_of_sale_category pc
+   SET pointofsaleorder = s.position
+  FROM (SELECT id, ((row_number() OVER (PARTITION BY pointofsale ORDER BY pointofsaleorder, id) - 1) * 1024)::integer
+               AS position
+          FROM point_of_sale_category) s
+ WHERE pc.id = s.id
+   AND pc.pointofsaleorder IS DISTINCT FROM s.position;
@@ -16,5 +16,6 @@ public class BaseContentDao<T> extends BaseDao<T> implements IDao<T> {
     @PostConstruct
     public void init() {
         setEntityManager(entityManager);
+        EntityMetadataRegistry.registerAll(entityManager);
     }
 }
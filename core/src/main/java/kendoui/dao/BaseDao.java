@@ -1,25 +1,54 @@
 package kendoui.dao;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Timestamp;
-import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.persistence.*;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
 import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
 
 import kendoui.exception.DAOException;
 import kendoui.utils.Constant;
 
-import org.apache.commons.lang.StringUtils;
+import org.hibernate.CacheMode;
+import org.hibernate.EntityMode;
+import org.hibernate.HibernateException;
+import org.hibernate.LockOptions;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.cache.UpdateTimestampsCache;
+import org.hibernate.engine.EntityKey;
+import org.hibernate.engine.NamedQueryDefinition;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.ejb.QueryHints;
+import org.hibernate.id.Assigned;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.jdbc.Work;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.CollectionType;
+import org.hibernate.type.Type;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
@@ -35,6 +64,35 @@ public abstract class BaseDao<T> implements IDao<T> {
 
     private EntityManager entityManager;
 
+    // reltuples is -1 or 0 for a table never analyzed
+    private static final String ESTIMATE_ROW_COUNT = "select cast(reltuples as bigint) from pg_class where oid = cast(?1 as regclass)";
+
+    private final EntityMetadata<T> metadata;
+
+    private final CountCache countCache = new CountCache(Constant.COUNT_CACHE_SIZE, Constant.COUNT_CACHE_TTL_MILLIS);
+
+    // The statements of the direct versioned updates, by set of updated attributes
+    private final ConcurrentMap<String, String> updateStatements = new ConcurrentHashMap<String, String>();
+
+    // The compiled Kendo DataSource queries, by shape, least recently used first
+    private final Map<String, DataSourceQuery<T>> dataSourceQueries = Collections.synchronizedMap(
+            new LinkedHashMap<String, DataSourceQuery<T>>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, DataSourceQuery<T>> eldest) {
+                    return size() > Constant.DATA_SOURCE_QUERY_CACHE_SIZE;
+                }
+            });
+
+    /**
+     * Constructor of BaseDao, resolves the metadata of the entity type this dao is declared with.
+     */
+    protected BaseDao() {
+        metadata = EntityMetadataRegistry.getMetadata(EntityMetadataRegistry.<T>resolveEntityClass(getClass()));
+    }
+
     /**
      * (non-Javadoc)
      *
@@ -65,6 +123,15 @@ public abstract class BaseDao<T> implements IDao<T> {
         return (List<T>) queryByList(query, args);
     }
 
+    /**
+     * Get the Hibernate session behind the entity manager, for the operations JPA does not expose.
+     *
+     * @return the current session
+     */
+    protected Session getSession() {
+        return (Session) entityManager.getDelegate();
+    }
+
     /**
      * (non-Javadoc)
      *
@@ -72,7 +139,7 @@ public abstract class BaseDao<T> implements IDao<T> {
      */
     @Override
     public T getByField(String name, Object value) {
-        return getByOne(MessageFormat.format("from {0} where {1} = ?", getEntityName(), name), value);
+        return getByOne(metadata.getFieldQuery(name), value);
     }
 
     /**
@@ -164,6 +231,242 @@ public abstract class BaseDao<T> implements IDao<T> {
     }
 
 
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#queryByNamedList(String, Object[])
+     */
+    @Override
+    public List<?> queryByNamedList(String name, Object... args) {
+        int i = 1;
+        Query q = entityManager.createNamedQuery(name);
+        // Binding the ARGS
+        for (Object arg : args) {
+            q.setParameter(i++, arg);
+        }
+        return q.getResultList();
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#getByNamedList(String, Object[])
+     */
+    @Override
+    public List<T> getByNamedList(String name, Object... args) {
+        return (List<T>) queryByNamedList(name, args);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#getByList(String, FetchPlan, Object[])
+     */
+    @Override
+    public List<T> getByList(String query, FetchPlan fetchPlan, Object... args) {
+        List<T> rows = (List<T>) queryByList(fetchPlan.apply(query), args);
+        batchFetch(rows, fetchPlan);
+        return rows;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#queryByNamedList(String, FetchPlan, Object[])
+     */
+    @Override
+    public List<?> queryByNamedList(String name, FetchPlan fetchPlan, Object... args) {
+        NamedQueryDefinition definition = ((SessionFactoryImplementor) getSession().getSessionFactory())
+                .getNamedQuery(name);
+        List<?> rows;
+        if (definition == null) {
+            // A native query, its select list is fixed
+            rows = queryByNamedList(name, args);
+        } else {
+            Query q = entityManager.createQuery(fetchPlan.apply(definition.getQueryString()));
+            if (definition.isCacheable()) {
+                q.setHint(QueryHints.HINT_CACHEABLE, Boolean.TRUE);
+            }
+            int i = 1;
+            // Binding the ARGS
+            for (Object arg : args) {
+                q.setParameter(i++, arg);
+            }
+            rows = q.getResultList();
+        }
+        batchFetch(rows, fetchPlan);
+        return rows;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#getByNamedList(String, FetchPlan, Object[])
+     */
+    @Override
+    public List<T> getByNamedList(String name, FetchPlan fetchPlan, Object... args) {
+        return (List<T>) queryByNamedList(name, fetchPlan, args);
+    }
+
+    /**
+     * Initialize the batch fetched collections of the fetch plan on the rows, with one query per collection and
+     * {@link Constant#DEFAULT_FETCH_SIZE} rows. The rows are managed so the query fills their collections.
+     *
+     * @param rows      managed entities of one type
+     * @param fetchPlan the fetch plan
+     */
+    private void batchFetch(List<?> rows, FetchPlan fetchPlan) {
+        if (rows.isEmpty() || fetchPlan.getBatchFetches().isEmpty()) {
+            return;
+        }
+        Session session = getSession();
+        String entityName = session.getEntityName(rows.get(0));
+        for (String collection : fetchPlan.getBatchFetches()) {
+            String query = fetchPlan.getBatchQuery(entityName, collection);
+            for (int start = 0; start < rows.size(); start += Constant.DEFAULT_FETCH_SIZE) {
+                List<?> batch = rows.subList(start, Math.min(start + Constant.DEFAULT_FETCH_SIZE, rows.size()));
+                session.createQuery(query).setParameterList("rows", batch).list();
+            }
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#queryByProjection(String, Class, Object[])
+     */
+    @Override
+    public <P> List<P> queryByProjection(String query, Class<P> type, Object... args) {
+        return getProjection(entityManager.createQuery(query), args);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#queryByNamedProjection(String, Class, Object[])
+     */
+    @Override
+    public <P> List<P> queryByNamedProjection(String name, Class<P> type, Object... args) {
+        return getProjection(entityManager.createNamedQuery(name), args);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#queryByNativeProjection(String, Class, Object[])
+     */
+    @Override
+    public <P> List<P> queryByNativeProjection(String sql, Class<P> type, Object... args) {
+        org.hibernate.Query q = getSession().createSQLQuery(sql).setResultTransformer(
+                new ConstructorResultTransformer(type));
+        int i = 1;
+        // Binding the ARGS
+        for (Object arg : args) {
+            q.setParameter(String.valueOf(i++), arg);
+        }
+        q.setReadOnly(true);
+        return q.list();
+    }
+
+    /**
+     * Run a projection query read-only
+     *
+     * @param q    a query with a constructor expression
+     * @param args an object array of query parameters
+     * @return the rows
+     */
+    private <P> List<P> getProjection(Query q, Object... args) {
+        int i = 1;
+        // Binding the ARGS
+        for (Object arg : args) {
+            q.setParameter(i++, arg);
+        }
+        q.setHint(QueryHints.HINT_READONLY, Boolean.TRUE);
+        return q.getResultList();
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#getByNamedOne(String, Object[])
+     */
+    @Override
+    public T getByNamedOne(String name, Object... args) {
+        int i = 1;
+        Query q = entityManager.createNamedQuery(name);
+        // Binding the args
+        for (Object arg : args) {
+            q.setParameter(i++, arg);
+        }
+        try {
+            return (T) q.getSingleResult();
+        } catch (NoResultException e) {
+            LOG.warn("Can not find result for named query: {}", name);
+            return null;
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#streamList(int, RowCallback)
+     */
+    @Override
+    public int streamList(int fetchSize, RowCallback<T> callback) throws DAOException {
+        return streamByList("from " + getEntityName(), fetchSize, callback);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#streamByList(String, int, RowCallback, Object[])
+     */
+    @Override
+    public int streamByList(String query, int fetchSize, RowCallback<T> callback, Object... args)
+            throws DAOException {
+        int fetchSizeResult = fetchSize <= 0 ? Constant.DEFAULT_FETCH_SIZE : fetchSize;
+        LOG.debug("Stream the database using jpa {}, fetchSize {}", query, fetchSizeResult);
+        Session session = getSession();
+        // The persistence context is cleared while streaming, pending changes must be written first
+        session.flush();
+
+        org.hibernate.Query q = session.createQuery(query);
+        // Hibernate parses the JPA ?1 parameters as named ones, bound like the entity manager binds them
+        boolean jpaParameters = Arrays.asList(q.getNamedParameters()).contains("1");
+        int i = 1;
+        // Binding the ARGS
+        for (Object arg : args) {
+            if (jpaParameters) {
+                q.setParameter(String.valueOf(i), arg);
+            } else {
+                q.setParameter(i - 1, arg);
+            }
+            i++;
+        }
+        q.setFetchSize(fetchSizeResult);
+        q.setReadOnly(true);
+        q.setCacheMode(CacheMode.IGNORE);
+
+        int count = 0;
+        ScrollableResults results = q.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                count++;
+                boolean next = callback.processRow((T) results.get(0));
+                // Keep the persistence context bounded to one batch of rows
+                if (count % fetchSizeResult == 0) {
+                    session.clear();
+                }
+                if (!next) {
+                    break;
+                }
+            }
+        } finally {
+            results.close();
+        }
+        return count;
+    }
+
     /*
     * (non-Javadoc)
     *
@@ -182,8 +485,18 @@ public abstract class BaseDao<T> implements IDao<T> {
             query.setFirstResult((pageNumberResult - 1) * pageSizeResult);
             query.setMaxResults(pageSizeResult);
         }
-        List<Object> list = query.getResultList();
-        if (!list.isEmpty() && getEntityName().equals(list.get(0).getClass().getSimpleName())) {
+        return toEntities(query.getResultList());
+    }
+
+    /**
+     * Return the entities of a query result, taking the first item of each row when the query selects more than the
+     * entity.
+     *
+     * @param list the query result
+     * @return the entities
+     */
+    private List<T> toEntities(List<?> list) {
+        if (!list.isEmpty() && getPersistentClass().isInstance(list.get(0))) {
             return (List<T>) list;
         }
         List<T> actualList = new ArrayList<T>();
@@ -193,6 +506,210 @@ public abstract class BaseDao<T> implements IDao<T> {
         return actualList;
     }
 
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#queryByPage(String, int, int, CountMode, Object[])
+     */
+    @Override
+    public Page<T> queryByPage(String jpa, int pageSize, int pageNumber, CountMode countMode, Object... args)
+            throws DAOException {
+        int pageSizeResult = pageSize <= 0 ? Constant.DEFAULT_PAGE_SIZE : pageSize;
+        int pageNumberResult = pageNumber <= 0 ? Constant.DEFAULT_PAGE_NUMBER : pageNumber;
+        int offset = (pageNumberResult - 1) * pageSizeResult;
+        List<T> rows = toEntities(queryByList(jpa, offset, pageSizeResult, args));
+
+        // A short page is the last one, its end is the total
+        if (rows.size() < pageSizeResult && (!rows.isEmpty() || offset == 0)) {
+            return new Page<T>(rows, offset + rows.size(), pageNumberResult, pageSizeResult, false);
+        }
+
+        String countQuery;
+        try {
+            countQuery = CountQuery.derive(jpa);
+        } catch (IllegalArgumentException e) {
+            throw new DAOException(e.getMessage(), e);
+        }
+        boolean estimated = false;
+        long total;
+        switch (countMode) {
+            case ESTIMATE:
+                long estimate = CountQuery.isUnfiltered(jpa) ? estimateRowCount() : -1;
+                estimated = estimate >= Constant.COUNT_ESTIMATE_THRESHOLD;
+                total = estimated ? estimate : count(countQuery, args);
+                break;
+            case CACHED:
+                String key = countQuery + Arrays.deepToString(args);
+                Long cached = countCache.get(key);
+                if (cached == null) {
+                    cached = count(countQuery, args);
+                    countCache.put(key, cached);
+                }
+                total = cached;
+                break;
+            default:
+                total = count(countQuery, args);
+                break;
+        }
+        return new Page<T>(rows, Math.max(total, offset + rows.size()), pageNumberResult, pageSizeResult, estimated);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#queryByDataSource(DataSourceRequest, DataSourceFields, CountMode)
+     */
+    @Override
+    public Page<T> queryByDataSource(DataSourceRequest request, DataSourceFields fields, CountMode countMode)
+            throws DAOException {
+        int pageSize = request.getTake() <= 0 ? Constant.DEFAULT_PAGE_SIZE : request.getTake();
+        int offset = request.getSkip();
+        List<Object> values = new ArrayList<Object>();
+        DataSourceQuery<T> query = getDataSourceQuery(request, fields, values);
+        List<T> rows = query.createSelect(entityManager, values).setFirstResult(offset).setMaxResults(pageSize)
+                .getResultList();
+        int pageNumber = offset / pageSize + 1;
+
+        // A short page is the last one, its end is the total
+        if (rows.size() < pageSize && (!rows.isEmpty() || offset == 0)) {
+            return new Page<T>(rows, offset + rows.size(), pageNumber, pageSize, false);
+        }
+
+        boolean estimated = false;
+        long total;
+        switch (countMode) {
+            case ESTIMATE:
+                long estimate = query.isFiltered() ? -1 : estimateRowCount();
+                estimated = estimate >= Constant.COUNT_ESTIMATE_THRESHOLD;
+                total = estimated ? estimate : query.createCount(entityManager, values).getSingleResult();
+                break;
+            case CACHED:
+                String key = getEntityName() + ' ' + query.getKey() + values;
+                Long cached = countCache.get(key);
+                if (cached == null) {
+                    cached = query.createCount(entityManager, values).getSingleResult();
+                    countCache.put(key, cached);
+                }
+                total = cached;
+                break;
+            default:
+                total = query.createCount(entityManager, values).getSingleResult();
+                break;
+        }
+        return new Page<T>(rows, Math.max(total, offset + rows.size()), pageNumber, pageSize, estimated);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#queryGroupsByDataSource(DataSourceRequest, DataSourceFields)
+     */
+    @Override
+    public Page<DataSourceGroup> queryGroupsByDataSource(DataSourceRequest request, DataSourceFields fields)
+            throws DAOException {
+        if (request.getGroups().isEmpty()) {
+            throw new DAOException("The DataSource request is not grouped");
+        }
+        int pageSize = request.getTake() <= 0 ? Constant.DEFAULT_PAGE_SIZE : request.getTake();
+        int offset = request.getSkip();
+        List<Object> values = new ArrayList<Object>();
+        DataSourceQuery<T> query = getDataSourceQuery(request, fields, values);
+        List<Object[]> rows = query.createGroupSelect(entityManager, values).setFirstResult(offset)
+                .setMaxResults(pageSize).getResultList();
+
+        DataSourceRequest.Group group = request.getGroups().get(0);
+        boolean subgroups = request.getGroups().size() > 1;
+        List<DataSourceGroup> groups = new ArrayList<DataSourceGroup>(rows.size());
+        for (Object[] row : rows) {
+            groups.add(new DataSourceGroup(group.getField(), row[0], ((Number) row[1]).longValue(),
+                    DataSourceQuery.getAggregates(group.getAggregates(), row, 2), subgroups));
+        }
+        int pageNumber = offset / pageSize + 1;
+
+        // A short page is the last one, its end is the total
+        if (groups.size() < pageSize && (!groups.isEmpty() || offset == 0)) {
+            return new Page<DataSourceGroup>(groups, offset + groups.size(), pageNumber, pageSize, false);
+        }
+        Object[] counts = query.createGroupCount(entityManager, values).getSingleResult();
+        long total = ((Number) counts[0]).longValue();
+        // The rows without value make one more group
+        if (((Number) counts[1]).longValue() > ((Number) counts[2]).longValue()) {
+            total++;
+        }
+        return new Page<DataSourceGroup>(groups, Math.max(total, offset + groups.size()), pageNumber, pageSize,
+                false);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#queryAggregatesByDataSource(DataSourceRequest, DataSourceFields)
+     */
+    @Override
+    public Map<String, Map<String, Object>> queryAggregatesByDataSource(DataSourceRequest request,
+                                                                       DataSourceFields fields) throws DAOException {
+        List<Object> values = new ArrayList<Object>();
+        DataSourceQuery<T> query = getDataSourceQuery(request, fields, values);
+        if (request.getAggregates().isEmpty()) {
+            return new LinkedHashMap<String, Map<String, Object>>();
+        }
+        Object[] row = query.createAggregateSelect(entityManager, values).getSingleResult();
+        return DataSourceQuery.getAggregates(request.getAggregates(), row, 1);
+    }
+
+    /**
+     * Return the compiled queries of the shape of a DataSource request, compiling them on first use
+     *
+     * @param request the request
+     * @param fields  the fields the request may filter and sort on
+     * @param values  the list the bind values of the request are added to
+     * @return the queries
+     * @throws DAOException if the request uses a field not exposed or a value does not convert to its attribute
+     */
+    private DataSourceQuery<T> getDataSourceQuery(DataSourceRequest request, DataSourceFields fields,
+                                                  List<Object> values) throws DAOException {
+        try {
+            DataSourceQuery.Shape shape = DataSourceQuery.getShape(request, fields);
+            DataSourceQuery<T> query = dataSourceQueries.get(shape.getKey());
+            if (query == null) {
+                query = new DataSourceQuery<T>(getCriteriaBuilder(), getPersistentClass(), metadata.getIdName(),
+                        shape.getKey(), request, fields);
+                dataSourceQueries.put(shape.getKey(), query);
+            }
+            values.addAll(query.convert(shape.getValues()));
+            LOG.debug("Query the database using DataSource shape {} and values {}", shape.getKey(), values);
+            return query;
+        } catch (IllegalArgumentException e) {
+            throw new DAOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Run a count query
+     *
+     * @param countQuery a Java Persistence count query
+     * @param args       an object array of query parameters
+     * @return the count
+     */
+    private long count(String countQuery, Object... args) {
+        return ((Number) queryByOne(countQuery, args)).longValue();
+    }
+
+    /**
+     * Return the PostgreSQL planner estimate of the number of rows of the entity table, as of the last
+     * <code>ANALYZE</code>.
+     *
+     * @return the estimate or -1 if the table has never been analyzed
+     */
+    private long estimateRowCount() {
+        String table = ((AbstractEntityPersister) getSession().getSessionFactory().getClassMetadata(
+                getPersistentClass())).getTableName();
+        Query query = entityManager.createNativeQuery(ESTIMATE_ROW_COUNT);
+        query.setParameter(1, table.toLowerCase());
+        Number estimate = (Number) query.getSingleResult();
+        return estimate == null ? -1 : estimate.longValue();
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -235,6 +752,261 @@ public abstract class BaseDao<T> implements IDao<T> {
         return query.getResultList();
     }
 
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#queryByKeyset(String, java.util.List, String, int, Object[])
+     */
+    @Override
+    public KeysetPage<T> queryByKeyset(String where, List<SortOrder> sortOrders, String cursor, int pageSize,
+                                       Object... args) throws DAOException {
+        int pageSizeResult = pageSize <= 0 ? Constant.DEFAULT_PAGE_SIZE : pageSize;
+        List<SortOrder> keys = getKeysetOrders(sortOrders);
+        // Resolved on every page, so the sort attributes are always checked before they reach the query
+        KeysetKey[] keyTypes = getKeysetKeys(keys);
+        List<Object> parameters = new ArrayList<Object>(Arrays.asList(args));
+
+        StringBuilder jpql = new StringBuilder("select e");
+        for (SortOrder key : keys) {
+            jpql.append(", e.").append(key.getAttribute());
+        }
+        jpql.append(" from ").append(getEntityName()).append(" e");
+        List<String> conditions = new ArrayList<String>();
+        if (where != null && where.trim().length() > 0) {
+            conditions.add("(" + where + ")");
+        }
+        if (cursor != null) {
+            Object[] values = KeysetCursor.decode(cursor, keys.size());
+            for (int i = 0; i < values.length; i++) {
+                values[i] = keyTypes[i].coerce(values[i]);
+            }
+            conditions.add(getSeekPredicate(keys, keyTypes, values, parameters));
+        }
+        for (int i = 0; i < conditions.size(); i++) {
+            jpql.append(i == 0 ? " where " : " and ").append(conditions.get(i));
+        }
+        jpql.append(" order by ");
+        for (int i = 0; i < keys.size(); i++) {
+            jpql.append(i == 0 ? "e." : ", e.").append(keys.get(i));
+        }
+        LOG.debug("Query the database using keyset query {}, pageSize {}", jpql, pageSizeResult);
+
+        Query query = entityManager.createQuery(jpql.toString());
+        int i = 1;
+        for (Object parameter : parameters) {
+            query.setParameter(i++, parameter);
+        }
+        // Fetch one row more than asked to know whether there is a next page
+        query.setMaxResults(pageSizeResult + 1);
+        List<Object[]> result = query.getResultList();
+
+        boolean hasNext = result.size() > pageSizeResult;
+        List<T> rows = new ArrayList<T>(Math.min(result.size(), pageSizeResult));
+        for (Object[] row : hasNext ? result.subList(0, pageSizeResult) : result) {
+            rows.add((T) row[0]);
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            Object[] last = result.get(pageSizeResult - 1);
+            nextCursor = KeysetCursor.encode(Arrays.copyOfRange(last, 1, last.length));
+        }
+        return new KeysetPage<T>(rows, nextCursor);
+    }
+
+    /**
+     * Append the id as the last sort key unless it is already sorted on, so the keyset order is total.
+     *
+     * @param sortOrders requested sort orders, may be null
+     * @return the sort keys used to seek
+     */
+    private List<SortOrder> getKeysetOrders(List<SortOrder> sortOrders) {
+        List<SortOrder> keys = new ArrayList<SortOrder>();
+        boolean hasId = false;
+        if (sortOrders != null) {
+            for (SortOrder sortOrder : sortOrders) {
+                keys.add(sortOrder);
+                hasId = hasId || sortOrder.getAttribute().equals(metadata.getIdName());
+            }
+        }
+        if (!hasId) {
+            keys.add(SortOrder.asc(metadata.getIdName()));
+        }
+        return keys;
+    }
+
+    /**
+     * The type of a keyset sort key and whether it may be null.
+     */
+    private static final class KeysetKey {
+
+        private final String attribute;
+
+        private final Class<?> type;
+
+        private final boolean nullable;
+
+        private KeysetKey(String attribute, Class<?> type, boolean nullable) {
+            this.attribute = attribute;
+            this.type = type;
+            this.nullable = nullable;
+        }
+
+        /**
+         * Return a value of the cursor as a value of the key, the cursor stores the small numbers widened
+         */
+        private Object coerce(Object value) throws DAOException {
+            if (value == null) {
+                if (!nullable) {
+                    throw new DAOException("Invalid cursor: " + attribute + " can not be null");
+                }
+                return null;
+            } else if (type.isInstance(value)) {
+                return value;
+            } else if (value instanceof Integer && type == Short.class) {
+                return ((Integer) value).shortValue();
+            } else if (value instanceof Integer && type == Byte.class) {
+                return ((Integer) value).byteValue();
+            } else if (value instanceof Double && type == Float.class) {
+                return ((Double) value).floatValue();
+            }
+            throw new DAOException("Invalid cursor: " + attribute + " is not a " + type.getSimpleName());
+        }
+    }
+
+    /**
+     * Resolve the type and the nullability of the sort keys from the metamodel, a path through an optional
+     * association may be null.
+     *
+     * @param keys the sort keys
+     * @return the keys
+     * @throws DAOException if a key is not a single valued attribute path of the entity
+     */
+    private KeysetKey[] getKeysetKeys(List<SortOrder> keys) throws DAOException {
+        KeysetKey[] keysetKeys = new KeysetKey[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            String attribute = keys.get(i).getAttribute();
+            ManagedType<?> type = getMetaModel().managedType(getPersistentClass());
+            boolean nullable = false;
+            Class<?> javaType = null;
+            for (String name : attribute.split("\\.")) {
+                if (type == null) {
+                    throw new DAOException("Invalid keyset sort attribute: " + attribute);
+                }
+                Attribute<?, ?> member;
+                try {
+                    member = type.getAttribute(name);
+                } catch (IllegalArgumentException e) {
+                    throw new DAOException("Invalid keyset sort attribute: " + attribute, e);
+                }
+                if (member.isCollection()) {
+                    throw new DAOException("Invalid keyset sort attribute: " + attribute);
+                }
+                SingularAttribute<?, ?> singular = (SingularAttribute<?, ?>) member;
+                nullable = nullable || (singular.isOptional() && !singular.isId());
+                javaType = singular.getJavaType();
+                type = singular.getType() instanceof ManagedType ? (ManagedType<?>) singular.getType() : null;
+            }
+            keysetKeys[i] = new KeysetKey(attribute, box(javaType), nullable);
+        }
+        return keysetKeys;
+    }
+
+    private static Class<?> box(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        } else if (type == long.class) {
+            return Long.class;
+        } else if (type == int.class) {
+            return Integer.class;
+        } else if (type == short.class) {
+            return Short.class;
+        } else if (type == byte.class) {
+            return Byte.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == float.class) {
+            return Float.class;
+        }
+        return Character.class;
+    }
+
+    /**
+     * Build the predicate selecting the rows after the given key values, e.g. for <code>a asc, id asc</code>:
+     * <code>e.a &gt;= ? and (e.a &gt; ? or (e.a = ? and e.id &gt; ?))</code>. The leading range condition on the first
+     * key lets the database seek the index instead of scanning from the start.
+     * <p/>
+     * Null values follow the default order of PostgreSQL, after the others in ascending order and before them in
+     * descending order, so a nullable key compares with <code>is null</code> branches, e.g. for a nullable
+     * <code>a asc</code> after a value: <code>(e.a &gt; ? or e.a is null)</code>, and after a null:
+     * <code>e.a is null and e.id &gt; ?</code>.
+     *
+     * @param keys       the sort keys
+     * @param keyTypes   the types and nullability of the sort keys
+     * @param values     the key values of the last row of the previous page
+     * @param parameters the query parameters the key values are appended to
+     * @return the predicate
+     */
+    private String getSeekPredicate(List<SortOrder> keys, KeysetKey[] keyTypes, Object[] values,
+                                    List<Object> parameters) {
+        StringBuilder predicate = new StringBuilder("(");
+        String first = "e." + keys.get(0).getAttribute();
+        if (values[0] == null) {
+            // After a null in descending order every value follows
+            if (keys.get(0).isAscending()) {
+                predicate.append(first).append(" is null and ");
+            }
+        } else if (keys.get(0).isAscending()) {
+            predicate.append(keyTypes[0].nullable ? "(" + first + " >= ? or " + first + " is null)" : first + " >= ?")
+                    .append(" and ");
+            parameters.add(values[0]);
+        } else {
+            predicate.append(first).append(" <= ? and ");
+            parameters.add(values[0]);
+        }
+        predicate.append("(");
+        boolean or = false;
+        for (int i = 0; i < keys.size(); i++) {
+            String after = getAfterCondition(keys.get(i), keyTypes[i], values[i]);
+            // Nothing follows a null in ascending order
+            if (after == null) {
+                continue;
+            }
+            predicate.append(or ? " or (" : "(");
+            or = true;
+            for (int j = 0; j < i; j++) {
+                predicate.append("e.").append(keys.get(j).getAttribute());
+                if (values[j] == null) {
+                    predicate.append(" is null and ");
+                } else {
+                    predicate.append(" = ? and ");
+                    parameters.add(values[j]);
+                }
+            }
+            predicate.append(after).append(")");
+            if (values[i] != null) {
+                parameters.add(values[i]);
+            }
+        }
+        return predicate.append("))").toString();
+    }
+
+    /**
+     * Return the condition selecting the values of a key after the given one
+     *
+     * @return the condition, with a parameter for a non null value, or null if no value follows
+     */
+    private static String getAfterCondition(SortOrder key, KeysetKey keyType, Object value) {
+        String path = "e." + key.getAttribute();
+        if (value == null) {
+            return key.isAscending() ? null : path + " is not null";
+        } else if (key.isAscending()) {
+            return keyType.nullable ? "(" + path + " > ? or " + path + " is null)" : path + " > ?";
+        }
+        return path + " < ?";
+    }
+
     /**
      * (non-Javadoc)
      *
@@ -248,76 +1020,195 @@ public abstract class BaseDao<T> implements IDao<T> {
     /**
      * (non-Javadoc)
      *
-     * @see kendoui.dao.IDao#merge(Object)
+     * @see kendoui.dao.IDao#persistAll(java.util.Collection)
      */
     @Override
-    @Deprecated
-    public T merge(T entity) {
-        return merge(entity, null);
+    public BatchResult<T> persistAll(Collection<T> entities) {
+        return writeAll(entities, false);
     }
 
     /**
-     * Get version field from class
+     * (non-Javadoc)
      *
-     * @param clazz Entity class
-     * @return
+     * @see kendoui.dao.IDao#allocateIds(int)
+     */
+    @Override
+    public long[] allocateIds(int count) throws DAOException {
+        SessionImplementor session = (SessionImplementor) getSession();
+        IdentifierGenerator generator = session.getFactory().getIdentifierGenerator(getPersistentClass().getName());
+        if (generator == null || generator instanceof Assigned) {
+            throw new DAOException("The ids of " + getEntityName() + " are not generated");
+        }
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = ((Number) generator.generate(session, null)).longValue();
+        }
+        return ids;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#mergeAll(java.util.Collection)
      */
-    private Field getVersionField(Class<T> clazz) {
-        Field[] fields = clazz.getDeclaredFields();
-        for (Field field : fields) {
-            Annotation[] annotations = field.getAnnotations();
-            for (Annotation annotation : annotations) {
-                if (annotation instanceof Version) {
-                    return field;
+    @Override
+    public BatchResult<T> mergeAll(Collection<T> entities) {
+        return writeAll(entities, true);
+    }
+
+    /**
+     * Persist or merge the entities batch by batch, as many rows per batch as <code>hibernate.jdbc.batch_size</code>.
+     * The pending changes of the session are flushed first. Each batch is written through the Hibernate session, whose
+     * failures do not mark the transaction rollback-only, inside a savepoint: the batch is flushed as JDBC batches and
+     * the persistence context cleared after it. A batch failing is rolled back to its savepoint and its rows written
+     * again one by one, so only the rows failing on their own are reported failed and the rows reported succeeded are
+     * committed with the transaction.
+     *
+     * @param entities entity instances
+     * @param merge    true to merge, false to persist
+     * @return the per-row outcomes
+     */
+    private BatchResult<T> writeAll(Collection<T> entities, boolean merge) {
+        entityManager.flush();
+        Session session = getSession();
+        int batchSize = Math.max(1, ((SessionFactoryImplementor) session.getSessionFactory()).getSettings()
+                .getJdbcBatchSize());
+        List<BatchResult.Outcome<T>> outcomes = new ArrayList<BatchResult.Outcome<T>>(entities.size());
+        List<T> batch = new ArrayList<T>(batchSize);
+        Iterator<T> iterator = entities.iterator();
+        while (iterator.hasNext()) {
+            batch.clear();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                batch.add(iterator.next());
+            }
+            int start = outcomes.size();
+            List<T> written = writeBatch(session, batch, merge);
+            if (written != null) {
+                for (int i = 0; i < batch.size(); i++) {
+                    outcomes.add(new BatchResult.Outcome<T>(start + i, written.get(i), BatchResult.Status.SUCCEEDED,
+                            null));
+                }
+                continue;
+            }
+            LOG.warn("Writing the batch starting at row {} failed, writing its rows one by one", start);
+            for (T entity : batch) {
+                int index = outcomes.size();
+                try {
+                    written = writeBatch(session, Collections.singletonList(entity), merge);
+                } catch (HibernateException e) {
+                    outcomes.add(new BatchResult.Outcome<T>(index, entity, BatchResult.Status.FAILED, e));
+                    continue;
                 }
+                outcomes.add(new BatchResult.Outcome<T>(index, written.get(0), BatchResult.Status.SUCCEEDED, null));
             }
         }
-        return null;
+        return new BatchResult<T>(outcomes);
     }
 
     /**
-     * Create a new entity instance
+     * Write a batch inside a savepoint, rolled back with the state the failed writes left on the entities when the
+     * batch fails
      *
-     * @param entity
-     * @return
+     * @param session the session
+     * @param batch   entity instances
+     * @param merge   true to merge, false to persist
+     * @return the written instances, or null if a batch of several rows failed
+     * @throws HibernateException if a batch of one row failed
      */
-    private T createEntityInstance(T entity) {
-        T obj = null;
+    private List<T> writeBatch(Session session, List<T> batch, boolean merge) {
+        AbstractEntityPersister persister = getPersister();
+        Serializable[] ids = new Serializable[batch.size()];
+        Object[] versions = new Object[batch.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = persister.getIdentifier(batch.get(i), EntityMode.POJO);
+            versions[i] = persister.isVersioned() ? persister.getVersion(batch.get(i), EntityMode.POJO) : null;
+        }
+        final Savepoint[] savepoint = new Savepoint[1];
+        session.doWork(new Work() {
+            @Override
+            public void execute(Connection connection) throws SQLException {
+                savepoint[0] = connection.setSavepoint();
+            }
+        });
         try {
-            obj = (T) Class.forName(entity.getClass().getName()).newInstance();
-        } catch (InstantiationException e) {
-            LOG.error("Instantiation error: {}", e.getMessage());
-        } catch (IllegalAccessException e) {
-            LOG.error("Illegal access error: {}", e.getMessage());
-        } catch (ClassNotFoundException e) {
-            LOG.error("Class not found, class name is: {}", entity.getClass().getName());
+            List<T> written = new ArrayList<T>(batch.size());
+            if (merge) {
+                loadBatch(batch);
+            }
+            for (T entity : batch) {
+                if (merge) {
+                    written.add((T) session.merge(entity));
+                } else {
+                    session.persist(entity);
+                    written.add(entity);
+                }
+            }
+            session.flush();
+            session.clear();
+            session.doWork(new Work() {
+                @Override
+                public void execute(Connection connection) throws SQLException {
+                    connection.releaseSavepoint(savepoint[0]);
+                }
+            });
+            return written;
+        } catch (HibernateException e) {
+            ((SessionImplementor) session).getBatcher().abortBatch(null);
+            session.clear();
+            session.doWork(new Work() {
+                @Override
+                public void execute(Connection connection) throws SQLException {
+                    connection.rollback(savepoint[0]);
+                }
+            });
+            // The ids and versions a persist assigned belong to rows rolled back
+            for (int i = 0; i < ids.length; i++) {
+                persister.setIdentifier(batch.get(i), ids[i], EntityMode.POJO);
+                if (persister.isVersioned()) {
+                    persister.setPropertyValue(batch.get(i), persister.getVersionProperty(), versions[i],
+                            EntityMode.POJO);
+                }
+            }
+            if (batch.size() == 1) {
+                throw e;
+            }
+            LOG.debug("Batch failed: {}", e.getMessage());
+            return null;
         }
-        return obj == null ? entity : obj;
     }
 
     /**
-     * Set value for version field
+     * Load the persistent state of a batch of detached entities with one query, so merging them finds them in the
+     * persistence context instead of selecting them one by one.
      *
-     * @param obj         A new created entity instance
-     * @param lastUpdated
+     * @param batch detached entity instances
      */
-    private void setVersionField(T obj, Timestamp lastUpdated) throws IllegalArgumentException, SecurityException {
-        Field versionField = getVersionField((Class<T>) obj.getClass());
-        if (versionField == null) {
-            return;
+    private void loadBatch(List<T> batch) {
+        List<Object> ids = new ArrayList<Object>(batch.size());
+        for (T entity : batch) {
+            Object id = metadata.getId(entity);
+            if (id != null && !(id instanceof Number && ((Number) id).longValue() == 0)) {
+                ids.add(id);
+            }
         }
-        try {
-            Method versionSetMethod = obj.getClass().getMethod(parSetName(versionField.getName()), versionField.getType());
-            versionSetMethod.invoke(obj, lastUpdated);
-        } catch (NoSuchMethodException e) {
-            LOG.error("No such method error: {}", e.getMessage());
-        } catch (IllegalAccessException e) {
-            LOG.error("Illegal access error: {}", e.getMessage());
-        } catch (InvocationTargetException e) {
-            LOG.error("Invocation error: {}", e.getMessage());
+        if (!ids.isEmpty()) {
+            Query query = entityManager.createQuery(metadata.getIdsQuery());
+            query.setParameter("ids", ids);
+            query.getResultList();
         }
     }
 
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#merge(Object)
+     */
+    @Override
+    @Deprecated
+    public T merge(T entity) {
+        return merge(entity, null);
+    }
+
     /**
      * (non-Javadoc)
      *
@@ -329,8 +1220,25 @@ public abstract class BaseDao<T> implements IDao<T> {
         if (lastUpdated == null) {
             //TODO Need refactor in the future for catch concurrency edit exception
             obj = entity;
+        } else if (isDirectlyUpdatable(entity)) {
+            // One version checked UPDATE instead of the SELECT of the merge
+            AbstractEntityPersister persister = getPersister();
+            Object[] values = persister.getPropertyValues(entity, EntityMode.POJO);
+            boolean[] updated = new boolean[values.length];
+            for (int i = 0; i < updated.length; i++) {
+                updated[i] = isUpdatable(persister, i);
+            }
+            metadata.setVersion(entity, update(persister, (Serializable) metadata.getId(entity), lastUpdated, values,
+                    updated));
+            // The row now holds the state of the entity, so the entity is made managed as it is
+            Session session = getSession();
+            session.buildLockRequest(LockOptions.NONE).lock(entity);
+            if (hasUnwrittenState(persister)) {
+                session.refresh(entity);
+            }
+            return entity;
         } else {
-            obj = createEntityInstance(entity);
+            obj = metadata.newInstance();
         }
 
         // Merge if already in persistence context
@@ -340,11 +1248,220 @@ public abstract class BaseDao<T> implements IDao<T> {
 
         // Clone entity with last updated time from FE
         BeanUtils.copyProperties(entity, obj);
-        setVersionField(obj, lastUpdated);
+        metadata.setVersion(obj, lastUpdated);
 
         return entityManager.merge(obj);
     }
 
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#update(Long, java.sql.Timestamp, java.util.Map)
+     */
+    @Override
+    public Timestamp update(Long id, Timestamp lastUpdated, Map<String, ?> changes) {
+        AbstractEntityPersister persister = getPersister();
+        Object[] values = new Object[persister.getPropertyNames().length];
+        boolean[] updated = new boolean[values.length];
+        for (Map.Entry<String, ?> change : changes.entrySet()) {
+            int index;
+            try {
+                index = persister.getPropertyIndex(change.getKey());
+            } catch (HibernateException e) {
+                throw new IllegalArgumentException("Unknown attribute " + change.getKey() + " of " + getEntityName(), e);
+            }
+            if (!isUpdatable(persister, index)) {
+                throw new IllegalArgumentException("Attribute " + change.getKey() + " of " + getEntityName()
+                        + " can not be updated");
+            }
+            values[index] = change.getValue();
+            updated[index] = true;
+        }
+        return update(persister, id, lastUpdated, values, updated);
+    }
+
+    /**
+     * Whether a merge can run as a direct update: the entity is versioned, has an id, no instance of it is managed by
+     * the persistence context, whose state the update would bypass, and it has neither an owned collection nor a
+     * cascaded association, which the update would not write.
+     *
+     * @param entity entity instance
+     * @return true to update directly
+     */
+    private boolean isDirectlyUpdatable(T entity) {
+        AbstractEntityPersister persister = getPersister();
+        Serializable id = (Serializable) metadata.getId(entity);
+        if (!persister.isVersioned() || id == null || hasOwnedCollectionsOrCascades(persister)
+                || !Boolean.FALSE.equals(persister.getEntityMetamodel().getIdentifierProperty().getUnsavedValue()
+                .isUnsaved(id))) {
+            return false;
+        }
+        SessionImplementor session = (SessionImplementor) getSession();
+        return session.getPersistenceContext().getEntity(new EntityKey(id, persister,
+                EntityMode.POJO)) == null;
+    }
+
+    /**
+     * Whether the entity maps state a direct update does not write: a collection it owns or a cascaded association
+     *
+     * @param persister the persister of the entity
+     * @return true if the entity must be merged
+     */
+    private static boolean hasOwnedCollectionsOrCascades(AbstractEntityPersister persister) {
+        if (persister.hasCascades()) {
+            return true;
+        }
+        SessionFactoryImplementor factory = persister.getFactory();
+        for (Type type : persister.getPropertyTypes()) {
+            if (type.isCollectionType()
+                    && !factory.getCollectionPersister(((CollectionType) type).getRole()).isInverse()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the entity has state a direct update does not write, so must be read back after it
+     *
+     * @param persister the persister of the entity
+     * @return true if an attribute is not updatable or generated on update
+     */
+    private static boolean hasUnwrittenState(AbstractEntityPersister persister) {
+        if (persister.hasUpdateGeneratedProperties()) {
+            return true;
+        }
+        Type[] types = persister.getPropertyTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (i != persister.getVersionProperty() && !types[i].isCollectionType() && !isUpdatable(persister, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isUpdatable(AbstractEntityPersister persister, int index) {
+        return index != persister.getVersionProperty() && persister.getPropertyUpdateability()[index]
+                && !persister.getPropertyTypes()[index].isCollectionType()
+                && persister.getPropertyColumnNames(index).length > 0;
+    }
+
+    /**
+     * Update attributes of a row with one statement, checking and incrementing its version. The new version is the time
+     * of the database, like the set-based updates set it, and read back from the statement. The statement bypasses
+     * the persistence context: the entity is evicted from the second level cache, the cached queries on its table are
+     * invalidated and a managed instance is refreshed.
+     *
+     * @param persister   the persister of the entity
+     * @param id          the id of the row
+     * @param lastUpdated the version the row must still have
+     * @param values      the values of the attributes, by attribute index
+     * @param updated     whether each attribute is updated
+     * @return the new version
+     * @throws OptimisticLockException if the row was modified or removed since the version
+     */
+    private Timestamp update(final AbstractEntityPersister persister, final Serializable id,
+                             final Timestamp lastUpdated, final Object[] values, final boolean[] updated) {
+        if (!persister.isVersioned()) {
+            throw new IllegalArgumentException(getEntityName() + " is not versioned");
+        }
+        Session session = getSession();
+        final SessionImplementor sessionImplementor = (SessionImplementor) session;
+        final String sql = getUpdateStatement(persister, updated);
+        final Timestamp[] version = new Timestamp[1];
+        // The statement must see the pending changes of the session
+        session.flush();
+        session.doWork(new Work() {
+            @Override
+            public void execute(Connection connection) throws SQLException {
+                SessionFactoryImplementor factory = sessionImplementor.getFactory();
+                PreparedStatement statement = connection.prepareStatement(sql);
+                try {
+                    Type[] types = persister.getPropertyTypes();
+                    int index = 1;
+                    for (int i = 0; i < updated.length; i++) {
+                        if (updated[i]) {
+                            types[i].nullSafeSet(statement, values[i], index, sessionImplementor);
+                            index += types[i].getColumnSpan(factory);
+                        }
+                    }
+                    persister.getVersionType().nullSafeSet(statement, lastUpdated, index++, sessionImplementor);
+                    persister.getIdentifierType().nullSafeSet(statement, id, index, sessionImplementor);
+                    index += persister.getIdentifierType().getColumnSpan(factory);
+                    persister.getVersionType().nullSafeSet(statement, lastUpdated, index, sessionImplementor);
+                    ResultSet result = statement.executeQuery();
+                    if (result.next()) {
+                        version[0] = result.getTimestamp(1);
+                    }
+                    result.close();
+                } finally {
+                    statement.close();
+                }
+            }
+        });
+        if (version[0] == null) {
+            throw new OptimisticLockException(getEntityName() + " " + id + " was modified or removed since "
+                    + lastUpdated);
+        }
+
+        session.getSessionFactory().getCache().evictEntity(getPersistentClass(), id);
+        UpdateTimestampsCache timestamps = sessionImplementor.getFactory().getUpdateTimestampsCache();
+        if (timestamps != null) {
+            timestamps.invalidate(persister.getQuerySpaces());
+        }
+        Object managed = sessionImplementor.getPersistenceContext().getEntity(new EntityKey(id, persister,
+                EntityMode.POJO));
+        if (managed != null) {
+            session.refresh(managed);
+        }
+        return version[0];
+    }
+
+    /**
+     * Get the statement updating the given attributes and the version of a row of the given version. The statement of
+     * each set of attributes is built on first use and cached.
+     *
+     * @param persister the persister of the entity
+     * @param updated   whether each attribute is updated
+     * @return the SQL statement
+     */
+    private String getUpdateStatement(AbstractEntityPersister persister, boolean[] updated) {
+        StringBuilder key = new StringBuilder(updated.length);
+        for (boolean attribute : updated) {
+            key.append(attribute ? '1' : '0');
+        }
+        String sql = updateStatements.get(key.toString());
+        if (sql == null) {
+            StringBuilder statement = new StringBuilder("update ").append(persister.getTableName()).append(" set ");
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i]) {
+                    for (String column : persister.getPropertyColumnNames(i)) {
+                        statement.append(column).append(" = ?, ");
+                    }
+                }
+            }
+            // Two updates within the same transaction or millisecond must not leave the same version
+            statement.append(persister.getVersionColumnName())
+                    .append(" = greatest(now(), cast(? as timestamp) + interval '1 millisecond') where ");
+            for (String column : persister.getIdentifierColumnNames()) {
+                statement.append(column).append(" = ? and ");
+            }
+            statement.append(persister.getVersionColumnName()).append(" = ? returning ")
+                    .append(persister.getVersionColumnName());
+            sql = statement.toString();
+            String existing = updateStatements.putIfAbsent(key.toString(), sql);
+            if (existing != null) {
+                sql = existing;
+            }
+        }
+        return sql;
+    }
+
+    private AbstractEntityPersister getPersister() {
+        return (AbstractEntityPersister) ((SessionFactoryImplementor) getSession().getSessionFactory())
+                .getEntityPersister(getPersistentClass().getName());
+    }
+
     /**
      * Generate set method name base on field name
      *
@@ -755,7 +1872,7 @@ public abstract class BaseDao<T> implements IDao<T> {
      */
     @Override
     public T getLastRecord(Class<T> clazz) {
-        Query query = createQuery(MessageFormat.format("from {0} order by id desc", clazz.getSimpleName()));
+        Query query = createQuery(EntityMetadataRegistry.getMetadata(clazz).getLastRecordQuery());
         query.setMaxResults(1);
         try {
             return (T) query.getSingleResult();
@@ -771,12 +1888,7 @@ public abstract class BaseDao<T> implements IDao<T> {
      */
     @Override
     public String getEntityName() {
-        Class<?> clazz = getPersistentClass();
-        String entityName = clazz.getAnnotation(Entity.class).name();
-        if (entityName == null || StringUtils.EMPTY.equals(entityName)) {
-            entityName = clazz.getSimpleName();
-        }
-        return entityName;
+        return metadata.getEntityName();
     }
 
     /**
@@ -786,7 +1898,31 @@ public abstract class BaseDao<T> implements IDao<T> {
      */
     @Override
     public Class<T> getPersistentClass() {
-        ParameterizedType type = (ParameterizedType) getClass().getGenericSuperclass();
-        return (Class<T>) type.getActualTypeArguments()[0];
+        return metadata.getEntityClass();
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#getCacheStatistics()
+     */
+    @Override
+    public CacheStatistics getCacheStatistics() {
+        SessionFactoryImplementor factory = (SessionFactoryImplementor) getSession().getSessionFactory();
+        EntityPersister persister = factory.getEntityPersister(getPersistentClass().getName());
+        if (!persister.hasCache()) {
+            return null;
+        }
+        return CacheStatistics.of(factory, persister.getCacheAccessStrategy().getRegion().getName());
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IDao#getEntityMetadata()
+     */
+    @Override
+    public EntityMetadata<T> getEntityMetadata() {
+        return metadata;
     }
 }
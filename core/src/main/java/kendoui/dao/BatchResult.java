@@ -0,0 +1,153 @@
+package kendoui.dao;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The per-row outcomes of a bulk operation, in the order of the input collection.
+ */
+public class BatchResult<T> implements Serializable {
+
+    private static final long serialVersionUID = 6031658239014542215L;
+
+    /**
+     * Status of one row of a bulk operation.
+     */
+    public enum Status {
+        /**
+         * The row was written.
+         */
+        SUCCEEDED,
+        /**
+         * The row was rejected and not written, see {@link Outcome#getError()}.
+         */
+        FAILED
+    }
+
+    /**
+     * Outcome of one row of a bulk operation.
+     */
+    public static class Outcome<T> implements Serializable {
+
+        private static final long serialVersionUID = -1620981307762212870L;
+
+        private final int index;
+
+        private final T entity;
+
+        private final Status status;
+
+        private final Exception error;
+
+        /**
+         * Constructor of Outcome
+         *
+         * @param index  position of the row in the input collection
+         * @param entity the written entity, or the input entity if it failed
+         * @param status the status of the row
+         * @param error  the error of a failed row, null otherwise
+         */
+        public Outcome(int index, T entity, Status status, Exception error) {
+            this.index = index;
+            this.entity = entity;
+            this.status = status;
+            this.error = error;
+        }
+
+        /**
+         * Get the position of the row in the input collection
+         *
+         * @return the index {@link int}
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Get the entity of Outcome
+         *
+         * @return the entity
+         */
+        public T getEntity() {
+            return entity;
+        }
+
+        /**
+         * Get the status of Outcome
+         *
+         * @return the status {@link Status}
+         */
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Get the error of a failed row
+         *
+         * @return the error or null if the row succeeded
+         */
+        public Exception getError() {
+            return error;
+        }
+    }
+
+    private final List<Outcome<T>> outcomes;
+
+    /**
+     * Constructor of BatchResult
+     *
+     * @param outcomes the outcomes, in the order of the input collection
+     */
+    public BatchResult(List<Outcome<T>> outcomes) {
+        this.outcomes = Collections.unmodifiableList(outcomes);
+    }
+
+    /**
+     * Get the outcomes of all the rows
+     *
+     * @return the outcomes, in the order of the input collection
+     */
+    public List<Outcome<T>> getOutcomes() {
+        return outcomes;
+    }
+
+    /**
+     * Get the outcomes of the rows which were not written
+     *
+     * @return the failed outcomes
+     */
+    public List<Outcome<T>> getFailures() {
+        List<Outcome<T>> failures = new ArrayList<Outcome<T>>();
+        for (Outcome<T> outcome : outcomes) {
+            if (outcome.getStatus() != Status.SUCCEEDED) {
+                failures.add(outcome);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Get the number of rows written
+     *
+     * @return the success count
+     */
+    public int getSuccessCount() {
+        return outcomes.size() - getFailures().size();
+    }
+
+    /**
+     * Whether some rows were not written
+     *
+     * @return true if any row failed
+     */
+    public boolean hasFailures() {
+        for (Outcome<T> outcome : outcomes) {
+            if (outcome.getStatus() != Status.SUCCEEDED) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,142 @@
+package kendoui.dao;
+
+import java.io.Serializable;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+
+/**
+ * Snapshot of the statistics of one second level cache region.
+ */
+public class CacheStatistics implements Serializable {
+
+    private static final long serialVersionUID = 2905315637040870416L;
+
+    private final String region;
+
+    private final long hitCount;
+
+    private final long missCount;
+
+    private final long putCount;
+
+    private final long evictionCount;
+
+    private final long elementCount;
+
+    /**
+     * Constructor of CacheStatistics
+     *
+     * @param region        the region name
+     * @param hitCount      the number of entries found in the region
+     * @param missCount     the number of entries looked up and not found
+     * @param putCount      the number of entries stored
+     * @param evictionCount the number of entries evicted to keep the region within its size
+     * @param elementCount  the number of entries in memory
+     */
+    public CacheStatistics(String region, long hitCount, long missCount, long putCount, long evictionCount,
+                           long elementCount) {
+        this.region = region;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+        this.evictionCount = evictionCount;
+        this.elementCount = elementCount;
+    }
+
+    /**
+     * Read the statistics of a region from the session factory statistics and the cache manager.
+     *
+     * @param sessionFactory the session factory, with <code>hibernate.generate_statistics</code> enabled
+     * @param region         the region name
+     * @return the statistics, all zero if the region does not exist
+     */
+    public static CacheStatistics of(SessionFactory sessionFactory, String region) {
+        SecondLevelCacheStatistics statistics = sessionFactory.getStatistics().getSecondLevelCacheStatistics(region);
+        if (statistics == null) {
+            return new CacheStatistics(region, 0, 0, 0, 0, 0);
+        }
+        Ehcache cache = CacheManager.getInstance().getEhcache(region);
+        long evictionCount = cache == null ? 0 : cache.getStatistics().getEvictionCount();
+        return new CacheStatistics(region, statistics.getHitCount(), statistics.getMissCount(),
+                statistics.getPutCount(), evictionCount, statistics.getElementCountInMemory());
+    }
+
+    /**
+     * Get the region name
+     *
+     * @return the region
+     */
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * Get the number of entries found in the region
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Get the number of entries looked up and not found
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Get the number of entries stored
+     *
+     * @return the put count
+     */
+    public long getPutCount() {
+        return putCount;
+    }
+
+    /**
+     * Get the number of entries evicted to keep the region within its size
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Get the number of entries in memory
+     *
+     * @return the element count
+     */
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * Get the share of the lookups served by the region
+     *
+     * @return the hit ratio between 0 and 1, 0 if nothing was looked up
+     */
+    public double getHitRatio() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return region + " [hits=" + hitCount + ", misses=" + missCount + ", puts=" + putCount + ", evictions="
+                + evictionCount + ", elements=" + elementCount + "]";
+    }
+}
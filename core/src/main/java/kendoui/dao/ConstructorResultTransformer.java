@@ -0,0 +1,111 @@
+package kendoui.dao;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+
+import org.hibernate.HibernateException;
+import org.hibernate.transform.ResultTransformer;
+
+/**
+ * Build a read model from each row of a native query by calling its public constructor taking as many arguments as
+ * the row has columns, in column order. The numbers the driver returns are converted to the numeric type of the
+ * parameter, e.g. a <code>bigint</code> read as {@link BigInteger} to {@link Long}.
+ */
+class ConstructorResultTransformer implements ResultTransformer {
+
+    private static final long serialVersionUID = -3851286044523180153L;
+
+    private final Class<?> type;
+
+    private transient Constructor<?> constructor;
+
+    /**
+     * Constructor of ConstructorResultTransformer
+     *
+     * @param type the class of the read model
+     */
+    ConstructorResultTransformer(Class<?> type) {
+        this.type = type;
+    }
+
+    @Override
+    public Object transformTuple(Object[] tuple, String[] aliases) {
+        Constructor<?> target = getConstructor(tuple.length);
+        Class<?>[] parameterTypes = target.getParameterTypes();
+        Object[] args = new Object[tuple.length];
+        for (int i = 0; i < tuple.length; i++) {
+            args[i] = convert(tuple[i], parameterTypes[i]);
+        }
+        try {
+            return target.newInstance(args);
+        } catch (InstantiationException e) {
+            throw new HibernateException("Could not instantiate " + type.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new HibernateException("Could not instantiate " + type.getName(), e);
+        } catch (InvocationTargetException e) {
+            throw new HibernateException("Could not instantiate " + type.getName(), e.getCause());
+        } catch (IllegalArgumentException e) {
+            throw new HibernateException("The columns do not match the constructor of " + type.getName(), e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public List transformList(List collection) {
+        return collection;
+    }
+
+    private Constructor<?> getConstructor(int columns) {
+        Constructor<?> target = constructor;
+        if (target == null || target.getParameterTypes().length != columns) {
+            target = null;
+            for (Constructor<?> candidate : type.getConstructors()) {
+                if (candidate.getParameterTypes().length == columns) {
+                    target = candidate;
+                    break;
+                }
+            }
+            if (target == null) {
+                throw new HibernateException("No public constructor of " + type.getName() + " takes " + columns
+                        + " arguments");
+            }
+            constructor = target;
+        }
+        return target;
+    }
+
+    /**
+     * Convert a column value to the type of a constructor parameter
+     *
+     * @param value         the column value
+     * @param parameterType the parameter type
+     * @return the converted value
+     */
+    static Object convert(Object value, Class<?> parameterType) {
+        if (!(value instanceof Number) || parameterType.isInstance(value)) {
+            return value;
+        }
+        Number number = (Number) value;
+        if (parameterType == Long.class || parameterType == long.class) {
+            return number.longValue();
+        } else if (parameterType == Integer.class || parameterType == int.class) {
+            return number.intValue();
+        } else if (parameterType == Short.class || parameterType == short.class) {
+            return number.shortValue();
+        } else if (parameterType == Double.class || parameterType == double.class) {
+            return number.doubleValue();
+        } else if (parameterType == Float.class || parameterType == float.class) {
+            return number.floatValue();
+        } else if (parameterType == BigDecimal.class) {
+            return new BigDecimal(number.toString());
+        } else if (parameterType == BigInteger.class) {
+            return BigInteger.valueOf(number.longValue());
+        } else if (parameterType == Boolean.class || parameterType == boolean.class) {
+            return number.intValue() != 0;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,73 @@
+package kendoui.dao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small least recently used cache of query counts, each count expiring a fixed time after it was stored.
+ */
+final class CountCache {
+
+    private static final class Entry {
+
+        private final long count;
+
+        private final long expiresAt;
+
+        private Entry(long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final long ttlMillis;
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * Constructor of CountCache
+     *
+     * @param maxEntries the number of counts kept at most
+     * @param ttlMillis  how long a count is reused, in milliseconds
+     */
+    CountCache(final int maxEntries, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Return the count stored for the key if it has not expired
+     *
+     * @param key the query and its parameters
+     * @return the count or null if none is cached
+     */
+    synchronized Long get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.count;
+    }
+
+    /**
+     * Store the count of the key
+     *
+     * @param key   the query and its parameters
+     * @param count the count
+     */
+    synchronized void put(String key, long count) {
+        entries.put(key, new Entry(count, System.currentTimeMillis() + ttlMillis));
+    }
+}
@@ -0,0 +1,25 @@
+package kendoui.dao;
+
+/**
+ * How the total of a {@link Page} is counted.
+ */
+public enum CountMode {
+
+    /**
+     * Run the count query derived from the page query.
+     */
+    EXACT,
+
+    /**
+     * Use the PostgreSQL planner estimate of the table size (<code>pg_class.reltuples</code>) when the query selects
+     * the whole table and the table is large, count exactly otherwise. The total of a large table is then approximate
+     * but costs no scan.
+     */
+    ESTIMATE,
+
+    /**
+     * Count exactly, but reuse the count of the same query and parameters for a short time, so paging through a
+     * grid does not count again for every page.
+     */
+    CACHED
+}
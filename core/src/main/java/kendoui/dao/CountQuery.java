@@ -0,0 +1,82 @@
+package kendoui.dao;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Derives the count query of a page query in the Java Persistence query language: the select list is replaced by a
+ * count, the final order by clause is dropped and fetch joins become plain joins.
+ */
+final class CountQuery {
+
+    private static final Pattern SELECT = Pattern.compile("^\\s*select\\s+(distinct\\s+)?(.+?)\\s+(from\\s.*)$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Pattern ORDER_BY = Pattern.compile("\\s+order\\s+by\\s[^)]*$", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern FETCH = Pattern.compile("\\bjoin\\s+fetch\\s", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern GROUP_BY = Pattern.compile("\\sgroup\\s+by\\s", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern UNFILTERED = Pattern.compile(
+            "^\\s*(select\\s+\\w+\\s+)?from\\s+[\\w.]+(\\s+(as\\s+)?(?!order\\b)\\w+)?(\\s+order\\s+by\\s.*)?\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private CountQuery() {
+    }
+
+    /**
+     * Derive the count query of the given query.
+     *
+     * @param query a Java Persistence query string
+     * @return the count query, taking the same parameters
+     * @throws IllegalArgumentException if the query is grouped, its rows can not be counted with one aggregate
+     */
+    static String derive(String query) {
+        if (GROUP_BY.matcher(query).find()) {
+            throw new IllegalArgumentException("Can not derive a count query from a grouped query: " + query);
+        }
+        String body = FETCH.matcher(ORDER_BY.matcher(query).replaceFirst("")).replaceAll("join ");
+        Matcher select = SELECT.matcher(body);
+        if (!select.matches()) {
+            return "select count(*) " + body.trim();
+        }
+        if (select.group(1) == null) {
+            return "select count(*) " + select.group(3);
+        }
+        String item = firstItem(select.group(2));
+        // Hibernate does not parse count(distinct (x))
+        if (item.startsWith("(") && item.endsWith(")")) {
+            item = item.substring(1, item.length() - 1).trim();
+        }
+        return "select count(distinct " + item + ") " + select.group(3);
+    }
+
+    /**
+     * Whether the query selects every row of one entity, with neither join nor condition.
+     *
+     * @param query a Java Persistence query string
+     * @return true if the query is unfiltered
+     */
+    static boolean isUnfiltered(String query) {
+        return UNFILTERED.matcher(query).matches();
+    }
+
+    /**
+     * Return the first item of a select list, ignoring the commas nested in parentheses.
+     */
+    private static String firstItem(String selectList) {
+        int depth = 0;
+        for (int i = 0; i < selectList.length(); i++) {
+            char c = selectList.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                return selectList.substring(0, i).trim();
+            }
+        }
+        return selectList.trim();
+    }
+}
@@ -0,0 +1,372 @@
+package kendoui.dao;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import kendoui.utils.LatencyHistogram;
+
+/**
+ * The latency histograms, row and error counts of the DAO calls, keyed by the DAO class, the method and the
+ * normalized query of the call. Recording is lock free: once a key is known a call only reads two concurrent maps and
+ * updates atomic counters.
+ */
+public class DaoMetrics {
+
+    private static final double NANOS_PER_SECOND = 1000000000D;
+
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    private static final int MAX_QUERY_LENGTH = 160;
+
+    // Queries built with literals would grow the caches without bound, past this size they are normalized on each call
+    private static final int MAX_QUERIES = 1000;
+
+    /**
+     * The metrics of one DAO method called with one query.
+     */
+    public static final class Metric {
+
+        private final String dao;
+
+        private final String method;
+
+        private final String query;
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private final AtomicLong rows = new AtomicLong();
+
+        private final AtomicLong errors = new AtomicLong();
+
+        Metric(String dao, String method, String query) {
+            this.dao = dao;
+            this.method = method;
+            this.query = query;
+        }
+
+        /**
+         * Get the simple name of the DAO class
+         *
+         * @return the DAO
+         */
+        public String getDao() {
+            return dao;
+        }
+
+        /**
+         * Get the name of the DAO method
+         *
+         * @return the method
+         */
+        public String getMethod() {
+            return method;
+        }
+
+        /**
+         * Get the normalized query, empty when the method takes none
+         *
+         * @return the query
+         */
+        public String getQuery() {
+            return query;
+        }
+
+        /**
+         * Get the latency histogram of the calls
+         *
+         * @return the histogram
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * Get the number of rows read or written by the calls
+         *
+         * @return the row count
+         */
+        public long getRows() {
+            return rows.get();
+        }
+
+        /**
+         * Get the number of calls which threw
+         *
+         * @return the error count
+         */
+        public long getErrors() {
+            return errors.get();
+        }
+    }
+
+    /**
+     * The metrics of one DAO method, by query.
+     */
+    private static final class MethodMetrics {
+
+        private final String dao;
+
+        private final String method;
+
+        private final ConcurrentMap<String, Metric> byQuery = new ConcurrentHashMap<String, Metric>();
+
+        MethodMetrics(String dao, String method) {
+            this.dao = dao;
+            this.method = method;
+        }
+
+        Metric get(String query) {
+            Metric metric = byQuery.get(query);
+            if (metric == null) {
+                String normalized = normalize(query);
+                if (byQuery.size() >= MAX_QUERIES) {
+                    query = normalized;
+                    metric = byQuery.get(query);
+                    if (metric != null) {
+                        return metric;
+                    }
+                }
+                // The same normalized query shares its metric whatever the raw query
+                Metric created = null;
+                for (Metric existing : byQuery.values()) {
+                    if (existing.query.equals(normalized)) {
+                        created = existing;
+                        break;
+                    }
+                }
+                if (created == null) {
+                    created = new Metric(dao, method, normalized);
+                }
+                metric = byQuery.putIfAbsent(query, created);
+                if (metric == null) {
+                    metric = created;
+                }
+            }
+            return metric;
+        }
+    }
+
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, MethodMetrics>> byDao =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<String, MethodMetrics>>();
+
+    /**
+     * Get the metric of a call, created on the first call
+     *
+     * @param daoClass the class of the DAO called
+     * @param method   the method called
+     * @param query    the query or named query passed to the method, null if it takes none
+     * @return the metric
+     */
+    public Metric getMetric(Class<?> daoClass, Method method, String query) {
+        ConcurrentMap<String, MethodMetrics> byMethod = byDao.get(daoClass);
+        if (byMethod == null) {
+            byDao.putIfAbsent(daoClass, new ConcurrentHashMap<String, MethodMetrics>());
+            byMethod = byDao.get(daoClass);
+        }
+        // Overloads share their metrics, like they share their labels
+        MethodMetrics methodMetrics = byMethod.get(method.getName());
+        if (methodMetrics == null) {
+            byMethod.putIfAbsent(method.getName(), new MethodMetrics(daoClass.getSimpleName(), method.getName()));
+            methodMetrics = byMethod.get(method.getName());
+        }
+        return methodMetrics.get(query == null ? "" : query);
+    }
+
+    /**
+     * Record a call which returned
+     *
+     * @param metric the metric of the call
+     * @param nanos  the duration of the call in nanoseconds
+     * @param result the result of the call, its rows are counted
+     */
+    public void recordSuccess(Metric metric, long nanos, Object result) {
+        metric.latency.record(nanos);
+        long rows = countRows(result);
+        if (rows > 0) {
+            metric.rows.addAndGet(rows);
+        }
+    }
+
+    /**
+     * Record a call which threw
+     *
+     * @param metric the metric of the call
+     * @param nanos  the duration of the call in nanoseconds
+     */
+    public void recordError(Metric metric, long nanos) {
+        metric.latency.record(nanos);
+        metric.errors.incrementAndGet();
+    }
+
+    /**
+     * Get the metrics of all the calls, sorted by DAO, method and query
+     *
+     * @return the metrics
+     */
+    public List<Metric> getMetrics() {
+        // Raw queries normalized alike share their metric
+        Set<Metric> unique = Collections.newSetFromMap(new IdentityHashMap<Metric, Boolean>());
+        for (ConcurrentMap<String, MethodMetrics> byMethod : byDao.values()) {
+            for (MethodMetrics methodMetrics : byMethod.values()) {
+                unique.addAll(methodMetrics.byQuery.values());
+            }
+        }
+        List<Metric> metrics = new ArrayList<Metric>(unique);
+        Collections.sort(metrics, new Comparator<Metric>() {
+            @Override
+            public int compare(Metric a, Metric b) {
+                int result = a.dao.compareTo(b.dao);
+                if (result == 0) {
+                    result = a.method.compareTo(b.method);
+                }
+                return result == 0 ? a.query.compareTo(b.query) : result;
+            }
+        });
+        return metrics;
+    }
+
+    /**
+     * Forget all the metrics
+     */
+    public void reset() {
+        byDao.clear();
+    }
+
+    /**
+     * Write the metrics in the Prometheus text exposition format: a summary of the latency in seconds with its
+     * p50/p99/p999, and counters of the rows and errors.
+     *
+     * @param out the buffer to write to
+     */
+    public void writePrometheus(StringBuilder out) {
+        List<Metric> metrics = getMetrics();
+        out.append("# HELP kendoui_dao_call_seconds Latency of the DAO calls\n");
+        out.append("# TYPE kendoui_dao_call_seconds summary\n");
+        for (Metric metric : metrics) {
+            String labels = labels(metric);
+            for (double quantile : QUANTILES) {
+                out.append("kendoui_dao_call_seconds{").append(labels).append(",quantile=\"").append(quantile)
+                        .append("\"} ").append(metric.latency.getQuantileMillis(quantile) / 1000).append('\n');
+            }
+            out.append("kendoui_dao_call_seconds_sum{").append(labels).append("} ")
+                    .append(metric.latency.getSumNanos() / NANOS_PER_SECOND).append('\n');
+            out.append("kendoui_dao_call_seconds_count{").append(labels).append("} ")
+                    .append(metric.latency.getCount()).append('\n');
+        }
+        out.append("# HELP kendoui_dao_rows_total Rows read or written by the DAO calls\n");
+        out.append("# TYPE kendoui_dao_rows_total counter\n");
+        for (Metric metric : metrics) {
+            out.append("kendoui_dao_rows_total{").append(labels(metric)).append("} ").append(metric.getRows())
+                    .append('\n');
+        }
+        out.append("# HELP kendoui_dao_errors_total DAO calls which threw\n");
+        out.append("# TYPE kendoui_dao_errors_total counter\n");
+        for (Metric metric : metrics) {
+            out.append("kendoui_dao_errors_total{").append(labels(metric)).append("} ").append(metric.getErrors())
+                    .append('\n');
+        }
+    }
+
+    private static String labels(Metric metric) {
+        return "dao=\"" + escape(metric.dao) + "\",method=\"" + escape(metric.method) + "\",query=\""
+                + escape(metric.query) + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Count the rows of the result of a DAO call: the size of a list or a page, the count of a stream or update, one
+     * for an entity.
+     *
+     * @param result the result
+     * @return the rows
+     */
+    static long countRows(Object result) {
+        if (result == null) {
+            return 0;
+        } else if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        } else if (result instanceof Page) {
+            return ((Page<?>) result).getRows().size();
+        } else if (result instanceof KeysetPage) {
+            return ((KeysetPage<?>) result).getRows().size();
+        } else if (result instanceof BatchResult) {
+            return ((BatchResult<?>) result).getSuccessCount();
+        } else if (result instanceof Number) {
+            return ((Number) result).longValue();
+        } else if (result instanceof long[]) {
+            return ((long[]) result).length;
+        }
+        return 1;
+    }
+
+    /**
+     * Normalize a query into its identity: whitespace collapsed, string and number literals replaced by
+     * <code>?</code>, cut to a length fit for a label.
+     *
+     * @param query the query
+     * @return the normalized query
+     */
+    static String normalize(String query) {
+        StringBuilder normalized = new StringBuilder(Math.min(query.length(), MAX_QUERY_LENGTH));
+        int length = query.length();
+        int i = 0;
+        while (i < length && normalized.length() < MAX_QUERY_LENGTH) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                while (i < length && Character.isWhitespace(query.charAt(i))) {
+                    i++;
+                }
+                if (normalized.length() > 0 && i < length) {
+                    normalized.append(' ');
+                }
+            } else if (c == '\'') {
+                i++;
+                while (i < length) {
+                    if (query.charAt(i) == '\'') {
+                        // A doubled quote is an escaped quote within the literal
+                        if (i + 1 < length && query.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                normalized.append('?');
+            } else if (Character.isDigit(c) && (i == 0 || !isIdentifierPart(query.charAt(i - 1)))) {
+                while (i < length && (Character.isDigit(query.charAt(i)) || query.charAt(i) == '.')) {
+                    i++;
+                }
+                normalized.append('?');
+            } else if (c == '?' || c == ':') {
+                // Positional and named parameters are kept as they are
+                normalized.append(c);
+                i++;
+                while (i < length && isIdentifierPart(query.charAt(i))) {
+                    normalized.append(query.charAt(i++));
+                }
+            } else {
+                normalized.append(c);
+                i++;
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+    }
+}
@@ -0,0 +1,62 @@
+package kendoui.dao;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+
+/**
+ * Time the data access methods of the DAOs it advises into {@link DaoMetrics}. The methods only handing out the
+ * entity manager, its queries or the DAO settings are not timed.
+ */
+public class DaoMetricsInterceptor implements MethodInterceptor {
+
+    private static final Set<String> UNTIMED = new HashSet<String>(Arrays.asList("getMetaModel",
+            "getCriteriaBuilder", "getEntityManagerFactory", "getTransaction", "isOpen", "close", "unwrap",
+            "joinTransaction", "createNativeQuery", "createNamedQuery", "createTypedQueryWithType", "createTypedQuery",
+            "createQuery", "getProperties", "setProperty", "getLockMode", "getFlushMode", "setFlushMode", "contains",
+            "detach", "getPersistentClass", "getCacheStatistics", "getEntityMetadata", "setEntityManager",
+            "getEntityName"));
+
+    private DaoMetrics metrics;
+
+    /**
+     * Set the metrics the calls are recorded in
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(DaoMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.aopalliance.intercept.MethodInterceptor#invoke(org.aopalliance.intercept.MethodInvocation)
+     */
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if (UNTIMED.contains(method.getName()) || AopUtils.isToStringMethod(method)
+                || AopUtils.isEqualsMethod(method) || AopUtils.isHashCodeMethod(method)) {
+            return invocation.proceed();
+        }
+        Object[] args = invocation.getArguments();
+        String query = args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+        DaoMetrics.Metric metric = metrics.getMetric(invocation.getThis().getClass(), method, query);
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            metrics.recordError(metric, System.nanoTime() - start);
+            throw e;
+        }
+        metrics.recordSuccess(metric, System.nanoTime() - start, result);
+        return result;
+    }
+}
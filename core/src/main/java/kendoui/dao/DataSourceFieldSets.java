@@ -0,0 +1,32 @@
+package kendoui.dao;
+
+/**
+ * The fields the grids of the screens filter and sort on, each goes with the entity its grid queries.
+ */
+public final class DataSourceFieldSets {
+
+    /**
+     * The category grid, on {@link kendoui.model.Category}.
+     */
+    public static final DataSourceFields CATEGORY_GRID = new DataSourceFields.Builder("categoryGrid").field("id")
+            .field("name", "name.text").field("description", "description.text").field("inUse")
+            .field("lastUpdated").build();
+
+    /**
+     * The point of sale grid, on {@link kendoui.model.PointOfSale}.
+     */
+    public static final DataSourceFields POINT_OF_SALE_GRID = new DataSourceFields.Builder("pointOfSaleGrid")
+            .field("id").field("name").field("inUse").field("lastUpdated").build();
+
+    /**
+     * The point of sale category grid, on {@link kendoui.model.PointOfSaleCategory}.
+     */
+    public static final DataSourceFields POINT_OF_SALE_CATEGORY_GRID = new DataSourceFields.Builder(
+            "pointOfSaleCategoryGrid").field("id").field("pointOfSaleOrder").field("posId", "pointOfSale.id")
+            .field("posName", "pointOfSale.name").field("categoryId", "category.id")
+            .field("categoryName", "category.name.text").field("categoryInUse", "category.inUse")
+            .field("lastUpdated").build();
+
+    private DataSourceFieldSets() {
+    }
+}
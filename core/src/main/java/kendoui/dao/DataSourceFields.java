@@ -0,0 +1,115 @@
+package kendoui.dao;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The fields a screen lets a Kendo UI DataSource filter and sort on, each mapped to an attribute path of the queried
+ * entity, e.g. <code>posName</code> to <code>pointOfSale.name</code>. A request on any other field is refused, so a
+ * client can not filter or sort on an attribute the screen does not show nor make the database sort on an unindexed
+ * column it was not meant to.
+ * <p/>
+ * A path navigates single valued associations only, each association is left joined once whatever the number of
+ * conditions on it.
+ */
+public final class DataSourceFields {
+
+    private final String name;
+
+    private final Map<String, String> paths;
+
+    private DataSourceFields(String name, Map<String, String> paths) {
+        this.name = name;
+        this.paths = Collections.unmodifiableMap(new LinkedHashMap<String, String>(paths));
+    }
+
+    /**
+     * Get the name of the fields
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the attribute paths, by field name
+     *
+     * @return the paths
+     */
+    public Map<String, String> getPaths() {
+        return paths;
+    }
+
+    /**
+     * Return the attribute path of a field
+     *
+     * @param field the field name of the DataSource
+     * @return the attribute path
+     * @throws IllegalArgumentException if the field is not exposed
+     */
+    public String getPath(String field) {
+        String path = paths.get(field);
+        if (path == null) {
+            throw new IllegalArgumentException("Unknown field of " + name + ": " + field);
+        }
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Builder of immutable DataSource fields.
+     */
+    public static final class Builder {
+
+        private final String name;
+
+        private final Map<String, String> paths = new LinkedHashMap<String, String>();
+
+        /**
+         * Constructor of Builder
+         *
+         * @param name the name of the fields
+         */
+        public Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Expose an attribute under its own name
+         *
+         * @param attribute the attribute name of the entity
+         * @return this builder
+         */
+        public Builder field(String attribute) {
+            return field(attribute, attribute);
+        }
+
+        /**
+         * Expose an attribute path under a field name
+         *
+         * @param field the field name of the DataSource
+         * @param path  the attribute path, e.g. <code>pointOfSale.name</code>
+         * @return this builder
+         * @throws IllegalArgumentException if the path is not a valid attribute path
+         */
+        public Builder field(String field, String path) {
+            paths.put(field, new SortOrder(path, true).getAttribute());
+            return this;
+        }
+
+        /**
+         * Build the fields
+         *
+         * @return the DataSource fields
+         */
+        public DataSourceFields build() {
+            return new DataSourceFields(name, paths);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package kendoui.dao;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The header of a group of a Kendo UI DataSource with server grouping: the value of the group, its number of rows and
+ * its aggregates by field then aggregate name, e.g. <code>{lastUpdated: {max: ...}}</code>. The rows of the group are
+ * not loaded with it, they are paged on demand by filtering on the value of the group.
+ */
+public class DataSourceGroup implements Serializable {
+
+    private static final long serialVersionUID = -1536431284734152718L;
+
+    private final String field;
+
+    private final Object value;
+
+    private final long count;
+
+    private final Map<String, Map<String, Object>> aggregates;
+
+    private final boolean subgroups;
+
+    /**
+     * Constructor of DataSourceGroup
+     *
+     * @param field      the field grouped on
+     * @param value      the value of the group, may be null
+     * @param count      the number of rows of the group
+     * @param aggregates the aggregates of the group, by field then aggregate name
+     * @param subgroups  whether the rows of the group are grouped further
+     */
+    public DataSourceGroup(String field, Object value, long count, Map<String, Map<String, Object>> aggregates,
+                           boolean subgroups) {
+        this.field = field;
+        this.value = value;
+        this.count = count;
+        this.aggregates = Collections.unmodifiableMap(aggregates);
+        this.subgroups = subgroups;
+    }
+
+    /**
+     * Get the field grouped on
+     *
+     * @return the field name
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Get the value of the group
+     *
+     * @return the value, may be null
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Get the number of rows of the group
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the aggregates of the group, by field then aggregate name
+     *
+     * @return the aggregates
+     */
+    public Map<String, Map<String, Object>> getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * Whether the rows of the group are grouped further
+     *
+     * @return true if the request has a grouping after this one
+     */
+    public boolean hasSubgroups() {
+        return subgroups;
+    }
+
+    @Override
+    public String toString() {
+        return field + " " + value + " (" + count + ")";
+    }
+}
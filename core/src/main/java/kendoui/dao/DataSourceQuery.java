@@ -0,0 +1,734 @@
+package kendoui.dao;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+
+import kendoui.dao.DataSourceRequest.Aggregate;
+import kendoui.dao.DataSourceRequest.Filter;
+import kendoui.dao.DataSourceRequest.Group;
+
+/**
+ * A Kendo UI DataSource request compiled to criteria queries, shared by all the requests of the same shape: the same
+ * conditions on the same attributes combined the same way and sorted the same way, whatever the values compared to.
+ * <p/>
+ * The queries select the entity aliased <code>e</code>, left join the associations of the paths under fixed aliases and
+ * compare to parameter expressions, so they render to the same Java Persistence query string each time they run and
+ * Hibernate reuses the translation it cached for that string. A request only binds its own values.
+ * <p/>
+ * A grouped request lists its rows in group order and also compiles to a <code>group by</code> query of its outermost
+ * grouping, selecting the value, the row count and the aggregates of each group. The aggregates of a request compile
+ * to one query over all the rows of its filter.
+ */
+final class DataSourceQuery<T> {
+
+    // The operators comparing to the value of the filter, each one binds a parameter
+    private static final Set<String> VALUE_OPERATORS = new HashSet<String>(Arrays.asList("eq", "neq", "lt", "lte",
+            "gt", "gte", "startswith", "endswith", "contains", "doesnotcontain"));
+
+    private static final Set<String> TEXT_OPERATORS = new HashSet<String>(Arrays.asList("startswith", "endswith",
+            "contains", "doesnotcontain", "isempty", "isnotempty"));
+
+    private static final Set<Class<?>> VALUE_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>>asList(String.class,
+            Boolean.class, Long.class, Integer.class, Short.class, Byte.class, Double.class, Float.class,
+            BigDecimal.class, BigInteger.class));
+
+    private static final Map<Class<?>, Class<?>> BOXES = new HashMap<Class<?>, Class<?>>();
+
+    static {
+        BOXES.put(boolean.class, Boolean.class);
+        BOXES.put(long.class, Long.class);
+        BOXES.put(int.class, Integer.class);
+        BOXES.put(short.class, Short.class);
+        BOXES.put(byte.class, Byte.class);
+        BOXES.put(double.class, Double.class);
+        BOXES.put(float.class, Float.class);
+    }
+
+    // Date formats of the filter values: ISO 8601 and the string of a JavaScript date
+    private static final String[] DATE_FORMATS = {"yyyy-MM-dd'T'HH:mm:ss.SSSZ", "yyyy-MM-dd'T'HH:mm:ssZ",
+            "yyyy-MM-dd'T'HH:mm:ss.SSS", "yyyy-MM-dd'T'HH:mm:ss", "yyyy-MM-dd", "EEE MMM dd yyyy HH:mm:ss 'GMT'Z"};
+
+    private static final char ESCAPE = '\\';
+
+    /**
+     * The shape of a request, its cache key, and the values of its conditions in parameter order.
+     */
+    static final class Shape {
+
+        private final String key;
+
+        private final List<String> values;
+
+        private Shape(String key, List<String> values) {
+            this.key = key;
+            this.values = values;
+        }
+
+        /**
+         * Get the key of the shape: the attribute paths, operators and logic of the filter, the groups, the sort and
+         * the aggregates
+         *
+         * @return the key
+         */
+        String getKey() {
+            return key;
+        }
+
+        /**
+         * Get the values of the conditions comparing to one, in parameter order
+         *
+         * @return the values as sent
+         */
+        List<String> getValues() {
+            return values;
+        }
+    }
+
+    /**
+     * A parameter of the queries and how a filter value is converted to its bind value.
+     */
+    private static final class Parameter {
+
+        private final ParameterExpression<?> expression;
+
+        private final Class<?> type;
+
+        private final String operator;
+
+        private final boolean lowerCase;
+
+        private Parameter(ParameterExpression<?> expression, Class<?> type, String operator, boolean lowerCase) {
+            this.expression = expression;
+            this.type = type;
+            this.operator = operator;
+            this.lowerCase = lowerCase;
+        }
+
+        /**
+         * Get the parameter to bind a value to, the values of {@link #convert(String)} have its type
+         */
+        @SuppressWarnings("unchecked")
+        private javax.persistence.Parameter<Object> getBindable() {
+            return (javax.persistence.Parameter<Object>) expression;
+        }
+
+        private Object convert(String value) {
+            if (type == String.class) {
+                String text = lowerCase ? value.toLowerCase(Locale.ROOT) : value;
+                if ("startswith".equals(operator)) {
+                    return escape(text) + '%';
+                } else if ("endswith".equals(operator)) {
+                    return '%' + escape(text);
+                } else if ("contains".equals(operator) || "doesnotcontain".equals(operator)) {
+                    return '%' + escape(text) + '%';
+                }
+                return text;
+            }
+            return DataSourceQuery.convert(value.trim(), type);
+        }
+    }
+
+    /**
+     * The paths of a query root, each association left joined once under the alias <code>j</code> followed by its
+     * join number.
+     */
+    private static final class Paths {
+
+        private final Root<?> root;
+
+        private final Map<String, From<?, ?>> joins = new HashMap<String, From<?, ?>>();
+
+        private Paths(Root<?> root) {
+            this.root = root;
+        }
+
+        private Path<?> get(String attribute) {
+            String[] names = attribute.split("\\.");
+            From<?, ?> from = root;
+            String prefix = null;
+            for (int i = 0; i < names.length - 1; i++) {
+                prefix = prefix == null ? names[i] : prefix + '.' + names[i];
+                From<?, ?> join = joins.get(prefix);
+                if (join == null) {
+                    join = from.join(names[i], JoinType.LEFT);
+                    if (join instanceof javax.persistence.criteria.PluralJoin) {
+                        throw new IllegalArgumentException("Can not filter nor sort through the collection " + prefix);
+                    }
+                    join.alias("j" + joins.size());
+                    joins.put(prefix, join);
+                }
+                from = join;
+            }
+            Path<?> path = from.get(names[names.length - 1]);
+            if (!isValueType(box(path.getJavaType()))) {
+                throw new IllegalArgumentException("Can not filter nor sort on " + attribute);
+            }
+            return path;
+        }
+    }
+
+    private final CriteriaQuery<T> select;
+
+    private final CriteriaQuery<Long> count;
+
+    private final CriteriaQuery<Object[]> groupSelect;
+
+    private final CriteriaQuery<Object[]> groupCount;
+
+    private final CriteriaQuery<Object[]> aggregateSelect;
+
+    private final String key;
+
+    private final List<Parameter> parameters = new ArrayList<Parameter>();
+
+    private final boolean filtered;
+
+    /**
+     * Compile a request into the queries of its shape
+     *
+     * @param builder the criteria builder
+     * @param type    the queried entity class
+     * @param idName  the id attribute of the entity, the last sort key
+     * @param key     the key of the shape of the request
+     * @param request the request
+     * @param fields  the fields the request may filter and sort on
+     * @throws IllegalArgumentException if the request uses a field not exposed or can not apply to its attribute
+     */
+    DataSourceQuery(CriteriaBuilder builder, Class<T> type, String idName, String key, DataSourceRequest request,
+                    DataSourceFields fields) {
+        this.key = key;
+        Filter filter = request.getFilter();
+        filtered = filter != null;
+
+        select = builder.createQuery(type);
+        Root<T> root = select.from(type);
+        root.alias("e");
+        Paths paths = new Paths(root);
+        if (filtered) {
+            select.where(toPredicate(builder, filter, fields, paths, new int[1]));
+        }
+        List<Order> orders = new ArrayList<Order>();
+        boolean hasId = false;
+        // The rows of a group follow each other
+        for (Group group : request.getGroups()) {
+            Path<?> path = paths.get(fields.getPath(group.getField()));
+            orders.add(group.isAscending() ? builder.asc(path) : builder.desc(path));
+        }
+        for (SortOrder sortOrder : request.getSort()) {
+            String attribute = fields.getPath(sortOrder.getAttribute());
+            Path<?> path = paths.get(attribute);
+            orders.add(sortOrder.isAscending() ? builder.asc(path) : builder.desc(path));
+            hasId = hasId || attribute.equals(idName);
+        }
+        // The id makes the order total, so the rows do not move between pages
+        if (!hasId) {
+            orders.add(builder.asc(root.get(idName)));
+        }
+        select.select(root).orderBy(orders);
+
+        count = builder.createQuery(Long.class);
+        Root<T> countRoot = count.from(type);
+        countRoot.alias("e");
+        count.select(builder.count(countRoot));
+        if (filtered) {
+            count.where(toPredicate(builder, filter, fields, new Paths(countRoot), new int[1]));
+        }
+
+        if (request.getGroups().isEmpty()) {
+            groupSelect = null;
+            groupCount = null;
+        } else {
+            Group group = request.getGroups().get(0);
+            groupSelect = builder.createQuery(Object[].class);
+            Root<T> groupRoot = groupSelect.from(type);
+            groupRoot.alias("e");
+            Paths groupPaths = new Paths(groupRoot);
+            Path<?> path = groupPaths.get(fields.getPath(group.getField()));
+            List<Selection<?>> selections = new ArrayList<Selection<?>>();
+            selections.add(path);
+            selections.add(builder.count(groupRoot));
+            selections.addAll(toAggregates(builder, group.getAggregates(), fields, groupPaths, groupRoot));
+            groupSelect.multiselect(selections).groupBy(path)
+                    .orderBy(group.isAscending() ? builder.asc(path) : builder.desc(path));
+            if (filtered) {
+                groupSelect.where(toPredicate(builder, filter, fields, groupPaths, new int[1]));
+            }
+
+            // The distinct values and whether some rows have no value, which make a group too
+            groupCount = builder.createQuery(Object[].class);
+            Root<T> groupCountRoot = groupCount.from(type);
+            groupCountRoot.alias("e");
+            Paths groupCountPaths = new Paths(groupCountRoot);
+            path = groupCountPaths.get(fields.getPath(group.getField()));
+            groupCount.multiselect(builder.countDistinct(path), builder.count(groupCountRoot), builder.count(path));
+            if (filtered) {
+                groupCount.where(toPredicate(builder, filter, fields, groupCountPaths, new int[1]));
+            }
+        }
+
+        if (request.getAggregates().isEmpty()) {
+            aggregateSelect = null;
+        } else {
+            // The row count first, so the query selects more than one value whatever the aggregates
+            aggregateSelect = builder.createQuery(Object[].class);
+            Root<T> aggregateRoot = aggregateSelect.from(type);
+            aggregateRoot.alias("e");
+            Paths aggregatePaths = new Paths(aggregateRoot);
+            List<Selection<?>> selections = new ArrayList<Selection<?>>();
+            selections.add(builder.count(aggregateRoot));
+            selections.addAll(toAggregates(builder, request.getAggregates(), fields, aggregatePaths, aggregateRoot));
+            aggregateSelect.multiselect(selections);
+            if (filtered) {
+                aggregateSelect.where(toPredicate(builder, filter, fields, aggregatePaths, new int[1]));
+            }
+        }
+    }
+
+    private static List<Selection<?>> toAggregates(CriteriaBuilder builder, List<Aggregate> aggregates,
+                                                   DataSourceFields fields, Paths paths, Root<?> root) {
+        List<Selection<?>> selections = new ArrayList<Selection<?>>(aggregates.size());
+        for (Aggregate aggregate : aggregates) {
+            Expression<?> path = paths.get(fields.getPath(aggregate.getField()));
+            Class<?> type = box(path.getJavaType());
+            String name = aggregate.getAggregate();
+            if (("sum".equals(name) || "average".equals(name)) && !Number.class.isAssignableFrom(type)) {
+                throw new IllegalArgumentException("Aggregate " + name + " applies to numbers only: "
+                        + aggregate.getField());
+            } else if (type == Boolean.class && !"count".equals(name)) {
+                throw new IllegalArgumentException("Aggregate " + name + " does not apply to " + aggregate.getField());
+            }
+            if ("count".equals(name)) {
+                selections.add(builder.count(root));
+            } else if ("sum".equals(name)) {
+                selections.add(builder.sum(asNumber(path)));
+            } else if ("average".equals(name)) {
+                selections.add(builder.avg(asNumber(path)));
+            } else if ("min".equals(name)) {
+                selections.add(builder.least(asComparable(path)));
+            } else {
+                selections.add(builder.greatest(asComparable(path)));
+            }
+        }
+        return selections;
+    }
+
+    /**
+     * Return the aggregates selected by a row, by field then aggregate name
+     *
+     * @param aggregates the aggregates of the request
+     * @param row        the row
+     * @param first      the index of the first aggregate in the row
+     * @return the aggregates
+     */
+    static Map<String, Map<String, Object>> getAggregates(List<Aggregate> aggregates, Object[] row, int first) {
+        Map<String, Map<String, Object>> values = new LinkedHashMap<String, Map<String, Object>>();
+        for (int i = 0; i < aggregates.size(); i++) {
+            Aggregate aggregate = aggregates.get(i);
+            Map<String, Object> fieldValues = values.get(aggregate.getField());
+            if (fieldValues == null) {
+                fieldValues = new LinkedHashMap<String, Object>();
+                values.put(aggregate.getField(), fieldValues);
+            }
+            fieldValues.put(aggregate.getAggregate(), row[first + i]);
+        }
+        return values;
+    }
+
+    /**
+     * Return the shape of a request
+     *
+     * @param request the request
+     * @param fields  the fields the request may filter and sort on
+     * @return the shape
+     * @throws IllegalArgumentException if the request uses a field not exposed or a condition misses its value
+     */
+    static Shape getShape(DataSourceRequest request, DataSourceFields fields) {
+        StringBuilder key = new StringBuilder();
+        List<String> values = new ArrayList<String>();
+        if (request.getFilter() != null) {
+            appendFilter(request.getFilter(), fields, key, values);
+        }
+        key.append(" order by");
+        for (Group group : request.getGroups()) {
+            key.append(' ').append(fields.getPath(group.getField())).append(group.isAscending() ? " asc" : " desc");
+        }
+        key.append(';');
+        for (SortOrder sortOrder : request.getSort()) {
+            key.append(' ').append(fields.getPath(sortOrder.getAttribute()))
+                    .append(sortOrder.isAscending() ? " asc" : " desc");
+        }
+        if (!request.getGroups().isEmpty()) {
+            key.append(" group by ").append(fields.getPath(request.getGroups().get(0).getField()));
+            appendAggregates(request.getGroups().get(0).getAggregates(), fields, key);
+        }
+        if (!request.getAggregates().isEmpty()) {
+            key.append(" aggregate");
+            appendAggregates(request.getAggregates(), fields, key);
+        }
+        return new Shape(key.toString(), Collections.unmodifiableList(values));
+    }
+
+    private static void appendAggregates(List<Aggregate> aggregates, DataSourceFields fields, StringBuilder key) {
+        for (Aggregate aggregate : aggregates) {
+            key.append(' ').append(fields.getPath(aggregate.getField())).append(' ').append(aggregate.getAggregate());
+        }
+    }
+
+    private static void appendFilter(Filter filter, DataSourceFields fields, StringBuilder key, List<String> values) {
+        if (filter.isCombination()) {
+            key.append(filter.getLogic()).append('(');
+            for (int i = 0; i < filter.getFilters().size(); i++) {
+                key.append(i > 0 ? ", " : "");
+                appendFilter(filter.getFilters().get(i), fields, key, values);
+            }
+            key.append(')');
+        } else {
+            String operator = getOperator(filter);
+            key.append(fields.getPath(filter.getField())).append(' ').append(operator);
+            if (filter.isIgnoreCase()) {
+                key.append(" ignorecase");
+            }
+            if (VALUE_OPERATORS.contains(operator)) {
+                values.add(filter.getValue());
+            }
+        }
+    }
+
+    /**
+     * Return the operator of a condition, an equality to no value being a null check
+     */
+    private static String getOperator(Filter filter) {
+        String operator = filter.getOperator();
+        if (filter.getValue() == null) {
+            if ("eq".equals(operator)) {
+                return "isnull";
+            } else if ("neq".equals(operator)) {
+                return "isnotnull";
+            } else if (VALUE_OPERATORS.contains(operator)) {
+                throw new IllegalArgumentException("Missing value of filter " + filter);
+            }
+        }
+        return operator;
+    }
+
+    private Predicate toPredicate(CriteriaBuilder builder, Filter filter, DataSourceFields fields, Paths paths,
+                                  int[] next) {
+        if (filter.isCombination()) {
+            Predicate[] predicates = new Predicate[filter.getFilters().size()];
+            for (int i = 0; i < predicates.length; i++) {
+                predicates[i] = toPredicate(builder, filter.getFilters().get(i), fields, paths, next);
+            }
+            return "or".equals(filter.getLogic()) ? builder.or(predicates) : builder.and(predicates);
+        }
+        String operator = getOperator(filter);
+        Expression<?> path = paths.get(fields.getPath(filter.getField()));
+        Class<?> type = box(path.getJavaType());
+        if (TEXT_OPERATORS.contains(operator) && type != String.class) {
+            throw new IllegalArgumentException("Operator " + operator + " applies to text only: " + filter.getField());
+        }
+        if ("isnull".equals(operator)) {
+            return builder.isNull(path);
+        } else if ("isnotnull".equals(operator)) {
+            return builder.isNotNull(path);
+        } else if ("isempty".equals(operator)) {
+            return builder.equal(path, "");
+        } else if ("isnotempty".equals(operator)) {
+            return builder.notEqual(path, "");
+        }
+
+        boolean lowerCase = type == String.class && filter.isIgnoreCase();
+        Expression<?> value = lowerCase ? builder.lower(asString(path)) : path;
+        Expression<?> parameter = getParameter(builder, next[0]++, type, operator, lowerCase);
+        if ("eq".equals(operator)) {
+            return builder.equal(value, parameter);
+        } else if ("neq".equals(operator)) {
+            return builder.notEqual(value, parameter);
+        } else if ("lt".equals(operator)) {
+            return builder.lessThan(asComparable(value), asComparable(parameter));
+        } else if ("lte".equals(operator)) {
+            return builder.lessThanOrEqualTo(asComparable(value), asComparable(parameter));
+        } else if ("gt".equals(operator)) {
+            return builder.greaterThan(asComparable(value), asComparable(parameter));
+        } else if ("gte".equals(operator)) {
+            return builder.greaterThanOrEqualTo(asComparable(value), asComparable(parameter));
+        } else if ("doesnotcontain".equals(operator)) {
+            return builder.notLike(asString(value), asString(parameter), ESCAPE);
+        }
+        return builder.like(asString(value), asString(parameter), ESCAPE);
+    }
+
+    // The type of an attribute path is only known at run time. The casts below are checked by the callers: a filter
+    // or an aggregate on it is refused unless its boxed type fits, see toPredicate and toAggregates, and the
+    // attributes the DataSource fields map are basic types, all of them comparable.
+
+    @SuppressWarnings("unchecked")
+    private static Expression<Comparable<Object>> asComparable(Expression<?> expression) {
+        return (Expression<Comparable<Object>>) expression;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Expression<Number> asNumber(Expression<?> expression) {
+        return (Expression<Number>) expression;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Expression<String> asString(Expression<?> expression) {
+        return (Expression<String>) expression;
+    }
+
+    /**
+     * Return the parameter of the given number, the select and the count query share their parameters
+     */
+    private ParameterExpression<?> getParameter(CriteriaBuilder builder, int index, Class<?> type, String operator,
+                                                boolean lowerCase) {
+        if (index < parameters.size()) {
+            return parameters.get(index).expression;
+        }
+        Parameter parameter = new Parameter(builder.parameter(type), type, operator, lowerCase);
+        parameters.add(parameter);
+        return parameter.expression;
+    }
+
+    /**
+     * Get the key of the shape of the queries
+     *
+     * @return the key
+     */
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * Whether the request filters the rows
+     *
+     * @return true if the queries have a where clause
+     */
+    boolean isFiltered() {
+        return filtered;
+    }
+
+    /**
+     * Convert the values of a request of this shape to the bind values of the parameters
+     *
+     * @param values the values of the shape
+     * @return the bind values
+     * @throws IllegalArgumentException if a value does not convert to the type of its attribute
+     */
+    List<Object> convert(List<String> values) {
+        List<Object> converted = new ArrayList<Object>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            converted.add(parameters.get(i).convert(values.get(i)));
+        }
+        return converted;
+    }
+
+    /**
+     * Create the select query of the page bound to the given values
+     *
+     * @param entityManager the entity manager
+     * @param values        the bind values
+     * @return the query
+     */
+    TypedQuery<T> createSelect(EntityManager entityManager, List<Object> values) {
+        return bind(entityManager.createQuery(select), values);
+    }
+
+    /**
+     * Create the count query bound to the given values
+     *
+     * @param entityManager the entity manager
+     * @param values        the bind values
+     * @return the query
+     */
+    TypedQuery<Long> createCount(EntityManager entityManager, List<Object> values) {
+        return bind(entityManager.createQuery(count), values);
+    }
+
+    /**
+     * Create the query of the groups of the outermost grouping bound to the given values: the value, the row count and
+     * the aggregates of each group
+     *
+     * @param entityManager the entity manager
+     * @param values        the bind values
+     * @return the query
+     * @throws IllegalStateException if the request is not grouped
+     */
+    TypedQuery<Object[]> createGroupSelect(EntityManager entityManager, List<Object> values) {
+        if (groupSelect == null) {
+            throw new IllegalStateException("The request is not grouped");
+        }
+        return bind(entityManager.createQuery(groupSelect), values);
+    }
+
+    /**
+     * Create the query counting the groups of the outermost grouping bound to the given values: the count of distinct
+     * values, the count of rows and the count of rows with a value
+     *
+     * @param entityManager the entity manager
+     * @param values        the bind values
+     * @return the query
+     * @throws IllegalStateException if the request is not grouped
+     */
+    TypedQuery<Object[]> createGroupCount(EntityManager entityManager, List<Object> values) {
+        if (groupCount == null) {
+            throw new IllegalStateException("The request is not grouped");
+        }
+        return bind(entityManager.createQuery(groupCount), values);
+    }
+
+    /**
+     * Create the query of the aggregates of the request bound to the given values: the count of rows then the
+     * aggregates
+     *
+     * @param entityManager the entity manager
+     * @param values        the bind values
+     * @return the query
+     * @throws IllegalStateException if the request has no aggregate
+     */
+    TypedQuery<Object[]> createAggregateSelect(EntityManager entityManager, List<Object> values) {
+        if (aggregateSelect == null) {
+            throw new IllegalStateException("The request has no aggregate");
+        }
+        return bind(entityManager.createQuery(aggregateSelect), values);
+    }
+
+    private <X> TypedQuery<X> bind(TypedQuery<X> query, List<Object> values) {
+        for (int i = 0; i < values.size(); i++) {
+            query.setParameter(parameters.get(i).getBindable(), values.get(i));
+        }
+        return query;
+    }
+
+    private static Class<?> box(Class<?> type) {
+        Class<?> box = BOXES.get(type);
+        return box == null ? type : box;
+    }
+
+    private static boolean isValueType(Class<?> type) {
+        return VALUE_TYPES.contains(type) || Date.class.isAssignableFrom(type) || type.isEnum();
+    }
+
+    /**
+     * Escape the wildcards of a like pattern
+     */
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ESCAPE || c == '%' || c == '_') {
+                escaped.append(ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Convert a filter value to the type of its attribute
+     *
+     * @param value the value
+     * @param type  the boxed attribute type
+     * @return the converted value
+     * @throws IllegalArgumentException if the value does not convert
+     */
+    static Object convert(String value, Class<?> type) {
+        try {
+            if (type == Long.class) {
+                return Long.valueOf(value);
+            } else if (type == Integer.class) {
+                return Integer.valueOf(value);
+            } else if (type == Short.class) {
+                return Short.valueOf(value);
+            } else if (type == Byte.class) {
+                return Byte.valueOf(value);
+            } else if (type == Double.class) {
+                return Double.valueOf(value);
+            } else if (type == Float.class) {
+                return Float.valueOf(value);
+            } else if (type == BigDecimal.class) {
+                return new BigDecimal(value);
+            } else if (type == BigInteger.class) {
+                return new BigInteger(value);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + type.getSimpleName() + ": " + value, e);
+        }
+        if (type == Boolean.class) {
+            if (!"true".equals(value) && !"false".equals(value)) {
+                throw new IllegalArgumentException("Invalid Boolean: " + value);
+            }
+            return Boolean.valueOf(value);
+        } else if (type == java.sql.Timestamp.class) {
+            return new java.sql.Timestamp(parseTime(value));
+        } else if (type == java.sql.Date.class) {
+            return new java.sql.Date(parseTime(value));
+        } else if (Date.class.isAssignableFrom(type)) {
+            return new Date(parseTime(value));
+        } else if (type.isEnum()) {
+            for (Object constant : type.getEnumConstants()) {
+                if (((Enum<?>) constant).name().equals(value)) {
+                    return constant;
+                }
+            }
+            throw new IllegalArgumentException("Invalid " + type.getSimpleName() + ": " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Parse a date sent as milliseconds since the epoch, in ISO 8601 or as the string of a JavaScript date, a date
+     * without time zone being in the time zone of the server.
+     */
+    private static long parseTime(String value) {
+        if (value.matches("-?[0-9]{1,18}")) {
+            return Long.parseLong(value);
+        }
+        String text = value;
+        int comment = text.indexOf(" (");
+        if (comment > 0) {
+            text = text.substring(0, comment);
+        }
+        if (text.endsWith("Z")) {
+            text = text.substring(0, text.length() - 1) + "+0000";
+        } else if (text.matches(".*T.*[+-][0-9]{2}:[0-9]{2}")) {
+            text = text.substring(0, text.length() - 3) + text.substring(text.length() - 2);
+        }
+        for (String pattern : DATE_FORMATS) {
+            SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.ENGLISH);
+            format.setLenient(false);
+            ParsePosition position = new ParsePosition(0);
+            Date date = format.parse(text, position);
+            if (date != null && position.getIndex() == text.length()) {
+                return date.getTime();
+            }
+        }
+        throw new IllegalArgumentException("Invalid date: " + value);
+    }
+}
@@ -0,0 +1,523 @@
+package kendoui.dao;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import kendoui.utils.Constant;
+
+/**
+ * The filter, sort and page of a request of a Kendo UI DataSource with server filtering, sorting and paging, as sent
+ * by its default transport: form parameters such as <code>take=10&amp;skip=20&amp;sort[0][field]=name&amp;
+ * sort[0][dir]=asc&amp;filter[logic]=and&amp;filter[filters][0][field]=inUse&amp;filter[filters][0][operator]=eq&amp;
+ * filter[filters][0][value]=true</code>, with server grouping and aggregates <code>group[0][field]=inUse&amp;
+ * group[0][aggregates][0][field]=lastUpdated&amp;group[0][aggregates][0][aggregate]=max&amp;
+ * aggregate[0][field]=id&amp;aggregate[0][aggregate]=count</code>. The field names are only checked against the fields
+ * a screen exposes when the request is run, see {@link DataSourceFields}.
+ */
+public final class DataSourceRequest implements Serializable {
+
+    private static final long serialVersionUID = -3360930779062413017L;
+
+    /**
+     * The filter operators of the DataSource.
+     */
+    public static final Set<String> OPERATORS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("eq",
+            "neq", "lt", "lte", "gt", "gte", "startswith", "endswith", "contains", "doesnotcontain", "isnull",
+            "isnotnull", "isempty", "isnotempty")));
+
+    /**
+     * The aggregates of the DataSource.
+     */
+    public static final Set<String> AGGREGATES = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+            "count", "sum", "average", "min", "max")));
+
+    // Limits of a parsed filter, a request can not make the query arbitrarily large
+    private static final int MAX_FILTERS = 100;
+
+    private static final int MAX_DEPTH = 8;
+
+    private static final int MAX_SORTS = 10;
+
+    private static final int MAX_GROUPS = 5;
+
+    private static final int MAX_AGGREGATES = 20;
+
+    /**
+     * A filter of the request: either a condition on a field or a logical combination of filters.
+     */
+    public static final class Filter implements Serializable {
+
+        private static final long serialVersionUID = 8541090740366917418L;
+
+        private final String logic;
+
+        private final List<Filter> filters;
+
+        private final String field;
+
+        private final String operator;
+
+        private final String value;
+
+        private final boolean ignoreCase;
+
+        private Filter(String logic, List<Filter> filters, String field, String operator, String value,
+                       boolean ignoreCase) {
+            this.logic = logic;
+            this.filters = filters;
+            this.field = field;
+            this.operator = operator;
+            this.value = value;
+            this.ignoreCase = ignoreCase;
+        }
+
+        /**
+         * Create a condition on a field
+         *
+         * @param field      the field name
+         * @param operator   one of the {@link DataSourceRequest#OPERATORS}
+         * @param value      the value compared to, as sent, may be null
+         * @param ignoreCase whether text comparisons ignore the case
+         * @return the filter
+         * @throws IllegalArgumentException if the field is missing or the operator unknown
+         */
+        public static Filter condition(String field, String operator, String value, boolean ignoreCase) {
+            if (field == null || field.length() == 0) {
+                throw new IllegalArgumentException("Missing filter field");
+            }
+            if (!OPERATORS.contains(operator)) {
+                throw new IllegalArgumentException("Unknown filter operator: " + operator);
+            }
+            return new Filter(null, null, field, operator, value, ignoreCase);
+        }
+
+        /**
+         * Create a logical combination of filters
+         *
+         * @param logic   <code>and</code> or <code>or</code>
+         * @param filters the combined filters
+         * @return the filter
+         * @throws IllegalArgumentException if the logic is unknown
+         */
+        public static Filter combination(String logic, List<Filter> filters) {
+            if (!"and".equals(logic) && !"or".equals(logic)) {
+                throw new IllegalArgumentException("Unknown filter logic: " + logic);
+            }
+            return new Filter(logic, Collections.unmodifiableList(new ArrayList<Filter>(filters)), null, null, null,
+                    false);
+        }
+
+        /**
+         * Whether the filter combines other filters
+         *
+         * @return true for a combination, false for a condition
+         */
+        public boolean isCombination() {
+            return logic != null;
+        }
+
+        /**
+         * Get the logic of a combination
+         *
+         * @return <code>and</code> or <code>or</code>, null for a condition
+         */
+        public String getLogic() {
+            return logic;
+        }
+
+        /**
+         * Get the filters of a combination
+         *
+         * @return the filters, null for a condition
+         */
+        public List<Filter> getFilters() {
+            return filters;
+        }
+
+        /**
+         * Get the field of a condition
+         *
+         * @return the field name
+         */
+        public String getField() {
+            return field;
+        }
+
+        /**
+         * Get the operator of a condition
+         *
+         * @return the operator
+         */
+        public String getOperator() {
+            return operator;
+        }
+
+        /**
+         * Get the value of a condition, as sent
+         *
+         * @return the value, may be null
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Whether the text comparison of a condition ignores the case
+         *
+         * @return true to ignore the case
+         */
+        public boolean isIgnoreCase() {
+            return ignoreCase;
+        }
+
+        @Override
+        public String toString() {
+            if (isCombination()) {
+                StringBuilder text = new StringBuilder(logic).append('(');
+                for (int i = 0; i < filters.size(); i++) {
+                    text.append(i > 0 ? ", " : "").append(filters.get(i));
+                }
+                return text.append(')').toString();
+            }
+            return field + ' ' + operator + ' ' + value;
+        }
+    }
+
+    /**
+     * An aggregate of a field, e.g. <code>max</code> of <code>lastUpdated</code>.
+     */
+    public static final class Aggregate implements Serializable {
+
+        private static final long serialVersionUID = -6402771453932981529L;
+
+        private final String field;
+
+        private final String aggregate;
+
+        /**
+         * Constructor of Aggregate
+         *
+         * @param field     the field name
+         * @param aggregate one of the {@link DataSourceRequest#AGGREGATES}
+         * @throws IllegalArgumentException if the field is missing or the aggregate unknown
+         */
+        public Aggregate(String field, String aggregate) {
+            if (field == null || field.length() == 0) {
+                throw new IllegalArgumentException("Missing aggregate field");
+            }
+            if (!AGGREGATES.contains(aggregate)) {
+                throw new IllegalArgumentException("Unknown aggregate: " + aggregate);
+            }
+            this.field = field;
+            this.aggregate = aggregate;
+        }
+
+        /**
+         * Get the field aggregated
+         *
+         * @return the field name
+         */
+        public String getField() {
+            return field;
+        }
+
+        /**
+         * Get the aggregate
+         *
+         * @return the aggregate name
+         */
+        public String getAggregate() {
+            return aggregate;
+        }
+
+        @Override
+        public String toString() {
+            return field + ' ' + aggregate;
+        }
+    }
+
+    /**
+     * A grouping of the rows on a field, with the aggregates computed for each group.
+     */
+    public static final class Group implements Serializable {
+
+        private static final long serialVersionUID = 4319360181927433585L;
+
+        private final String field;
+
+        private final boolean ascending;
+
+        private final List<Aggregate> aggregates;
+
+        /**
+         * Constructor of Group
+         *
+         * @param field      the field name
+         * @param ascending  true to list the groups in ascending order
+         * @param aggregates the aggregates of each group, may be empty
+         * @throws IllegalArgumentException if the field is missing
+         */
+        public Group(String field, boolean ascending, List<Aggregate> aggregates) {
+            if (field == null || field.length() == 0) {
+                throw new IllegalArgumentException("Missing group field");
+            }
+            this.field = field;
+            this.ascending = ascending;
+            this.aggregates = Collections.unmodifiableList(new ArrayList<Aggregate>(aggregates));
+        }
+
+        /**
+         * Get the field grouped on
+         *
+         * @return the field name
+         */
+        public String getField() {
+            return field;
+        }
+
+        /**
+         * Whether the groups are in ascending order
+         *
+         * @return true for ascending order
+         */
+        public boolean isAscending() {
+            return ascending;
+        }
+
+        /**
+         * Get the aggregates of each group
+         *
+         * @return the aggregates
+         */
+        public List<Aggregate> getAggregates() {
+            return aggregates;
+        }
+
+        @Override
+        public String toString() {
+            return field + (ascending ? " asc" : " desc") + aggregates;
+        }
+    }
+
+    private final int skip;
+
+    private final int take;
+
+    private final List<SortOrder> sort;
+
+    private final Filter filter;
+
+    private final List<Group> groups;
+
+    private final List<Aggregate> aggregates;
+
+    /**
+     * Constructor of DataSourceRequest
+     *
+     * @param skip   the number of rows skipped
+     * @param take   the number of rows of the page, 0 for the default page size
+     * @param sort   the sort orders, may be empty
+     * @param filter the filter, null for none
+     */
+    public DataSourceRequest(int skip, int take, List<SortOrder> sort, Filter filter) {
+        this(skip, take, sort, filter, Collections.<Group>emptyList(), Collections.<Aggregate>emptyList());
+    }
+
+    /**
+     * Constructor of DataSourceRequest
+     *
+     * @param skip       the number of rows, or groups when grouped, skipped
+     * @param take       the number of rows, or groups when grouped, of the page, 0 for the default page size
+     * @param sort       the sort orders, may be empty
+     * @param filter     the filter, null for none
+     * @param groups     the groupings, outermost first, may be empty
+     * @param aggregates the aggregates of all the rows of the filter, may be empty
+     */
+    public DataSourceRequest(int skip, int take, List<SortOrder> sort, Filter filter, List<Group> groups,
+                             List<Aggregate> aggregates) {
+        if (skip < 0 || take < 0) {
+            throw new IllegalArgumentException("Invalid page: skip " + skip + ", take " + take);
+        }
+        this.skip = skip;
+        this.take = take;
+        this.sort = Collections.unmodifiableList(new ArrayList<SortOrder>(sort));
+        this.filter = filter;
+        this.groups = Collections.unmodifiableList(new ArrayList<Group>(groups));
+        this.aggregates = Collections.unmodifiableList(new ArrayList<Aggregate>(aggregates));
+    }
+
+    /**
+     * Parse the form parameters of a DataSource request, e.g. the parameter map of a servlet request. The page size
+     * is at most {@link Constant#MAX_PAGE_SIZE}.
+     *
+     * @param parameters the parameters, by name
+     * @return the request
+     * @throws IllegalArgumentException if a parameter is malformed
+     */
+    public static DataSourceRequest parse(Map<String, String[]> parameters) {
+        SortedMap<String, String[]> sorted = new TreeMap<String, String[]>(parameters);
+        int take = Math.min(parseInt(sorted, "take", parseInt(sorted, "pageSize", 0)), Constant.MAX_PAGE_SIZE);
+        int skip = parseInt(sorted, "skip", -1);
+        if (skip < 0) {
+            int page = parseInt(sorted, "page", 1);
+            long pageSkip = page > 0 ? (page - 1L) * take : 0L;
+            if (pageSkip > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid page: " + page);
+            }
+            skip = (int) pageSkip;
+        }
+
+        List<SortOrder> sort = new ArrayList<SortOrder>();
+        for (int i = 0; hasPrefix(sorted, "sort[" + i + "]["); i++) {
+            if (i == MAX_SORTS) {
+                throw new IllegalArgumentException("More than " + MAX_SORTS + " sort orders");
+            }
+            String dir = get(sorted, "sort[" + i + "][dir]");
+            if (dir != null && !"asc".equals(dir) && !"desc".equals(dir)) {
+                throw new IllegalArgumentException("Invalid sort direction: " + dir);
+            }
+            sort.add(new SortOrder(get(sorted, "sort[" + i + "][field]"), !"desc".equals(dir)));
+        }
+
+        Filter filter = null;
+        if (hasPrefix(sorted, "filter[")) {
+            filter = parseFilter(sorted, "filter", 0, new int[1]);
+        }
+
+        List<Group> groups = new ArrayList<Group>();
+        for (int i = 0; hasPrefix(sorted, "group[" + i + "]["); i++) {
+            if (i == MAX_GROUPS) {
+                throw new IllegalArgumentException("More than " + MAX_GROUPS + " groups");
+            }
+            String dir = get(sorted, "group[" + i + "][dir]");
+            if (dir != null && !"asc".equals(dir) && !"desc".equals(dir)) {
+                throw new IllegalArgumentException("Invalid group direction: " + dir);
+            }
+            groups.add(new Group(get(sorted, "group[" + i + "][field]"), !"desc".equals(dir),
+                    parseAggregates(sorted, "group[" + i + "][aggregates]")));
+        }
+        return new DataSourceRequest(skip, take, sort, filter, groups, parseAggregates(sorted, "aggregate"));
+    }
+
+    private static List<Aggregate> parseAggregates(SortedMap<String, String[]> parameters, String prefix) {
+        List<Aggregate> aggregates = new ArrayList<Aggregate>();
+        for (int i = 0; hasPrefix(parameters, prefix + "[" + i + "]["); i++) {
+            if (i == MAX_AGGREGATES) {
+                throw new IllegalArgumentException("More than " + MAX_AGGREGATES + " aggregates");
+            }
+            aggregates.add(new Aggregate(get(parameters, prefix + "[" + i + "][field]"),
+                    get(parameters, prefix + "[" + i + "][aggregate]")));
+        }
+        return aggregates;
+    }
+
+    private static Filter parseFilter(SortedMap<String, String[]> parameters, String prefix, int depth, int[] count) {
+        if (depth == MAX_DEPTH) {
+            throw new IllegalArgumentException("Filter nested deeper than " + MAX_DEPTH);
+        }
+        if (++count[0] > MAX_FILTERS) {
+            throw new IllegalArgumentException("More than " + MAX_FILTERS + " filters");
+        }
+        if (!hasPrefix(parameters, prefix + "[filters][") && get(parameters, prefix + "[logic]") == null) {
+            String ignoreCase = get(parameters, prefix + "[ignoreCase]");
+            return Filter.condition(get(parameters, prefix + "[field]"), get(parameters, prefix + "[operator]"),
+                    get(parameters, prefix + "[value]"), !"false".equals(ignoreCase));
+        }
+        List<Filter> filters = new ArrayList<Filter>();
+        for (int i = 0; hasPrefix(parameters, prefix + "[filters][" + i + "]["); i++) {
+            filters.add(parseFilter(parameters, prefix + "[filters][" + i + "]", depth + 1, count));
+        }
+        String logic = get(parameters, prefix + "[logic]");
+        return Filter.combination(logic == null ? "and" : logic, filters);
+    }
+
+    private static boolean hasPrefix(SortedMap<String, String[]> parameters, String prefix) {
+        SortedMap<String, String[]> tail = parameters.tailMap(prefix);
+        return !tail.isEmpty() && tail.firstKey().startsWith(prefix);
+    }
+
+    private static String get(Map<String, String[]> parameters, String name) {
+        String[] values = parameters.get(name);
+        return values == null || values.length == 0 ? null : values[0];
+    }
+
+    private static int parseInt(Map<String, String[]> parameters, String name, int defaultValue) {
+        String value = get(parameters, name);
+        if (value == null || value.length() == 0) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value, e);
+        }
+    }
+
+    /**
+     * Get the number of rows skipped
+     *
+     * @return the skip
+     */
+    public int getSkip() {
+        return skip;
+    }
+
+    /**
+     * Get the number of rows of the page
+     *
+     * @return the take, 0 for the default page size
+     */
+    public int getTake() {
+        return take;
+    }
+
+    /**
+     * Get the sort orders, on field names
+     *
+     * @return the sort orders
+     */
+    public List<SortOrder> getSort() {
+        return sort;
+    }
+
+    /**
+     * Get the filter
+     *
+     * @return the filter, null for none
+     */
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Get the groupings, outermost first
+     *
+     * @return the groups
+     */
+    public List<Group> getGroups() {
+        return groups;
+    }
+
+    /**
+     * Get the aggregates of all the rows of the filter
+     *
+     * @return the aggregates
+     */
+    public List<Aggregate> getAggregates() {
+        return aggregates;
+    }
+
+    @Override
+    public String toString() {
+        return "skip " + skip + ", take " + take + ", sort " + sort + ", filter " + filter + ", group " + groups
+                + ", aggregate " + aggregates;
+    }
+}
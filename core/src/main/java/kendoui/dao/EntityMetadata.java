@@ -0,0 +1,322 @@
+package kendoui.dao;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Version;
+
+import org.apache.commons.lang.StringUtils;
+import org.springframework.beans.BeanUtils;
+
+/**
+ * Precomputed metadata of an entity class. The entity name, the id and version attributes and their accessors are
+ * resolved once, the accessors are bound as MethodHandles so reading or writing them costs no reflection lookup. The
+ * generic queries of the entity are built once as well, so the same query string, and thus the same cached query plan,
+ * is used on every call.
+ */
+public final class EntityMetadata<T> {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<T> entityClass;
+
+    private final String entityName;
+
+    private final MethodHandle constructor;
+
+    private final String idName;
+
+    private final MethodHandle idGetter;
+
+    private final String versionName;
+
+    private final MethodHandle versionGetter;
+
+    private final MethodHandle versionSetter;
+
+    private final String lastRecordQuery;
+
+    private final String idsQuery;
+
+    private final Set<String> attributeNames;
+
+    private final ConcurrentMap<String, String> fieldQueries = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Constructor of EntityMetadata
+     *
+     * @param entityClass the entity class annotated with {@link Entity}
+     * @throws IllegalArgumentException if the class is not an entity or its accessors can not be resolved
+     */
+    EntityMetadata(Class<T> entityClass) {
+        Entity entity = entityClass.getAnnotation(Entity.class);
+        if (entity == null) {
+            throw new IllegalArgumentException(entityClass.getName() + " is not an entity");
+        }
+        this.entityClass = entityClass;
+        this.entityName = StringUtils.isEmpty(entity.name()) ? entityClass.getSimpleName() : entity.name();
+
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        try {
+            this.constructor = lookup.findConstructor(entityClass, MethodType.methodType(void.class)).asType(
+                    MethodType.methodType(Object.class));
+            Field idField = findAnnotatedField(entityClass, Id.class);
+            this.idName = idField == null ? null : idField.getName();
+            this.idGetter = idField == null ? null : getter(lookup, idField);
+            Field versionField = findAnnotatedField(entityClass, Version.class);
+            this.versionName = versionField == null ? null : versionField.getName();
+            this.versionGetter = versionField == null ? null : getter(lookup, versionField);
+            this.versionSetter = versionField == null ? null : setter(lookup, versionField);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Can not resolve accessors of " + entityClass.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Can not access accessors of " + entityClass.getName(), e);
+        }
+        this.lastRecordQuery = "from " + entityName + " order by id desc";
+        this.idsQuery = idName == null ? null : "from " + entityName + " where " + idName + " in (:ids)";
+        this.attributeNames = Collections.unmodifiableSet(findAttributeNames(entityClass));
+    }
+
+    /**
+     * Find the names of the persistent fields, walking up the class hierarchy.
+     *
+     * @param clazz entity class
+     * @return the field names
+     */
+    private static Set<String> findAttributeNames(Class<?> clazz) {
+        Set<String> names = new HashSet<String>();
+        for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+                    names.add(field.getName());
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Find the first declared field annotated with the given annotation, walking up the class hierarchy.
+     *
+     * @param clazz      entity class
+     * @param annotation annotation type
+     * @return the field or null if none is annotated
+     */
+    private static Field findAnnotatedField(Class<?> clazz, Class<? extends java.lang.annotation.Annotation> annotation) {
+        for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.isAnnotationPresent(annotation)) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static MethodHandle getter(MethodHandles.Lookup lookup, Field field) throws NoSuchMethodException,
+            IllegalAccessException {
+        Method method = accessor(field).getReadMethod();
+        if (method == null) {
+            throw new NoSuchMethodException("No getter for " + field.getName());
+        }
+        return lookup.unreflect(method).asType(GETTER_TYPE);
+    }
+
+    private static MethodHandle setter(MethodHandles.Lookup lookup, Field field) throws NoSuchMethodException,
+            IllegalAccessException {
+        Method method = accessor(field).getWriteMethod();
+        if (method == null) {
+            throw new NoSuchMethodException("No setter for " + field.getName());
+        }
+        return lookup.unreflect(method).asType(SETTER_TYPE);
+    }
+
+    private static PropertyDescriptor accessor(Field field) throws NoSuchMethodException {
+        PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(field.getDeclaringClass(), field.getName());
+        if (descriptor == null) {
+            throw new NoSuchMethodException("No property for " + field.getName());
+        }
+        return descriptor;
+    }
+
+    /**
+     * Rethrow a throwable raised by a MethodHandle without wrapping unchecked exceptions.
+     *
+     * @param e the throwable
+     * @return never returns, declared so callers can write <code>throw rethrow(e)</code>
+     */
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new IllegalStateException(e.getMessage(), e);
+    }
+
+    /**
+     * Get the entity class
+     *
+     * @return the entity class
+     */
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * Get the entity name used in the Java Persistence query language
+     *
+     * @return the entity name
+     */
+    public String getEntityName() {
+        return entityName;
+    }
+
+    /**
+     * Get the name of the id attribute
+     *
+     * @return the id attribute name or null if the entity has no id field
+     */
+    public String getIdName() {
+        return idName;
+    }
+
+    /**
+     * Get the name of the version attribute
+     *
+     * @return the version attribute name or null if the entity is not versioned
+     */
+    public String getVersionName() {
+        return versionName;
+    }
+
+    /**
+     * Get the query selecting the entity by the value of one attribute, with the value as first positional parameter.
+     * The query of each attribute of the entity is built on first access and cached, the query of a path or of any
+     * other name is built on every call so the cache is bounded by the attributes.
+     *
+     * @param name the attribute name or path
+     * @return the query string
+     */
+    public String getFieldQuery(String name) {
+        String query = fieldQueries.get(name);
+        if (query == null) {
+            query = "from " + entityName + " where " + name + " = ?";
+            if (!attributeNames.contains(name)) {
+                return query;
+            }
+            String existing = fieldQueries.putIfAbsent(name, query);
+            if (existing != null) {
+                query = existing;
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Get the query selecting the entities in descending id order
+     *
+     * @return the query string
+     */
+    public String getLastRecordQuery() {
+        return lastRecordQuery;
+    }
+
+    /**
+     * Get the query selecting the entities whose id is in the collection bound to the <code>ids</code> parameter
+     *
+     * @return the query string or null if the entity has no id field
+     */
+    public String getIdsQuery() {
+        return idsQuery;
+    }
+
+    /**
+     * Whether the entity has a {@link Version} attribute
+     *
+     * @return true if the entity is versioned
+     */
+    public boolean isVersioned() {
+        return versionGetter != null;
+    }
+
+    /**
+     * Create a new entity instance using the public no-arg constructor
+     *
+     * @return a new instance
+     */
+    @SuppressWarnings("unchecked")
+    public T newInstance() {
+        try {
+            return (T) constructor.invokeExact();
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Read the id of the entity
+     *
+     * @param entity entity instance
+     * @return the id value
+     */
+    public Object getId(T entity) {
+        if (idGetter == null) {
+            return null;
+        }
+        try {
+            return idGetter.invokeExact((Object) entity);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Read the version of the entity
+     *
+     * @param entity entity instance
+     * @return the version value or null if the entity is not versioned
+     */
+    public Object getVersion(T entity) {
+        if (versionGetter == null) {
+            return null;
+        }
+        try {
+            return versionGetter.invokeExact((Object) entity);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Write the version of the entity, does nothing if the entity is not versioned
+     *
+     * @param entity  entity instance
+     * @param version the version to set
+     */
+    public void setVersion(T entity, Object version) {
+        if (versionSetter == null) {
+            return;
+        }
+        try {
+            versionSetter.invokeExact((Object) entity, version);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package kendoui.dao;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+
+import org.hibernate.HibernateException;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.engine.SessionFactoryImplementor;
+
+/**
+ * Registry of the {@link EntityMetadata} of all the entities. It is filled from the persistence unit metamodel when the
+ * DAOs are initialized, so the metadata is built once at startup and only looked up afterwards.
+ */
+public final class EntityMetadataRegistry {
+
+    private static final ConcurrentMap<Class<?>, EntityMetadata<?>> METADATA =
+            new ConcurrentHashMap<Class<?>, EntityMetadata<?>>();
+
+    private static final Set<Metamodel> COMPILED =
+            Collections.newSetFromMap(new ConcurrentHashMap<Metamodel, Boolean>());
+
+    private EntityMetadataRegistry() {
+    }
+
+    /**
+     * Build the metadata of every entity managed by the persistence unit and compile the generic queries of each
+     * entity, the <code>getByField</code> query of every singular attribute included, into the query plan cache. The
+     * named queries are compiled by Hibernate itself when the persistence unit starts. Does nothing when the
+     * persistence unit has already been registered.
+     *
+     * @param entityManager an entity manager of the persistence unit
+     * @throws IllegalStateException if a query does not compile
+     */
+    public static void registerAll(EntityManager entityManager) {
+        Metamodel metamodel = entityManager.getMetamodel();
+        if (!COMPILED.add(metamodel)) {
+            return;
+        }
+        SessionFactoryImplementor factory = (SessionFactoryImplementor) ((HibernateEntityManagerFactory) entityManager
+                .getEntityManagerFactory()).getSessionFactory();
+        for (EntityType<?> entityType : metamodel.getEntities()) {
+            EntityMetadata<?> metadata = getMetadata(entityType.getJavaType());
+            for (SingularAttribute<?, ?> attribute : entityType.getSingularAttributes()) {
+                compile(factory, metadata.getFieldQuery(attribute.getName()));
+            }
+            compile(factory, metadata.getLastRecordQuery());
+            compile(factory, metadata.getIdsQuery());
+        }
+    }
+
+    /**
+     * Parse the query into the query plan cache of the session factory.
+     *
+     * @param factory the session factory
+     * @param query   the query string, ignored when null
+     * @throws IllegalStateException if the query does not compile
+     */
+    private static void compile(SessionFactoryImplementor factory, String query) {
+        if (query == null) {
+            return;
+        }
+        try {
+            factory.getQueryPlanCache().getHQLQueryPlan(query, false, Collections.EMPTY_MAP);
+        } catch (HibernateException e) {
+            throw new IllegalStateException("Invalid query: " + query, e);
+        }
+    }
+
+    /**
+     * Return the metadata of the given entity class, building it on first access.
+     *
+     * @param entityClass the entity class
+     * @return the entity metadata
+     * @throws IllegalArgumentException if the class is not an entity
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityMetadata<T> getMetadata(Class<T> entityClass) {
+        EntityMetadata<T> metadata = (EntityMetadata<T>) METADATA.get(entityClass);
+        if (metadata == null) {
+            metadata = new EntityMetadata<T>(entityClass);
+            EntityMetadata<T> existing = (EntityMetadata<T>) METADATA.putIfAbsent(entityClass, metadata);
+            if (existing != null) {
+                metadata = existing;
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Resolve the entity class a DAO is typed with, e.g. <code>Category</code> for
+     * <code>CategoryDao extends BaseContentDao&lt;Category&gt;</code>. Subclasses created by proxies are walked up to
+     * the first parameterized super class.
+     *
+     * @param daoClass the DAO class
+     * @return the entity class
+     * @throws IllegalArgumentException if the DAO class does not declare its entity type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Class<T> resolveEntityClass(Class<?> daoClass) {
+        for (Class<?> current = daoClass; current != null && current != Object.class; current = current
+                .getSuperclass()) {
+            Type type = current.getGenericSuperclass();
+            if (type instanceof ParameterizedType) {
+                Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+                if (argument instanceof Class) {
+                    return (Class<T>) argument;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Can not resolve the entity type of " + daoClass.getName());
+    }
+}
@@ -0,0 +1,200 @@
+package kendoui.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A named plan of the associations loaded together with the result of a query, so a screen runs a fixed number of
+ * queries whatever the number of rows.
+ * <p/>
+ * Join fetches are spliced into the Java Persistence query as <code>left join fetch</code> clauses and must start with
+ * an alias declared in the from clause of the query, e.g. <code>c.name</code> or <code>posc.category pc</code> followed
+ * by <code>pc.name</code>. Batch fetches are collections of the result entities initialized with one extra query per
+ * {@link kendoui.utils.Constant#DEFAULT_FETCH_SIZE} rows instead of one query per row, collections are not join fetched
+ * so the rows of the query are not multiplied.
+ */
+public final class FetchPlan {
+
+    // Top level clauses following the from clause, the join fetches go before the first of them
+    private static final String[] CLAUSES = {" where ", " group by ", " having ", " order by "};
+
+    private final String name;
+
+    private final List<String> joinFetches;
+
+    private final List<String> batchFetches;
+
+    private final ConcurrentMap<String, String> queries = new ConcurrentHashMap<String, String>();
+
+    private final ConcurrentMap<String, String> batchQueries = new ConcurrentHashMap<String, String>();
+
+    private FetchPlan(String name, List<String> joinFetches, List<String> batchFetches) {
+        this.name = name;
+        this.joinFetches = Collections.unmodifiableList(new ArrayList<String>(joinFetches));
+        this.batchFetches = Collections.unmodifiableList(new ArrayList<String>(batchFetches));
+    }
+
+    /**
+     * Get the name of the plan
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the associations join fetched, in join order
+     *
+     * @return the association paths, each optionally followed by an alias
+     */
+    public List<String> getJoinFetches() {
+        return joinFetches;
+    }
+
+    /**
+     * Get the collections of the result entities initialized in batches
+     *
+     * @return the collection property names
+     */
+    public List<String> getBatchFetches() {
+        return batchFetches;
+    }
+
+    /**
+     * Return the given query with the join fetches of the plan, the rewritten query is computed once per query.
+     *
+     * @param jpql a Java Persistence query string
+     * @return the query with the join fetches
+     */
+    public String apply(String jpql) {
+        if (joinFetches.isEmpty()) {
+            return jpql;
+        }
+        String query = queries.get(jpql);
+        if (query == null) {
+            query = splice(jpql);
+            queries.putIfAbsent(jpql, query);
+        }
+        return query;
+    }
+
+    /**
+     * Return the query initializing a collection of a batch of entities, bound to the parameter <code>rows</code>.
+     *
+     * @param entityName the entity name of the rows
+     * @param collection the collection property name
+     * @return a Java Persistence query string
+     */
+    public String getBatchQuery(String entityName, String collection) {
+        String key = entityName + '.' + collection;
+        String query = batchQueries.get(key);
+        if (query == null) {
+            query = "select distinct e from " + entityName + " e left join fetch e." + collection + " where e in (:rows)";
+            batchQueries.putIfAbsent(key, query);
+        }
+        return query;
+    }
+
+    private String splice(String jpql) {
+        String lower = jpql.toLowerCase();
+        int position = jpql.length();
+        int depth = 0;
+        boolean quoted = false;
+        for (int i = 0; i < lower.length() && position == jpql.length(); i++) {
+            char c = lower.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == '(') {
+                depth++;
+            } else if (!quoted && c == ')') {
+                depth--;
+            } else if (!quoted && depth == 0) {
+                for (String clause : CLAUSES) {
+                    if (lower.startsWith(clause, i)) {
+                        position = i;
+                        break;
+                    }
+                }
+            }
+        }
+        StringBuilder query = new StringBuilder(jpql.length() + 32 * joinFetches.size());
+        query.append(jpql, 0, position);
+        for (String joinFetch : joinFetches) {
+            query.append(" left join fetch ").append(joinFetch);
+        }
+        return query.append(jpql, position, jpql.length()).toString();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Builder of an immutable fetch plan.
+     */
+    public static final class Builder {
+
+        private final String name;
+
+        private final List<String> joinFetches = new ArrayList<String>();
+
+        private final List<String> batchFetches = new ArrayList<String>();
+
+        /**
+         * Constructor of Builder
+         *
+         * @param name the name of the plan
+         */
+        public Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Join fetch an association
+         *
+         * @param path an association path starting with an alias of the query, e.g. <code>c.name</code>
+         * @return this builder
+         */
+        public Builder joinFetch(String path) {
+            joinFetches.add(path);
+            return this;
+        }
+
+        /**
+         * Join fetch an association under an alias later join fetches can start with
+         *
+         * @param path  an association path starting with an alias of the query
+         * @param alias the alias of the association
+         * @return this builder
+         */
+        public Builder joinFetch(String path, String alias) {
+            joinFetches.add(path + ' ' + alias);
+            return this;
+        }
+
+        /**
+         * Initialize a collection of the result entities in batches
+         *
+         * @param collection the collection property name of the result entity
+         * @return this builder
+         */
+        public Builder batchFetch(String collection) {
+            batchFetches.add(collection);
+            return this;
+        }
+
+        /**
+         * Build the plan
+         *
+         * @return the fetch plan
+         */
+        public FetchPlan build() {
+            return new FetchPlan(name, joinFetches, batchFetches);
+        }
+    }
+}
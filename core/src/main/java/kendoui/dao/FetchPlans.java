@@ -0,0 +1,32 @@
+package kendoui.dao;
+
+/**
+ * The fetch plans of the screens, each goes with the aliases of the queries it is applied to.
+ */
+public final class FetchPlans {
+
+    /**
+     * The catalog of a point of sale: the categories aliased <code>c</code> with their texts, see
+     * {@link kendoui.model.Category#QUERY_BY_POINT_OF_SALE}.
+     */
+    public static final FetchPlan POS_CATALOG = new FetchPlan.Builder("posCatalog").joinFetch("c.name")
+            .joinFetch("c.description").build();
+
+    /**
+     * The category tree of a point of sale: the categories aliased <code>c</code> with their texts and their children,
+     * see {@link kendoui.model.PointOfSaleCategory#QUERY_CATEGORY_TREE}.
+     */
+    public static final FetchPlan CATEGORY_TREE = new FetchPlan.Builder("categoryTree").joinFetch("c.name")
+            .joinFetch("c.description").batchFetch("chidren").build();
+
+    /**
+     * The point of sale category grid: the rows aliased <code>posc</code> with their point of sale, category and the
+     * category texts, see {@link kendoui.model.PointOfSaleCategory#QUERY_BY_POINT_OF_SALE}.
+     */
+    public static final FetchPlan POINT_OF_SALE_CATEGORY_GRID = new FetchPlan.Builder("pointOfSaleCategoryGrid")
+            .joinFetch("posc.pointOfSale").joinFetch("posc.category", "pc").joinFetch("pc.name")
+            .joinFetch("pc.description").build();
+
+    private FetchPlans() {
+    }
+}
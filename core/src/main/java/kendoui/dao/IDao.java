@@ -1,6 +1,7 @@
 package kendoui.dao;
 
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -564,11 +565,13 @@ public interface IDao<T> {
     T merge(T entity);
 
     /**
-     * Merge the state of the given entity into the current persistence context.
+     * Merge the state of the given entity into the current persistence context. A versioned entity not managed by the
+     * persistence context and without owned collections or cascaded associations is updated directly with one
+     * statement checking the version, then made managed with its new version.
      *
      * @param entity      entity instance
      * @param lastUpdated entity last updated timestamp pass from FE
-     * @return the managed instance that the state was merged to
+     * @return the managed instance that the state was merged to, the entity itself when updated directly
      * @throws IllegalArgumentException if instance is not an entity or is a removed entity
      * @throws javax.persistence.TransactionRequiredException
      *                                  if invoked on a container-managed entity manager of type
@@ -576,6 +579,21 @@ public interface IDao<T> {
      */
     T merge(T entity, Timestamp lastUpdated);
 
+    /**
+     * Update the given attributes of an entity with one statement, as long as its version still is the given one. The
+     * new version is the time of the database, the entity is evicted from the second level cache and refreshed when
+     * managed.
+     *
+     * @param id          the id of the entity
+     * @param lastUpdated the version the entity must still have
+     * @param changes     the new values by attribute name
+     * @return the new version
+     * @throws IllegalArgumentException if the entity is not versioned or an attribute can not be updated
+     * @throws javax.persistence.OptimisticLockException
+     *                                  if the entity was modified or removed since the version
+     */
+    Timestamp update(Long id, Timestamp lastUpdated, Map<String, ?> changes);
+
     /**
      * Make an instance managed and persistent.
      *
@@ -592,6 +610,47 @@ public interface IDao<T> {
      */
     void persist(T entity);
 
+    /**
+     * Make the instances managed and persistent in bulk. The pending changes are flushed first, then the inserts are
+     * sent as JDBC batches of <code>hibernate.jdbc.batch_size</code> rows, each batch in a savepoint. A failing batch is
+     * rolled back to its savepoint and its rows inserted one by one, so a row reported failed does not roll back the
+     * others nor the transaction. The persistence context is cleared after each batch: the returned entities and all
+     * the entities the caller had managed are detached.
+     *
+     * @param entities entity instances
+     * @return the outcome of each row, in the order of the collection
+     * @throws javax.persistence.TransactionRequiredException
+     *          if invoked on a container-managed entity manager of type
+     *          <code>PersistenceContextType.TRANSACTION</code> and there is no transaction
+     */
+    BatchResult<T> persistAll(Collection<T> entities);
+
+    /**
+     * Merge the state of the given entities in bulk. The pending changes are flushed first, then the current state of
+     * each batch of <code>hibernate.jdbc.batch_size</code> rows is loaded with one query and the updates are sent as
+     * JDBC batches, each batch in a savepoint. A failing batch is rolled back to its savepoint and its rows merged one by
+     * one, so a row reported failed does not roll back the others nor the transaction. The persistence context is
+     * cleared after each batch: the returned entities and all the entities the caller had managed are detached.
+     *
+     * @param entities entity instances
+     * @return the outcome of each row with the merged instance, in the order of the collection
+     * @throws javax.persistence.TransactionRequiredException
+     *          if invoked on a container-managed entity manager of type
+     *          <code>PersistenceContextType.TRANSACTION</code> and there is no transaction
+     */
+    BatchResult<T> mergeAll(Collection<T> entities);
+
+    /**
+     * Reserve ids from the id generator of the persistent class for rows written outside of the persistence context,
+     * e.g. bulk SQL. The ids come from the same pooled blocks as the persisted entities, so a block of ids costs one
+     * sequence call.
+     *
+     * @param count the number of ids to reserve
+     * @return the reserved ids, in increasing order
+     * @throws DAOException if the entity does not use a generated id
+     */
+    long[] allocateIds(int count) throws DAOException;
+
     /**
      * Get the persistent class of this dao.
      *
@@ -599,6 +658,20 @@ public interface IDao<T> {
      */
     Class<T> getPersistentClass();
 
+    /**
+     * Get the statistics of the second level cache region of the persistent class of this dao.
+     *
+     * @return the region statistics or null if the entity is not cached
+     */
+    CacheStatistics getCacheStatistics();
+
+    /**
+     * Get the precomputed metadata of the persistent class of this dao.
+     *
+     * @return the entity metadata
+     */
+    EntityMetadata<T> getEntityMetadata();
+
     /**
      * This setter for entity manager
      *
@@ -629,6 +702,111 @@ public interface IDao<T> {
      */
     List<T> getByList(String query, int offset, int count, Object... args);
 
+    /**
+     * Return a list of all objects or an empty list by the given named query. Named queries are declared on the
+     * entities and compiled once when the persistence unit starts.
+     *
+     * @param name the name of a query defined in metadata
+     * @param args an object array of query parameters, bound to the positional parameters ?1 to ?n
+     * @return the found object list or an empty list if nothing matches
+     * @throws IllegalArgumentException if a query has not been defined with the given name
+     */
+    List<?> queryByNamedList(String name, Object... args);
+
+    /**
+     * Return a list of all entities or an empty list by the given named query
+     *
+     * @param name the name of a query defined in metadata
+     * @param args an object array of query parameters, bound to the positional parameters ?1 to ?n
+     * @return the found entity instance list or an empty list if the entity does not exist
+     * @throws IllegalArgumentException if a query has not been defined with the given name
+     */
+    List<T> getByNamedList(String name, Object... args);
+
+    /**
+     * Return a list of all entities or an empty list by the given query, loading the associations of the fetch plan
+     * with the entities.
+     *
+     * @param query     a Java Persistence query string using the aliases of the fetch plan
+     * @param fetchPlan the associations to load with the entities
+     * @param args      an object array of query parameters
+     * @return the found entity instance list or an empty list if the entity does not exist
+     */
+    List<T> getByList(String query, FetchPlan fetchPlan, Object... args);
+
+    /**
+     * Return a list of all objects or an empty list by the given named query, loading the associations of the fetch
+     * plan with the entities. The join fetches only apply to Java Persistence named queries, the batch fetches to both
+     * Java Persistence and native named queries.
+     *
+     * @param name      the name of a query defined in metadata
+     * @param fetchPlan the associations to load with the entities
+     * @param args      an object array of query parameters, bound to the positional parameters ?1 to ?n
+     * @return the found object list or an empty list if nothing matches
+     * @throws IllegalArgumentException if a query has not been defined with the given name
+     */
+    List<?> queryByNamedList(String name, FetchPlan fetchPlan, Object... args);
+
+    /**
+     * Return a list of all entities or an empty list by the given named query, loading the associations of the fetch
+     * plan with the entities, see {@link #queryByNamedList(String, FetchPlan, Object[])}.
+     *
+     * @param name      the name of a query defined in metadata
+     * @param fetchPlan the associations to load with the entities
+     * @param args      an object array of query parameters, bound to the positional parameters ?1 to ?n
+     * @return the found entity instance list or an empty list if the entity does not exist
+     * @throws IllegalArgumentException if a query has not been defined with the given name
+     */
+    List<T> getByNamedList(String name, FetchPlan fetchPlan, Object... args);
+
+    /**
+     * Return the rows of the given query mapped to a read model, e.g.
+     * <code>select new kendoui.model.PointOfSaleCategoryRow(...) from ...</code>. No entity is loaded into the
+     * persistence context, so the rows cost no dirty check snapshot and are never flushed.
+     *
+     * @param query a Java Persistence query string with a constructor expression of the read model
+     * @param type  the class of the read model
+     * @param args  an object array of query parameters
+     * @param <P>
+     * @return the rows or an empty list if nothing matches
+     */
+    <P> List<P> queryByProjection(String query, Class<P> type, Object... args);
+
+    /**
+     * Return the rows of the given named query mapped to a read model, see
+     * {@link #queryByProjection(String, Class, Object[])}.
+     *
+     * @param name the name of a query defined in metadata, with a constructor expression of the read model
+     * @param type the class of the read model
+     * @param args an object array of query parameters, bound to the positional parameters ?1 to ?n
+     * @param <P>
+     * @return the rows or an empty list if nothing matches
+     * @throws IllegalArgumentException if a query has not been defined with the given name
+     */
+    <P> List<P> queryByNamedProjection(String name, Class<P> type, Object... args);
+
+    /**
+     * Return the rows of the given native SQL query mapped to a read model by calling its public constructor taking as
+     * many arguments as the query has columns, in column order. No entity is loaded into the persistence context.
+     *
+     * @param sql  a native SQL query string
+     * @param type the class of the read model
+     * @param args an object array of query parameters, bound to the positional parameters ?1 to ?n
+     * @param <P>
+     * @return the rows or an empty list if nothing matches
+     */
+    <P> List<P> queryByNativeProjection(String sql, Class<P> type, Object... args);
+
+    /**
+     * Return one entity of the given named query
+     *
+     * @param name the name of a query defined in metadata
+     * @param args an object array of query parameters, bound to the positional parameters ?1 to ?n
+     * @return the found entity instance or null if the entity does not exist
+     * @throws IllegalArgumentException if a query has not been defined with the given name
+     */
+    T getByNamedOne(String name, Object... args);
+
     /**
      * Return one object of the given query condition
      *
@@ -688,6 +866,32 @@ public interface IDao<T> {
      */
     List<T> getList();
 
+    /**
+     * Stream all the entities to the callback, see {@link #streamByList(String, int, RowCallback, Object[])}.
+     *
+     * @param fetchSize number of rows fetched per round trip and kept in the persistence context at most
+     * @param callback  the callback receiving the entities
+     * @return the number of entities streamed
+     * @throws DAOException if the callback aborts
+     */
+    int streamList(int fetchSize, RowCallback<T> callback) throws DAOException;
+
+    /**
+     * Stream the result of the given query to the callback one row at a time. The rows are read through a forward only
+     * server side cursor fetching <code>fetchSize</code> rows per round trip, loaded read-only and the persistence
+     * context is cleared after every <code>fetchSize</code> rows, so the memory used does not grow with the number of
+     * rows. Pending changes are flushed before streaming starts. Must be called inside a transaction, PostgreSQL only
+     * uses a cursor when auto commit is off.
+     *
+     * @param query     a Java Persistence query string selecting entities, with <code>?1</code> parameters
+     * @param fetchSize number of rows fetched per round trip and kept in the persistence context at most
+     * @param callback  the callback receiving the entities
+     * @param args      an object array of query parameters
+     * @return the number of entities streamed
+     * @throws DAOException if the callback aborts
+     */
+    int streamByList(String query, int fetchSize, RowCallback<T> callback, Object... args) throws DAOException;
+
     /**
      * Return a list of all objects or an empty list by the given jpq query
      *
@@ -722,6 +926,84 @@ public interface IDao<T> {
      */
     List<T> queryByCriteria(Query query, int pageSize, int pageNumber) throws DAOException;
 
+    /**
+     * Return one page of entities together with the total number of rows of the query. The total comes from the count
+     * query derived from the given query and is not counted at all when the page is the last one.
+     *
+     * @param jpa        a Java Persistence query string, not grouped
+     * @param pageSize   Number of entity per page
+     * @param pageNumber Page to display, starting at 1
+     * @param countMode  how the total is counted
+     * @param args       an object array of query parameters
+     * @return the page and the total
+     * @throws DAOException if the query can not be counted
+     */
+    Page<T> queryByPage(String jpa, int pageSize, int pageNumber, CountMode countMode, Object... args)
+            throws DAOException;
+
+    /**
+     * Return the page of entities asked by a Kendo UI DataSource with server filtering, sorting and paging, together
+     * with the total number of rows of its filter. The fields of the request are resolved against the given whitelist.
+     * The queries are compiled once per shape of request, the same filter structure and sort, and only bind the values
+     * of the conditions afterwards. The rows of a grouped request are sorted on its groups first, and the id is always
+     * used as the last sort key to make the order stable.
+     *
+     * @param request   the filter, sort and page of the DataSource
+     * @param fields    the fields the request may filter and sort on
+     * @param countMode how the total is counted, estimated only without filter
+     * @return the page and the total
+     * @throws DAOException if the request uses a field not exposed or a value does not convert to its attribute
+     */
+    Page<T> queryByDataSource(DataSourceRequest request, DataSourceFields fields, CountMode countMode)
+            throws DAOException;
+
+    /**
+     * Return a page of the groups of the outermost grouping of a Kendo UI DataSource request with server grouping,
+     * counted and aggregated by the database. The skip and take of the request page the groups, not the rows. The rows
+     * of a group, or its subgroups, are asked afterwards with the same request filtered on the value of the group,
+     * without that grouping for the subgroups, so no row is loaded to build the groups.
+     *
+     * @param request the filter, groups and page of the DataSource
+     * @param fields  the fields the request may filter, group and aggregate on
+     * @return the page of groups and the number of groups
+     * @throws DAOException if the request is not grouped, uses a field not exposed or an aggregate not applying to
+     *                      its field
+     */
+    Page<DataSourceGroup> queryGroupsByDataSource(DataSourceRequest request, DataSourceFields fields)
+            throws DAOException;
+
+    /**
+     * Return the aggregates of all the rows of the filter of a Kendo UI DataSource request with server aggregates, by
+     * field then aggregate name, computed by the database.
+     *
+     * @param request the filter and aggregates of the DataSource
+     * @param fields  the fields the request may filter and aggregate on
+     * @return the aggregates, empty if the request has none
+     * @throws DAOException if the request uses a field not exposed or an aggregate not applying to its field
+     */
+    Map<String, Map<String, Object>> queryAggregatesByDataSource(DataSourceRequest request, DataSourceFields fields)
+            throws DAOException;
+
+    /**
+     * Return one page of entities using keyset (seek) pagination. Instead of skipping the rows of the previous pages
+     * the query continues right after the sort key values of the last row of the previous page, so the cost of a page
+     * does not depend on how deep it is. The id is always used as the last sort key to make the order stable.
+     *
+     * @param where      an optional Java Persistence query condition on the entity aliased <code>e</code>, e.g.
+     *                   <code>e.pointOfSale.id = ?</code>, may be null. It is inserted in the query as is and must
+     *                   not carry user input, the values go in <code>args</code>
+     * @param sortOrders the sort orders, null values sort after the others in ascending order and before them in
+     *                   descending order, on single valued attribute paths of the entity
+     * @param cursor     the cursor returned with the previous page or null for the first page
+     * @param pageSize   Number of entity per page
+     * @param args       an object array of parameters of the condition
+     * @return the page and the cursor of the next page
+     * @throws DAOException if a sort attribute is unknown, or the cursor is invalid or its values do not match the
+     *                      types of the sort attributes
+     */
+    KeysetPage<T> queryByKeyset(String where, List<SortOrder> sortOrders, String cursor, int pageSize, Object... args)
+            throws DAOException;
+
     /**
      * Create an instance of <code>Query</code> for executing a native SQL statement, e.g., for update or delete.
      *
@@ -0,0 +1,126 @@
+package kendoui.dao;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a bulk import: how many lines were read and imported, and the rejected lines with their reason.
+ */
+public class ImportResult implements Serializable {
+
+    private static final long serialVersionUID = -4203641874712280339L;
+
+    /**
+     * A line of the import which was not imported.
+     */
+    public static class Rejection implements Serializable {
+
+        private static final long serialVersionUID = 3529764418839624917L;
+
+        private final long line;
+
+        private final String[] values;
+
+        private final String reason;
+
+        /**
+         * Constructor of Rejection
+         *
+         * @param line   the number of the line in the input, from 1, the header excluded
+         * @param values the values of the line as read
+         * @param reason why the line was rejected
+         */
+        public Rejection(long line, String[] values, String reason) {
+            this.line = line;
+            this.values = values;
+            this.reason = reason;
+        }
+
+        /**
+         * Get the number of the line in the input, from 1, the header excluded
+         *
+         * @return the line
+         */
+        public long getLine() {
+            return line;
+        }
+
+        /**
+         * Get the values of the line as read
+         *
+         * @return the values
+         */
+        public String[] getValues() {
+            return values.clone();
+        }
+
+        /**
+         * Get why the line was rejected
+         *
+         * @return the reason
+         */
+        public String getReason() {
+            return reason;
+        }
+    }
+
+    private final long lineCount;
+
+    private final long importedCount;
+
+    private final long rejectedCount;
+
+    private final List<Rejection> rejections;
+
+    /**
+     * Constructor of ImportResult
+     *
+     * @param lineCount     the number of lines read
+     * @param importedCount the number of lines imported
+     * @param rejectedCount the number of lines rejected
+     * @param rejections    the first rejected lines, in line order, at most a limit of the import
+     */
+    public ImportResult(long lineCount, long importedCount, long rejectedCount, List<Rejection> rejections) {
+        this.lineCount = lineCount;
+        this.importedCount = importedCount;
+        this.rejectedCount = rejectedCount;
+        this.rejections = Collections.unmodifiableList(rejections);
+    }
+
+    /**
+     * Get the number of lines read
+     *
+     * @return the count
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Get the number of lines imported
+     *
+     * @return the count
+     */
+    public long getImportedCount() {
+        return importedCount;
+    }
+
+    /**
+     * Get the number of lines rejected, which may be more than the rejections listed
+     *
+     * @return the count
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Get the first rejected lines, in line order
+     *
+     * @return the rejections
+     */
+    public List<Rejection> getRejections() {
+        return rejections;
+    }
+}
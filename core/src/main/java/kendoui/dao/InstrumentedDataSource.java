@@ -0,0 +1,435 @@
+package kendoui.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import kendoui.utils.LatencyHistogram;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * A data source measuring the connection pool it wraps: how long threads wait to borrow a connection, how long the
+ * connections are held, how many are active, idle or waited for. Connections held longer than
+ * <code>leakThresholdMillis</code> are logged once as possible leaks, with the stack trace of the code that borrowed
+ * them when <code>captureStackTraces</code> is on. Capturing costs a stack walk per borrowed connection, so it is off by
+ * default and meant to be switched on over JMX while a leak is diagnosed.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource implements InstrumentedDataSourceMBean,
+        DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InstrumentedDataSource.class);
+
+    private static final int LONGEST_HELD_LIMIT = 10;
+
+    /**
+     * A borrowed connection.
+     */
+    private static final class Lease {
+
+        private final long borrowedAt = System.nanoTime();
+
+        private final String thread = Thread.currentThread().getName();
+
+        private final Throwable borrower;
+
+        private volatile boolean leakReported;
+
+        Lease(boolean captureStackTrace) {
+            borrower = captureStackTrace ? new Throwable("Connection borrowed here") : null;
+        }
+
+        long getHeldMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - borrowedAt);
+        }
+    }
+
+    private String name = "content";
+
+    private long leakThresholdMillis = 60000L;
+
+    private volatile boolean captureStackTraces;
+
+    private final LatencyHistogram borrowWait = new LatencyHistogram();
+
+    private final LatencyHistogram holdTime = new LatencyHistogram();
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final AtomicLong borrowFailures = new AtomicLong();
+
+    private final AtomicLong leaks = new AtomicLong();
+
+    private final Map<Connection, Lease> leases = new ConcurrentHashMap<Connection, Lease>();
+
+    private ScheduledExecutorService leakDetector;
+
+    /**
+     * Set the name of the pool, used in the reports
+     *
+     * @param name the name
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the name of the pool
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Set how long a connection may be held before it is reported as a leak, 0 to not detect leaks
+     *
+     * @param leakThresholdMillis the threshold in milliseconds
+     */
+    public void setLeakThresholdMillis(long leakThresholdMillis) {
+        this.leakThresholdMillis = leakThresholdMillis;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.InstrumentedDataSourceMBean#isCaptureStackTraces()
+     */
+    @Override
+    public boolean isCaptureStackTraces() {
+        return captureStackTraces;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.InstrumentedDataSourceMBean#setCaptureStackTraces(boolean)
+     */
+    @Override
+    public void setCaptureStackTraces(boolean captureStackTraces) {
+        this.captureStackTraces = captureStackTraces;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.springframework.jdbc.datasource.DelegatingDataSource#afterPropertiesSet()
+     */
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        if (leakThresholdMillis > 0) {
+            leakDetector = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, name + "-leak-detector");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            long period = Math.max(leakThresholdMillis / 2, 1000L);
+            leakDetector.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    detectLeaks();
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.springframework.beans.factory.DisposableBean#destroy()
+     */
+    @Override
+    public void destroy() {
+        if (leakDetector != null) {
+            leakDetector.shutdownNow();
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see javax.sql.DataSource#getConnection()
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see javax.sql.DataSource#getConnection(String, String)
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        Connection connection;
+        try {
+            DataSource target = getTargetDataSource();
+            connection = username == null ? target.getConnection() : target.getConnection(username, password);
+        } catch (SQLException e) {
+            borrowFailures.incrementAndGet();
+            throw e;
+        } catch (RuntimeException e) {
+            borrowFailures.incrementAndGet();
+            throw e;
+        } finally {
+            waiting.decrementAndGet();
+            borrowWait.record(System.nanoTime() - start);
+        }
+        return track(connection);
+    }
+
+    /**
+     * Wrap a borrowed connection to know when it is returned. The wrapper is a {@link ConnectionProxy}, so a native
+     * JDBC extractor reaches the connection of the pool through it
+     *
+     * @param connection the connection of the pool
+     * @return the tracked connection
+     */
+    private Connection track(final Connection connection) {
+        final Lease lease = new Lease(captureStackTraces);
+        Connection tracked = (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().equals("getTargetConnection")) {
+                            return connection;
+                        } else if (method.getName().equals("close") && leases.remove(proxy) != null) {
+                            holdTime.record(System.nanoTime() - lease.borrowedAt);
+                        } else if (method.getName().equals("equals")) {
+                            return proxy == args[0];
+                        } else if (method.getName().equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        } else if (method.getName().equals("toString")) {
+                            return name + " connection " + connection;
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    }
+                });
+        leases.put(tracked, lease);
+        return tracked;
+    }
+
+    /**
+     * Log the connections held longer than the leak threshold, once each
+     */
+    public void detectLeaks() {
+        for (Lease lease : leases.values()) {
+            long held = lease.getHeldMillis();
+            if (held > leakThresholdMillis && !lease.leakReported) {
+                lease.leakReported = true;
+                leaks.incrementAndGet();
+                String message = "Connection of " + name + " held for " + held + " ms by " + lease.thread
+                        + ", possible leak";
+                if (lease.borrower == null) {
+                    LOG.warn(message);
+                } else {
+                    LOG.warn(message, lease.borrower);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the histogram of the time waited to borrow a connection
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram getBorrowWait() {
+        return borrowWait;
+    }
+
+    /**
+     * Get the histogram of the time connections were held
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram getHoldTime() {
+        return holdTime;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.InstrumentedDataSourceMBean#getActiveConnections()
+     */
+    @Override
+    public int getActiveConnections() {
+        return leases.size();
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.InstrumentedDataSourceMBean#getIdleConnections()
+     */
+    @Override
+    public int getIdleConnections() {
+        DataSource target = getTargetDataSource();
+        return target instanceof BasicDataSource ? ((BasicDataSource) target).getNumIdle() : -1;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.InstrumentedDataSourceMBean#getMaxActiveConnections()
+     */
+    @Override
+    public int getMaxActiveConnections() {
+        DataSource target = getTargetDataSource();
+        return target instanceof BasicDataSource ? ((BasicDataSource) target).getMaxActive() : -1;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.InstrumentedDataSourceMBean#getWaitingThreads()
+     */
+    @Override
+    public int getWaitingThreads() {
+        return waiting.get();
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.InstrumentedDataSourceMBean#getBorrowCount()
+     */
+    @Override
+    public long getBorrowCount() {
+        return borrowWait.getCount();
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.InstrumentedDataSourceMBean#getBorrowFailureCount()
+     */
+    @Override
+    public long getBorrowFailureCount() {
+        return borrowFailures.get();
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.InstrumentedDataSourceMBean#getBorrowWaitP99Millis()
+     */
+    @Override
+    public double getBorrowWaitP99Millis() {
+        return borrowWait.getQuantileMillis(0.99);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.InstrumentedDataSourceMBean#getBorrowWaitMaxMillis()
+     */
+    @Override
+    public double getBorrowWaitMaxMillis() {
+        return borrowWait.getMaxMillis();
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.InstrumentedDataSourceMBean#getHoldTimeP99Millis()
+     */
+    @Override
+    public double getHoldTimeP99Millis() {
+        return holdTime.getQuantileMillis(0.99);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.InstrumentedDataSourceMBean#getHoldTimeMaxMillis()
+     */
+    @Override
+    public double getHoldTimeMaxMillis() {
+        return holdTime.getMaxMillis();
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.InstrumentedDataSourceMBean#getLeakCount()
+     */
+    @Override
+    public long getLeakCount() {
+        return leaks.get();
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.InstrumentedDataSourceMBean#getLeakThresholdMillis()
+     */
+    @Override
+    public long getLeakThresholdMillis() {
+        return leakThresholdMillis;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.InstrumentedDataSourceMBean#longestHeldConnections()
+     */
+    @Override
+    public String[] longestHeldConnections() {
+        List<Lease> held = new ArrayList<Lease>(leases.values());
+        Collections.sort(held, new Comparator<Lease>() {
+            @Override
+            public int compare(Lease a, Lease b) {
+                return a.borrowedAt < b.borrowedAt ? -1 : a.borrowedAt == b.borrowedAt ? 0 : 1;
+            }
+        });
+        int size = Math.min(held.size(), LONGEST_HELD_LIMIT);
+        String[] descriptions = new String[size];
+        for (int i = 0; i < size; i++) {
+            Lease lease = held.get(i);
+            StringBuilder description = new StringBuilder();
+            description.append(lease.getHeldMillis()).append(" ms by ").append(lease.thread);
+            if (lease.borrower != null) {
+                for (StackTraceElement element : lease.borrower.getStackTrace()) {
+                    description.append("\n\tat ").append(element);
+                }
+            }
+            descriptions[i] = description.toString();
+        }
+        return descriptions;
+    }
+}
@@ -0,0 +1,114 @@
+package kendoui.dao;
+
+/**
+ * The JMX view of an {@link InstrumentedDataSource}.
+ */
+public interface InstrumentedDataSourceMBean {
+
+    /**
+     * Get the number of connections borrowed from the pool and not returned yet
+     *
+     * @return the active connections
+     */
+    int getActiveConnections();
+
+    /**
+     * Get the number of connections idle in the pool
+     *
+     * @return the idle connections, -1 if the pool does not tell
+     */
+    int getIdleConnections();
+
+    /**
+     * Get the maximum number of active connections of the pool
+     *
+     * @return the maximum, -1 if the pool does not tell
+     */
+    int getMaxActiveConnections();
+
+    /**
+     * Get the number of threads waiting for a connection
+     *
+     * @return the waiting threads
+     */
+    int getWaitingThreads();
+
+    /**
+     * Get the number of connections borrowed since the start
+     *
+     * @return the borrow count
+     */
+    long getBorrowCount();
+
+    /**
+     * Get the number of failures to borrow a connection, e.g. when the wait timed out
+     *
+     * @return the failure count
+     */
+    long getBorrowFailureCount();
+
+    /**
+     * Get the 99th percentile of the time waited for a connection
+     *
+     * @return the wait in milliseconds
+     */
+    double getBorrowWaitP99Millis();
+
+    /**
+     * Get the longest time waited for a connection
+     *
+     * @return the wait in milliseconds
+     */
+    double getBorrowWaitMaxMillis();
+
+    /**
+     * Get the 99th percentile of the time a connection was held
+     *
+     * @return the hold time in milliseconds
+     */
+    double getHoldTimeP99Millis();
+
+    /**
+     * Get the longest time a connection was held
+     *
+     * @return the hold time in milliseconds
+     */
+    double getHoldTimeMaxMillis();
+
+    /**
+     * Get the number of connections held longer than the leak threshold since the start
+     *
+     * @return the leak count
+     */
+    long getLeakCount();
+
+    /**
+     * Get the threshold above which a held connection is reported as a leak
+     *
+     * @return the threshold in milliseconds, 0 if leaks are not detected
+     */
+    long getLeakThresholdMillis();
+
+    /**
+     * Get whether the stack trace of the borrower of each connection is kept
+     *
+     * @return true if the stack traces are captured
+     */
+    boolean isCaptureStackTraces();
+
+    /**
+     * Set whether the stack trace of the borrower of each connection is kept, to tell where long held connections and
+     * leaks come from. Off by default, each capture costs a stack walk per borrowed connection, switch it on while a
+     * leak is diagnosed
+     *
+     * @param captureStackTraces true to capture the stack traces of the connections borrowed from now on
+     */
+    void setCaptureStackTraces(boolean captureStackTraces);
+
+    /**
+     * Describe the connections held the longest, with the stack trace of their borrower when captured
+     *
+     * @return one description per connection, longest held first
+     */
+    String[] longestHeldConnections();
+}
@@ -0,0 +1,153 @@
+package kendoui.dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import kendoui.exception.DAOException;
+
+/**
+ * Encodes the sort key values of the last row of a keyset page into an opaque, URL safe cursor and back. Only plain
+ * value types are supported, so a cursor sent back by a client can never instantiate arbitrary classes.
+ */
+final class KeysetCursor {
+
+    private static final byte LONG = 'J';
+
+    private static final byte INTEGER = 'I';
+
+    private static final byte STRING = 'S';
+
+    private static final byte BOOLEAN = 'Z';
+
+    private static final byte TIMESTAMP = 'T';
+
+    private static final byte DATE = 'D';
+
+    private static final byte DECIMAL = 'B';
+
+    private static final byte DOUBLE = 'F';
+
+    private static final byte NULL = 'N';
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * Encode the key values into a cursor
+     *
+     * @param values the sort key values, the id last
+     * @return the cursor
+     * @throws DAOException if a value is of an unsupported type
+     */
+    static String encode(Object[] values) throws DAOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(values.length);
+            for (Object value : values) {
+                write(out, value);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new DAOException(e.getMessage(), e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decode a cursor into its key values
+     *
+     * @param cursor        the cursor
+     * @param expectedCount the number of sort keys, the id included
+     * @return the key values
+     * @throws DAOException if the cursor is malformed
+     */
+    static Object[] decode(String cursor, int expectedCount) throws DAOException {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)));
+            int count = in.readUnsignedByte();
+            if (count != expectedCount) {
+                throw new DAOException("Invalid cursor: expected " + expectedCount + " keys but got " + count);
+            }
+            List<Object> values = new ArrayList<Object>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(read(in));
+            }
+            return values.toArray();
+        } catch (IOException e) {
+            throw new DAOException("Invalid cursor: " + cursor, e);
+        } catch (IllegalArgumentException e) {
+            throw new DAOException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    private static void write(DataOutputStream out, Object value) throws IOException, DAOException {
+        if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(INTEGER);
+            out.writeInt(((Number) value).intValue());
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            out.writeUTF(value.toString());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value == null) {
+            out.writeByte(NULL);
+        } else {
+            throw new DAOException("Unsupported keyset sort attribute type: " + value.getClass().getName());
+        }
+    }
+
+    private static Object read(DataInputStream in) throws IOException, DAOException {
+        byte type = in.readByte();
+        switch (type) {
+            case LONG:
+                return in.readLong();
+            case INTEGER:
+                return in.readInt();
+            case STRING:
+                return in.readUTF();
+            case BOOLEAN:
+                return in.readBoolean();
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            case DATE:
+                return new Date(in.readLong());
+            case DECIMAL:
+                return new BigDecimal(in.readUTF());
+            case DOUBLE:
+                return in.readDouble();
+            case NULL:
+                return null;
+            default:
+                throw new DAOException("Invalid cursor: unknown key type " + (char) type);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package kendoui.dao;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One page of a keyset (seek) paginated query together with the cursor to fetch the page after it.
+ */
+public class KeysetPage<T> implements Serializable {
+
+    private static final long serialVersionUID = -3164507231440914581L;
+
+    private final List<T> rows;
+
+    private final String nextCursor;
+
+    /**
+     * Constructor of KeysetPage
+     *
+     * @param rows       the rows of the page
+     * @param nextCursor the cursor of the next page or null if this is the last page
+     */
+    public KeysetPage(List<T> rows, String nextCursor) {
+        this.rows = rows;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Get the rows of KeysetPage
+     *
+     * @return the rows {@link List}
+     */
+    public List<T> getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the opaque cursor to pass to fetch the next page
+     *
+     * @return the cursor or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Whether there is a page after this one
+     *
+     * @return true if there are more rows
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
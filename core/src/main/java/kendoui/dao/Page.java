@@ -0,0 +1,103 @@
+package kendoui.dao;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One page of an offset paginated query together with the total number of rows, as needed by grids with server
+ * paging.
+ */
+public class Page<T> implements Serializable {
+
+    private static final long serialVersionUID = 6026384171893741245L;
+
+    private final List<T> rows;
+
+    private final long total;
+
+    private final int pageNumber;
+
+    private final int pageSize;
+
+    private final boolean estimated;
+
+    /**
+     * Constructor of Page
+     *
+     * @param rows       the rows of the page
+     * @param total      the number of rows of the whole query
+     * @param pageNumber the number of the page, starting at 1
+     * @param pageSize   the number of rows per page
+     * @param estimated  whether the total is a planner estimate
+     */
+    public Page(List<T> rows, long total, int pageNumber, int pageSize, boolean estimated) {
+        this.rows = rows;
+        this.total = total;
+        this.pageNumber = pageNumber;
+        this.pageSize = pageSize;
+        this.estimated = estimated;
+    }
+
+    /**
+     * Get the rows of Page
+     *
+     * @return the rows {@link List}
+     */
+    public List<T> getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the number of rows of the whole query
+     *
+     * @return the total
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Get the number of the page, starting at 1
+     *
+     * @return the page number
+     */
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    /**
+     * Get the number of rows per page
+     *
+     * @return the page size
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Get the number of pages of the whole query
+     *
+     * @return the total pages
+     */
+    public long getTotalPages() {
+        return (total + pageSize - 1) / pageSize;
+    }
+
+    /**
+     * Whether the total is a planner estimate rather than an exact count
+     *
+     * @return true if the total is estimated
+     */
+    public boolean isEstimated() {
+        return estimated;
+    }
+
+    /**
+     * Whether there is a page after this one
+     *
+     * @return true if there are more rows
+     */
+    public boolean hasNext() {
+        return (long) pageNumber * pageSize < total;
+    }
+}
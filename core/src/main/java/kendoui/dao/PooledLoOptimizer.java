@@ -0,0 +1,72 @@
+package kendoui.dao;
+
+import java.io.Serializable;
+
+import org.hibernate.HibernateException;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.OptimizerFactory;
+
+/**
+ * Id optimizer for sequences incremented by the block size. Every value <code>v</code> read from the sequence reserves
+ * the ids <code>[v, v + incrementSize)</code> to this JVM, which hands them out without going back to the database.
+ * As the sequence never returns two values less than a block apart, nodes sharing the sequence never hand out the same
+ * id, whatever the order they start in. Used with <code>SequenceStyleGenerator</code> through its
+ * <code>optimizer</code> parameter.
+ */
+public class PooledLoOptimizer extends OptimizerFactory.OptimizerSupport {
+
+    private IntegralDataTypeHolder lastSourceValue;
+
+    private IntegralDataTypeHolder value;
+
+    private IntegralDataTypeHolder upperLimit;
+
+    /**
+     * Constructor of PooledLoOptimizer, the signature <code>OptimizerFactory</code> instantiates optimizers with.
+     *
+     * @param returnClass   the type of the ids
+     * @param incrementSize the number of ids reserved per sequence value, the INCREMENT BY of the sequence
+     */
+    public PooledLoOptimizer(Class<?> returnClass, int incrementSize) {
+        super(returnClass, incrementSize);
+        if (incrementSize < 1) {
+            throw new HibernateException("increment size cannot be less than 1");
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.hibernate.id.enhanced.Optimizer#generate(org.hibernate.id.enhanced.AccessCallback)
+     */
+    @Override
+    public synchronized Serializable generate(AccessCallback callback) {
+        if (upperLimit == null || !upperLimit.gt(value)) {
+            lastSourceValue = callback.getNextValue();
+            value = lastSourceValue.copy();
+            upperLimit = lastSourceValue.copy().add(incrementSize);
+        }
+        return value.makeValueThenIncrement();
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.hibernate.id.enhanced.Optimizer#getLastSourceValue()
+     */
+    @Override
+    public synchronized IntegralDataTypeHolder getLastSourceValue() {
+        return lastSourceValue;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.hibernate.id.enhanced.Optimizer#applyIncrementSizeToSourceValues()
+     */
+    @Override
+    public boolean applyIncrementSizeToSourceValues() {
+        return true;
+    }
+}
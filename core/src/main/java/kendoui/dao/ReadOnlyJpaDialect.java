@@ -0,0 +1,98 @@
+package kendoui.dao;
+
+import java.sql.SQLException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+/**
+ * The Hibernate dialect of the transaction manager. On top of the manual flush mode Spring sets for a read-only
+ * transaction, the entities loaded during a read-only transaction are read-only: Hibernate keeps no snapshot of their
+ * state and never dirty checks them.
+ * <p/>
+ * With <code>replicaReads</code>, the read-only transactions not pinned to the primary are served by a replica which
+ * may lag behind the primary, see {@link ReplicaRoutingDataSource}. Their sessions read the second-level and query
+ * caches but never put in them, so a stale row of a replica is not served from the shared cache after the replica
+ * caught up. The cache is filled by the transactions reading from the primary.
+ */
+public class ReadOnlyJpaDialect extends HibernateJpaDialect {
+
+    private static final long serialVersionUID = 2360411785170949342L;
+
+    /**
+     * The transaction data of the parent dialect with the session switched to read-only.
+     */
+    private static class ReadOnlyTransactionData {
+
+        private final Session session;
+
+        private final boolean previousDefaultReadOnly;
+
+        private final CacheMode previousCacheMode;
+
+        private final Object transactionData;
+
+        ReadOnlyTransactionData(Session session, Object transactionData) {
+            this.session = session;
+            this.previousDefaultReadOnly = session.isDefaultReadOnly();
+            this.previousCacheMode = session.getCacheMode();
+            this.transactionData = transactionData;
+        }
+    }
+
+    private boolean replicaReads;
+
+    /**
+     * Set whether the read-only transactions may be routed to a replica, so must not fill the caches
+     *
+     * @param replicaReads true when the data source routes the read-only transactions to replicas
+     */
+    public void setReplicaReads(boolean replicaReads) {
+        this.replicaReads = replicaReads;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.springframework.orm.jpa.JpaDialect#beginTransaction(javax.persistence.EntityManager,
+     *      org.springframework.transaction.TransactionDefinition)
+     */
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException, TransactionException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly()) {
+            return transactionData;
+        }
+        Session session = getSession(entityManager);
+        ReadOnlyTransactionData readOnlyData = new ReadOnlyTransactionData(session, transactionData);
+        session.setDefaultReadOnly(true);
+        if (replicaReads && !ReadYourWrites.isPinned()) {
+            session.setCacheMode(CacheMode.GET);
+        }
+        return readOnlyData;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.springframework.orm.jpa.JpaDialect#cleanupTransaction(Object)
+     */
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReadOnlyTransactionData) {
+            ReadOnlyTransactionData readOnlyData = (ReadOnlyTransactionData) transactionData;
+            readOnlyData.session.setDefaultReadOnly(readOnlyData.previousDefaultReadOnly);
+            readOnlyData.session.setCacheMode(readOnlyData.previousCacheMode);
+            super.cleanupTransaction(readOnlyData.transactionData);
+        } else {
+            super.cleanupTransaction(transactionData);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package kendoui.dao;
+
+/**
+ * The read-your-writes state of the current request. A request pinned to the primary reads from the primary even in a
+ * read-only transaction, e.g. because the same client wrote a moment ago and the replicas may not have replayed it yet.
+ * A request is also pinned for the rest of its life once it used a read-write transaction, so it reads what it wrote.
+ * The state is per thread and must be cleared at the end of the request.
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<Boolean>();
+
+    private static final ThreadLocal<Boolean> WRITTEN = new ThreadLocal<Boolean>();
+
+    private ReadYourWrites() {
+    }
+
+    /**
+     * Send all the reads of the current request to the primary
+     */
+    public static void pinToPrimary() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    /**
+     * Get whether the reads of the current request go to the primary, because it was pinned or it wrote
+     *
+     * @return true if pinned to the primary
+     */
+    public static boolean isPinned() {
+        return PINNED.get() != null || WRITTEN.get() != null;
+    }
+
+    /**
+     * Record that the current request used a read-write transaction, pinning its next reads to the primary
+     */
+    static void markWrite() {
+        WRITTEN.set(Boolean.TRUE);
+    }
+
+    /**
+     * Get whether the current request used a read-write transaction
+     *
+     * @return true if the request may have written
+     */
+    public static boolean hasWritten() {
+        return WRITTEN.get() != null;
+    }
+
+    /**
+     * Clear the state of the current request
+     */
+    public static void clear() {
+        PINNED.remove();
+        WRITTEN.remove();
+    }
+}
@@ -0,0 +1,96 @@
+package kendoui.dao;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The changes made to reconcile a set of links with a desired list: the ids added, removed, moved, and the ids of the
+ * list which do not exist.
+ */
+public class ReconcileResult implements Serializable {
+
+    private static final long serialVersionUID = 1862297345307441127L;
+
+    private final List<Long> inserted;
+
+    private final List<Long> deleted;
+
+    private final List<Long> reordered;
+
+    private final List<Long> unknown;
+
+    private final boolean inUseChanged;
+
+    /**
+     * Constructor of ReconcileResult
+     *
+     * @param inserted     the ids added
+     * @param deleted      the ids removed
+     * @param reordered    the ids kept whose order changed
+     * @param unknown      the ids of the list which do not exist, ignored
+     * @param inUseChanged whether the inUse state of the owner changed
+     */
+    public ReconcileResult(List<Long> inserted, List<Long> deleted, List<Long> reordered, List<Long> unknown,
+                           boolean inUseChanged) {
+        this.inserted = Collections.unmodifiableList(inserted);
+        this.deleted = Collections.unmodifiableList(deleted);
+        this.reordered = Collections.unmodifiableList(reordered);
+        this.unknown = Collections.unmodifiableList(unknown);
+        this.inUseChanged = inUseChanged;
+    }
+
+    /**
+     * Get the ids added
+     *
+     * @return the ids
+     */
+    public List<Long> getInserted() {
+        return inserted;
+    }
+
+    /**
+     * Get the ids removed
+     *
+     * @return the ids
+     */
+    public List<Long> getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * Get the ids kept whose order changed
+     *
+     * @return the ids
+     */
+    public List<Long> getReordered() {
+        return reordered;
+    }
+
+    /**
+     * Get the ids of the list which do not exist, ignored
+     *
+     * @return the ids
+     */
+    public List<Long> getUnknown() {
+        return unknown;
+    }
+
+    /**
+     * Whether the inUse state of the owner changed
+     *
+     * @return true if it changed
+     */
+    public boolean isInUseChanged() {
+        return inUseChanged;
+    }
+
+    /**
+     * Whether anything changed
+     *
+     * @return true if a link was added, removed or moved
+     */
+    public boolean isChanged() {
+        return !inserted.isEmpty() || !deleted.isEmpty() || !reordered.isEmpty();
+    }
+}
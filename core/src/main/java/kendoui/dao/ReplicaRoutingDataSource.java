@@ -0,0 +1,282 @@
+package kendoui.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A data source sending the connections of read-only transactions to the replicas and all the others to the primary.
+ * <p/>
+ * The replicas are used round robin. A replica is skipped while unhealthy: when it fails to give a connection or when
+ * the periodic health check finds it down or lagging behind the primary by more than
+ * <code>maxReplicationLagMillis</code>. Without a healthy replica the reads go to the primary. A request pinned with
+ * {@link ReadYourWrites#pinToPrimary()} reads from the primary, as does a request once it used a read-write
+ * transaction.
+ * <p/>
+ * The transaction manager asks for the connection when the transaction begins, before the read-only flag is bound, so
+ * this data source must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * fetching the connection on the first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    // Milliseconds behind the primary, 0 when all the received changes are replayed, null on a database that is not a
+    // hot standby, e.g. an independent local database. PostgreSQL 10 renamed the xlog location functions to wal lsn.
+    private static final String REPLICATION_LAG_QUERY = "select case when not pg_is_in_recovery() then null "
+            + "when pg_last_%1$s() = pg_last_%2$s() then 0 "
+            + "else extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000 end";
+
+    private static final int WAL_RENAME_VERSION = 10;
+
+    /**
+     * A replica and its health.
+     */
+    private static class Replica {
+
+        private final DataSource dataSource;
+
+        private volatile boolean healthy = true;
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+
+    private DataSource primary;
+
+    private List<Replica> replicas = Collections.emptyList();
+
+    private long healthCheckIntervalMillis = 5000L;
+
+    private long maxReplicationLagMillis = 10000L;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private ScheduledExecutorService healthChecker;
+
+    /**
+     * Set the primary, receiving the writes
+     *
+     * @param primary the data source of the primary
+     */
+    public void setPrimary(DataSource primary) {
+        this.primary = primary;
+    }
+
+    /**
+     * Set the replicas, receiving the read-only transactions
+     *
+     * @param replicas the data sources of the replicas, may be empty
+     */
+    public void setReplicas(List<DataSource> replicas) {
+        List<Replica> states = new ArrayList<Replica>(replicas.size());
+        for (DataSource replica : replicas) {
+            states.add(new Replica(replica));
+        }
+        this.replicas = Collections.unmodifiableList(states);
+    }
+
+    /**
+     * Set how often the replicas are checked, 0 to not check them
+     *
+     * @param healthCheckIntervalMillis the interval in milliseconds
+     */
+    public void setHealthCheckIntervalMillis(long healthCheckIntervalMillis) {
+        this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+    }
+
+    /**
+     * Set how far behind the primary a replica may be and still be read, 0 to not check the lag
+     *
+     * @param maxReplicationLagMillis the lag in milliseconds
+     */
+    public void setMaxReplicationLagMillis(long maxReplicationLagMillis) {
+        this.maxReplicationLagMillis = maxReplicationLagMillis;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.springframework.beans.factory.InitializingBean#afterPropertiesSet()
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (primary == null) {
+            throw new IllegalArgumentException("The primary data source is required");
+        }
+        if (!replicas.isEmpty() && healthCheckIntervalMillis > 0) {
+            healthChecker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "replica-health-check");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            healthChecker.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    checkHealth();
+                }
+            }, healthCheckIntervalMillis, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.springframework.beans.factory.DisposableBean#destroy()
+     */
+    @Override
+    public void destroy() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see javax.sql.DataSource#getConnection()
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see javax.sql.DataSource#getConnection(String, String)
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (!ReadYourWrites.isPinned()) {
+                Connection connection = getReplicaConnection(username, password);
+                if (connection != null) {
+                    return connection;
+                }
+                LOG.debug("No healthy replica, reading from the primary");
+            }
+        } else if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            ReadYourWrites.markWrite();
+        }
+        return open(primary, username, password);
+    }
+
+    /**
+     * Get a connection from the next healthy replica, marking the replicas failing to give one unhealthy
+     *
+     * @param username the database user or null for the default one
+     * @param password the password of the user
+     * @return the connection or null if no replica is healthy
+     */
+    private Connection getReplicaConnection(String username, String password) {
+        int size = replicas.size();
+        int start = next.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                try {
+                    return open(replica.dataSource, username, password);
+                } catch (SQLException e) {
+                    LOG.warn("Replica {} is down: {}", replica.dataSource, e.getMessage());
+                    replica.healthy = false;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Connection open(DataSource dataSource, String username, String password) throws SQLException {
+        return username == null ? dataSource.getConnection() : dataSource.getConnection(username, password);
+    }
+
+    /**
+     * Check every replica and update its health
+     */
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            boolean healthy = isHealthy(replica.dataSource);
+            if (healthy != replica.healthy) {
+                LOG.warn("Replica {} is {}", replica.dataSource, healthy ? "back" : "unhealthy");
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    /**
+     * Get the number of replicas currently read from
+     *
+     * @return the number of healthy replicas
+     */
+    public int getHealthyReplicaCount() {
+        int count = 0;
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Return the query of the replication lag of a replica
+     *
+     * @param databaseMajorVersion the major version of the PostgreSQL server of the replica
+     * @return the query, with the function names of that version
+     */
+    static String getReplicationLagQuery(int databaseMajorVersion) {
+        return databaseMajorVersion >= WAL_RENAME_VERSION
+                ? String.format(REPLICATION_LAG_QUERY, "wal_receive_lsn", "wal_replay_lsn")
+                : String.format(REPLICATION_LAG_QUERY, "xlog_receive_location", "xlog_replay_location");
+    }
+
+    private boolean isHealthy(DataSource dataSource) {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            Statement statement = connection.createStatement();
+            try {
+                ResultSet resultSet = statement.executeQuery(getReplicationLagQuery(connection.getMetaData()
+                        .getDatabaseMajorVersion()));
+                resultSet.next();
+                double lag = resultSet.getDouble(1);
+                return resultSet.wasNull() || maxReplicationLagMillis <= 0 || lag <= maxReplicationLagMillis;
+            } finally {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            LOG.debug("Health check of replica {} failed: {}", dataSource, e.getMessage());
+            return false;
+        } finally {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    LOG.debug("Closing the health check connection failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package kendoui.dao;
+
+import kendoui.exception.DAOException;
+
+/**
+ * Callback receiving the rows of a streamed query one at a time.
+ */
+public interface RowCallback<T> {
+
+    /**
+     * Process one row. The row is detached from the persistence context once the next batch of rows is fetched, so it
+     * must not be kept for later lazy loading or updates.
+     *
+     * @param row the current row
+     * @return true to continue with the next row, false to stop streaming
+     * @throws DAOException to abort streaming
+     */
+    boolean processRow(T row) throws DAOException;
+}
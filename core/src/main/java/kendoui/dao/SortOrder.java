@@ -0,0 +1,77 @@
+package kendoui.dao;
+
+import java.io.Serializable;
+import java.util.regex.Pattern;
+
+/**
+ * An ordering on an entity attribute, e.g. <code>pointOfSaleOrder asc</code>. The attribute is a path relative to the
+ * queried entity and may navigate single valued associations, e.g. <code>pointOfSale.name</code>.
+ */
+public final class SortOrder implements Serializable {
+
+    private static final long serialVersionUID = 2877010942532811374L;
+
+    private static final Pattern ATTRIBUTE_PATH = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)*");
+
+    private final String attribute;
+
+    private final boolean ascending;
+
+    /**
+     * Constructor of SortOrder
+     *
+     * @param attribute the attribute path
+     * @param ascending true for ascending order
+     * @throws IllegalArgumentException if the attribute is not a valid attribute path
+     */
+    public SortOrder(String attribute, boolean ascending) {
+        if (attribute == null || !ATTRIBUTE_PATH.matcher(attribute).matches()) {
+            throw new IllegalArgumentException("Invalid sort attribute: " + attribute);
+        }
+        this.attribute = attribute;
+        this.ascending = ascending;
+    }
+
+    /**
+     * Create an ascending order on the attribute
+     *
+     * @param attribute the attribute path
+     * @return the sort order
+     */
+    public static SortOrder asc(String attribute) {
+        return new SortOrder(attribute, true);
+    }
+
+    /**
+     * Create a descending order on the attribute
+     *
+     * @param attribute the attribute path
+     * @return the sort order
+     */
+    public static SortOrder desc(String attribute) {
+        return new SortOrder(attribute, false);
+    }
+
+    /**
+     * Get the attribute path of SortOrder
+     *
+     * @return the attribute {@link String}
+     */
+    public String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * Whether the order is ascending
+     *
+     * @return true for ascending order
+     */
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    @Override
+    public String toString() {
+        return attribute + (ascending ? " asc" : " desc");
+    }
+}
@@ -6,20 +6,59 @@ import java.util.Set;
 
 import javax.persistence.*;
 
+import kendoui.utils.Constant;
+
 import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 /**
  * All available categories.
  */
 @Entity
 @Table(name = "CATEGORY")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@BatchSize(size = Constant.BATCH_FETCH_SIZE)
+@NamedQueries({
+        @NamedQuery(name = Category.QUERY_BY_POINT_OF_SALE, query = "select c from PointOfSaleCategory posc join posc.category c where posc.pointOfSale.id = ?1 order by posc.pointOfSaleOrder, posc.id",
+                hints = {@QueryHint(name = "org.hibernate.cacheable", value = "true")})})
+@NamedNativeQueries({
+        @NamedNativeQuery(name = Category.QUERY_DESCENDANTS, query = "select c.* from category c join (select descendant, min(depth) as depth from category_closure where ancestor = ?1 and depth > 0 group by descendant) d on d.descendant = c.id order by d.depth, c.id", resultClass = Category.class),
+        @NamedNativeQuery(name = Category.QUERY_SUBTREE, query = "select c.* from category c join (select descendant, min(depth) as depth from category_closure where ancestor = ?1 and depth <= ?2 group by descendant) d on d.descendant = c.id order by d.depth, c.id", resultClass = Category.class),
+        @NamedNativeQuery(name = Category.QUERY_ANCESTORS, query = "select c.* from category c join (select ancestor, min(depth) as depth from category_closure where descendant = ?1 and depth > 0 group by ancestor) a on a.ancestor = c.id order by a.depth, c.id", resultClass = Category.class),
+        @NamedNativeQuery(name = Category.QUERY_COUNT_PATHS, query = "select count(*) as paths from category_closure where ancestor = ?1 and descendant = ?2", resultSetMapping = "Category.paths")})
+@SqlResultSetMapping(name = "Category.paths", columns = @ColumnResult(name = "paths"))
 public class Category implements Serializable {
 
     private static final long serialVersionUID = -2639200307411049182L;
 
+    // The categories aliased c of a point of sale in point of sale order, parameter: point of sale id
+    public static final String QUERY_BY_POINT_OF_SALE = "Category.byPointOfSale";
+
+    // The descendants of a category, nearest first, parameter: category id
+    public static final String QUERY_DESCENDANTS = "Category.descendants";
+
+    // A category and its descendants down to a depth, nearest first, parameters: category id, depth
+    public static final String QUERY_SUBTREE = "Category.subtree";
+
+    // The ancestors of a category, nearest first, parameter: category id
+    public static final String QUERY_ANCESTORS = "Category.ancestors";
+
+    // The number of depths a category is reachable at from another one, parameters: ancestor id, descendant id
+    public static final String QUERY_COUNT_PATHS = "Category.countPaths";
+
+    // The table of the hierarchy, the query space of the parents and chidren collections
+    public static final String TREE_TABLE = "CATEGORY_TREE";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "CATEGORY_GENERATOR")
-    @SequenceGenerator(name = "CATEGORY_GENERATOR", sequenceName = "CATEGORY_SEQUENCE", allocationSize = 1)
+    @GeneratedValue(generator = "CATEGORY_GENERATOR")
+    @GenericGenerator(name = "CATEGORY_GENERATOR", strategy = Constant.ID_GENERATOR_STRATEGY, parameters = {
+            @Parameter(name = "sequence_name", value = "CATEGORY_SEQUENCE"),
+            @Parameter(name = "optimizer", value = Constant.ID_GENERATOR_OPTIMIZER),
+            @Parameter(name = "increment_size", value = Constant.CATEGORY_ID_BLOCK_SIZE)})
     @Column(length = 32, name = "ID")
     private Long id;
 
@@ -32,10 +71,14 @@ public class Category implements Serializable {
     private DefaultText description;
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @BatchSize(size = Constant.BATCH_FETCH_SIZE)
     @JoinTable(name = "CATEGORY_TREE", joinColumns = @JoinColumn(name = "Child", referencedColumnName = "ID"), inverseJoinColumns = @JoinColumn(name = "Parent", referencedColumnName = "ID"))
     private Set<Category> parents;
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @BatchSize(size = Constant.BATCH_FETCH_SIZE)
     @JoinTable(name = "CATEGORY_TREE", joinColumns = @JoinColumn(name = "Parent", referencedColumnName = "ID"), inverseJoinColumns = @JoinColumn(name = "Child", referencedColumnName = "ID"))
     private Set<Category> chidren;
 
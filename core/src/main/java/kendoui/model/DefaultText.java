@@ -5,7 +5,14 @@ import java.sql.Timestamp;
 
 import javax.persistence.*;
 
+import kendoui.utils.Constant;
+
 import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 /**
  * This is the default english text that is linked into the text for other locales. Default locale should be set in the
@@ -13,6 +20,8 @@ import org.apache.commons.lang.builder.HashCodeBuilder;
  */
 @Entity
 @Table(name = "DEFAULT_TEXT")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@BatchSize(size = Constant.BATCH_FETCH_SIZE)
 public class DefaultText implements Serializable {
 
     private static final long serialVersionUID = -7496867103742713462L;
@@ -26,8 +35,11 @@ public class DefaultText implements Serializable {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "DEFAULT_TEXT_GENERATOR")
-    @SequenceGenerator(name = "DEFAULT_TEXT_GENERATOR", sequenceName = "DEFAULT_TEXT_SEQUENCE", allocationSize = 1)
+    @GeneratedValue(generator = "DEFAULT_TEXT_GENERATOR")
+    @GenericGenerator(name = "DEFAULT_TEXT_GENERATOR", strategy = Constant.ID_GENERATOR_STRATEGY, parameters = {
+            @Parameter(name = "sequence_name", value = "DEFAULT_TEXT_SEQUENCE"),
+            @Parameter(name = "optimizer", value = Constant.ID_GENERATOR_OPTIMIZER),
+            @Parameter(name = "increment_size", value = Constant.DEFAULT_TEXT_ID_BLOCK_SIZE)})
     @Column(length = 32, name = "ID")
     private long id;
 
@@ -5,20 +5,30 @@ import java.sql.Timestamp;
 
 import javax.persistence.*;
 
+import kendoui.utils.Constant;
+
 import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 /**
  * For separating the category trees into different point of sales for player. E.g. In-Game store vs. web store.
  */
 @Entity
 @Table(name = "POINT_OF_SALE")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class PointOfSale implements Serializable {
 
     private static final long serialVersionUID = 3261210656265786526L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "POINT_OF_SALE_GENERATOR")
-    @SequenceGenerator(name = "POINT_OF_SALE_GENERATOR", sequenceName = "POINT_OF_SALE_SEQUENCE", allocationSize = 1)
+    @GeneratedValue(generator = "POINT_OF_SALE_GENERATOR")
+    @GenericGenerator(name = "POINT_OF_SALE_GENERATOR", strategy = Constant.ID_GENERATOR_STRATEGY, parameters = {
+            @Parameter(name = "sequence_name", value = "POINT_OF_SALE_SEQUENCE"),
+            @Parameter(name = "optimizer", value = Constant.ID_GENERATOR_OPTIMIZER),
+            @Parameter(name = "increment_size", value = Constant.POINT_OF_SALE_ID_BLOCK_SIZE)})
     @Column(length = 32, name = "ID")
     private Long id;
 
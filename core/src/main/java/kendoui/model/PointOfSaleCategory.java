@@ -5,20 +5,48 @@ import java.sql.Timestamp;
 
 import javax.persistence.*;
 
+import kendoui.utils.Constant;
+
 import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 /**
  * Which categories the PointOfSale belongs to. PointOfSale can belong to multiple categories.
  */
 @Entity
 @Table(name = "POINT_OF_SALE_CATEGORY")
+@NamedQueries({
+        @NamedQuery(name = PointOfSaleCategory.QUERY_BY_POINT_OF_SALE, query = "select distinct posc from PointOfSaleCategory posc where posc.pointOfSale.id = ?1"),
+        @NamedQuery(name = PointOfSaleCategory.QUERY_BY_POINT_OF_SALE_AND_CATEGORY, query = "select distinct posc from PointOfSaleCategory posc where posc.pointOfSale.id = ?1 and posc.category.id = ?2"),
+        @NamedQuery(name = PointOfSaleCategory.QUERY_BY_CATEGORY, query = "from PointOfSaleCategory posc where posc.category.id = ?1"),
+        @NamedQuery(name = PointOfSaleCategory.QUERY_CATEGORY_TREE, query = "select c from PointOfSaleCategory posc join posc.category c where posc.pointOfSale.id = ?1"),
+        @NamedQuery(name = PointOfSaleCategory.QUERY_ROWS_BY_POINT_OF_SALE, query = "select new kendoui.model.PointOfSaleCategoryRow(posc.id, p.id, p.name, c.id, n.text, d.text, posc.pointOfSaleOrder, c.inUse, posc.lastUpdated) from PointOfSaleCategory posc join posc.pointOfSale p join posc.category c left join c.name n left join c.description d where p.id = ?1 order by posc.pointOfSaleOrder, posc.id")})
 public class PointOfSaleCategory implements Serializable {
 
     private static final long serialVersionUID = -4577207857839566760L;
 
+    // The categories links aliased posc of a point of sale, parameter: point of sale id
+    public static final String QUERY_BY_POINT_OF_SALE = "PointOfSaleCategory.byPointOfSale";
+
+    // The link between a point of sale and a category, parameters: point of sale id, category id
+    public static final String QUERY_BY_POINT_OF_SALE_AND_CATEGORY = "PointOfSaleCategory.byPointOfSaleAndCategory";
+
+    // The point of sale links of a category, parameter: category id
+    public static final String QUERY_BY_CATEGORY = "PointOfSaleCategory.byCategory";
+
+    // The categories aliased c of a point of sale, parameter: point of sale id
+    public static final String QUERY_CATEGORY_TREE = "PointOfSaleCategory.categoryTree";
+
+    // The grid rows of a point of sale as read models, parameter: point of sale id
+    public static final String QUERY_ROWS_BY_POINT_OF_SALE = "PointOfSaleCategory.rowsByPointOfSale";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "POINT_OF_SALE_CATEGORY_GENERATOR")
-    @SequenceGenerator(name = "POINT_OF_SALE_CATEGORY_GENERATOR", sequenceName = "POINT_OF_SALE_CATEGORY_SEQUENCE", allocationSize = 1)
+    @GeneratedValue(generator = "POINT_OF_SALE_CATEGORY_GENERATOR")
+    @GenericGenerator(name = "POINT_OF_SALE_CATEGORY_GENERATOR", strategy = Constant.ID_GENERATOR_STRATEGY, parameters = {
+            @Parameter(name = "sequence_name", value = "POINT_OF_SALE_CATEGORY_SEQUENCE"),
+            @Parameter(name = "optimizer", value = Constant.ID_GENERATOR_OPTIMIZER),
+            @Parameter(name = "increment_size", value = Constant.POINT_OF_SALE_CATEGORY_ID_BLOCK_SIZE)})
     @Column(length = 32, name = "ID")
     private long id;
 
@@ -0,0 +1,132 @@
+package kendoui.model;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * Read model of a row of the point of sale category grid, built straight from the query result without loading the
+ * entities, see {@link PointOfSaleCategory#QUERY_ROWS_BY_POINT_OF_SALE}.
+ */
+public class PointOfSaleCategoryRow implements Serializable {
+
+    private static final long serialVersionUID = 6108723374160542271L;
+
+    private final long id;
+
+    private final long pointOfSaleId;
+
+    private final String pointOfSaleName;
+
+    private final long categoryId;
+
+    private final String categoryName;
+
+    private final String categoryDescription;
+
+    private final int pointOfSaleOrder;
+
+    private final boolean categoryInUse;
+
+    private final Timestamp lastUpdated;
+
+    /**
+     * Constructor of PointOfSaleCategoryRow, in the order of the select list of the row queries. The version is
+     * declared as a {@link Date} as Hibernate types timestamps, it is the {@link Timestamp} read from the database.
+     */
+    public PointOfSaleCategoryRow(Long id, Long pointOfSaleId, String pointOfSaleName, Long categoryId,
+                                  String categoryName, String categoryDescription, Integer pointOfSaleOrder,
+                                  Boolean categoryInUse, Date lastUpdated) {
+        this.id = id;
+        this.pointOfSaleId = pointOfSaleId;
+        this.pointOfSaleName = pointOfSaleName;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.categoryDescription = categoryDescription;
+        this.pointOfSaleOrder = pointOfSaleOrder;
+        this.categoryInUse = Boolean.TRUE.equals(categoryInUse);
+        this.lastUpdated = lastUpdated == null || lastUpdated instanceof Timestamp ? (Timestamp) lastUpdated
+                : new Timestamp(lastUpdated.getTime());
+    }
+
+    /**
+     * Get the id of the point of sale category
+     *
+     * @return the id
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Get the id of the point of sale
+     *
+     * @return the point of sale id
+     */
+    public long getPointOfSaleId() {
+        return pointOfSaleId;
+    }
+
+    /**
+     * Get the name of the point of sale
+     *
+     * @return the point of sale name
+     */
+    public String getPointOfSaleName() {
+        return pointOfSaleName;
+    }
+
+    /**
+     * Get the id of the category
+     *
+     * @return the category id
+     */
+    public long getCategoryId() {
+        return categoryId;
+    }
+
+    /**
+     * Get the default text of the category name
+     *
+     * @return the category name, null if the category has none
+     */
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    /**
+     * Get the default text of the category description
+     *
+     * @return the category description, null if the category has none
+     */
+    public String getCategoryDescription() {
+        return categoryDescription;
+    }
+
+    /**
+     * Get the position of the category in the point of sale
+     *
+     * @return the point of sale order
+     */
+    public int getPointOfSaleOrder() {
+        return pointOfSaleOrder;
+    }
+
+    /**
+     * Get whether the category is used by a point of sale
+     *
+     * @return the inUse of the category
+     */
+    public boolean isCategoryInUse() {
+        return categoryInUse;
+    }
+
+    /**
+     * Get the version of the point of sale category, to merge an edit of the row
+     *
+     * @return the lastUpdated {@link java.sql.Timestamp}
+     */
+    public Timestamp getLastUpdated() {
+        return lastUpdated;
+    }
+}
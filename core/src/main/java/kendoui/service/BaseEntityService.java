@@ -1,14 +1,28 @@
 package kendoui.service;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.*;
 
+import kendoui.dao.BatchResult;
+import kendoui.dao.CountMode;
+import kendoui.dao.DataSourceFields;
+import kendoui.dao.DataSourceGroup;
+import kendoui.dao.DataSourceRequest;
 import kendoui.dao.IDao;
+import kendoui.dao.Page;
 import kendoui.exception.BusinessException;
+import kendoui.exception.DAOException;
+
+import org.springframework.transaction.annotation.Transactional;
 
 /**
- * The base service for all the service classes.
+ * The base service for all the service classes. The read methods run in a read-only transaction when not called
+ * within a transaction: nothing is flushed and the entities read are not dirty checked.
  */
 public abstract class BaseEntityService<T> implements IEntityService<T> {
 
@@ -33,6 +47,7 @@ public abstract class BaseEntityService<T> implements IEntityService<T> {
      * @see kendoui.service.IEntityService#getItemById(Long)
      */
     @Override
+    @Transactional(value = CONTENT_TXM, readOnly = true)
     public T getItemById(Long id) throws BusinessException {
         try {
             return getDao().find(id);
@@ -81,6 +96,10 @@ public abstract class BaseEntityService<T> implements IEntityService<T> {
     @Override
     public T update(T entity) throws BusinessException {
         try {
+            Object lastUpdated = getDao().getEntityMetadata().getVersion(entity);
+            if (lastUpdated instanceof Timestamp) {
+                return getDao().merge(entity, (Timestamp) lastUpdated);
+            }
             return getDao().merge(entity);
         } catch (IllegalArgumentException e) {
             throw new BusinessException(e.getMessage(), e);
@@ -128,6 +147,63 @@ public abstract class BaseEntityService<T> implements IEntityService<T> {
     }
 
 
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.IEntityService#createAll(java.util.Collection)
+     */
+    @Override
+    public BatchResult<T> createAll(Collection<T> entities) throws BusinessException {
+        try {
+            return getDao().persistAll(entities);
+        } catch (TransactionRequiredException e) {
+            throw new BusinessException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.IEntityService#saveAll(java.util.Collection)
+     */
+    @Override
+    public BatchResult<T> saveAll(Collection<T> entities) throws BusinessException {
+        List<T> updates = new ArrayList<T>();
+        List<Integer> updateIndexes = new ArrayList<Integer>();
+        List<T> creates = new ArrayList<T>();
+        List<Integer> createIndexes = new ArrayList<Integer>();
+        int index = 0;
+        for (T entity : entities) {
+            if (contains(entity)) {
+                updates.add(entity);
+                updateIndexes.add(index++);
+            } else {
+                creates.add(entity);
+                createIndexes.add(index++);
+            }
+        }
+        try {
+            // Put the outcomes of both writes back in the order of the collection
+            List<BatchResult.Outcome<T>> outcomes = new ArrayList<BatchResult.Outcome<T>>(index);
+            for (int i = 0; i < index; i++) {
+                outcomes.add(null);
+            }
+            for (BatchResult.Outcome<T> outcome : getDao().mergeAll(updates).getOutcomes()) {
+                int position = updateIndexes.get(outcome.getIndex());
+                outcomes.set(position, new BatchResult.Outcome<T>(position, outcome.getEntity(), outcome.getStatus(),
+                        outcome.getError()));
+            }
+            for (BatchResult.Outcome<T> outcome : getDao().persistAll(creates).getOutcomes()) {
+                int position = createIndexes.get(outcome.getIndex());
+                outcomes.set(position, new BatchResult.Outcome<T>(position, outcome.getEntity(), outcome.getStatus(),
+                        outcome.getError()));
+            }
+            return new BatchResult<T>(outcomes);
+        } catch (TransactionRequiredException e) {
+            throw new BusinessException(e.getMessage(), e);
+        }
+    }
+
     /**
      * (non-Javadoc)
      *
@@ -158,6 +234,7 @@ public abstract class BaseEntityService<T> implements IEntityService<T> {
      * @see IEntityService#getList()
      */
     @Override
+    @Transactional(value = CONTENT_TXM, readOnly = true)
     public List<T> getList() throws BusinessException {
         return getDao().getList();
     }
@@ -168,17 +245,100 @@ public abstract class BaseEntityService<T> implements IEntityService<T> {
      * @see kendoui.service.IEntityService#getListByCriteria(String, String, String, int, int) L
      */
     @Override
+    @Transactional(value = CONTENT_TXM, readOnly = true)
     public List<T> getByList(String query, int offset, int count, Object... args) throws BusinessException {
         return getDao().getByList(query, offset, count, args);
     }
 
 
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.IEntityService#getPage(String, int, int, kendoui.dao.CountMode, Object[])
+     */
+    @Override
+    @Transactional(value = CONTENT_TXM, readOnly = true)
+    public Page<T> getPage(String query, int pageSize, int pageNumber, CountMode countMode, Object... args)
+            throws BusinessException {
+        try {
+            return getDao().queryByPage(query, pageSize, pageNumber, countMode, args);
+        } catch (DAOException e) {
+            throw new BusinessException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.IEntityService#getPage(DataSourceRequest, DataSourceFields, CountMode)
+     */
+    @Override
+    @Transactional(value = CONTENT_TXM, readOnly = true)
+    public Page<T> getPage(DataSourceRequest request, DataSourceFields fields, CountMode countMode)
+            throws BusinessException {
+        try {
+            return getDao().queryByDataSource(request, fields, countMode);
+        } catch (DAOException e) {
+            throw new BusinessException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.IEntityService#getGroups(DataSourceRequest, DataSourceFields)
+     */
+    @Override
+    @Transactional(value = CONTENT_TXM, readOnly = true)
+    public Page<DataSourceGroup> getGroups(DataSourceRequest request, DataSourceFields fields)
+            throws BusinessException {
+        try {
+            return getDao().queryGroupsByDataSource(request, fields);
+        } catch (DAOException e) {
+            throw new BusinessException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.IEntityService#getAggregates(DataSourceRequest, DataSourceFields)
+     */
+    @Override
+    @Transactional(value = CONTENT_TXM, readOnly = true)
+    public Map<String, Map<String, Object>> getAggregates(DataSourceRequest request, DataSourceFields fields)
+            throws BusinessException {
+        try {
+            return getDao().queryAggregatesByDataSource(request, fields);
+        } catch (DAOException e) {
+            throw new BusinessException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.IEntityService#getProjection(String, Class, Object[])
+     */
+    @Override
+    @Transactional(value = CONTENT_TXM, readOnly = true)
+    public <P> List<P> getProjection(String query, Class<P> type, Object... args) throws BusinessException {
+        try {
+            return getDao().queryByProjection(query, type, args);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(e.getMessage(), e);
+        } catch (PersistenceException e) {
+            throw new BusinessException(e.getMessage(), e);
+        }
+    }
+
     /**
      * (non-Javadoc)
      *
      * @see kendoui.service.IEntityService#getLastRecord(Class)
      */
     @Override
+    @Transactional(value = CONTENT_TXM, readOnly = true)
     public T getLastRecord(Class<T> clazz) {
         return getDao().getLastRecord(clazz);
     }
@@ -1,10 +1,18 @@
 package kendoui.service;
 
+import kendoui.dao.BatchResult;
+import kendoui.dao.CountMode;
+import kendoui.dao.DataSourceFields;
+import kendoui.dao.DataSourceGroup;
+import kendoui.dao.DataSourceRequest;
 import kendoui.dao.IDao;
+import kendoui.dao.Page;
 import kendoui.exception.BusinessException;
 
 import javax.persistence.Query;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface IEntityService<T> {
 
@@ -68,6 +76,26 @@ public interface IEntityService<T> {
      */
     T save(T entity) throws BusinessException;
 
+    /**
+     * Make the instances managed and persistent in bulk, using JDBC batching. A failing row does not roll back the
+     * others, see {@link kendoui.dao.IDao#persistAll(Collection)}; the entities managed before are detached.
+     *
+     * @param entities entity instances
+     * @return the outcome of each row, in the order of the collection
+     * @throws BusinessException
+     */
+    BatchResult<T> createAll(Collection<T> entities) throws BusinessException;
+
+    /**
+     * Update the managed instances and create the other ones in bulk, using JDBC batching. A failing row does not roll
+     * back the others, see {@link kendoui.dao.IDao#mergeAll(Collection)}; the entities managed before are detached.
+     *
+     * @param entities entity instances
+     * @return the outcome of each row, in the order of the collection
+     * @throws BusinessException
+     */
+    BatchResult<T> saveAll(Collection<T> entities) throws BusinessException;
+
     /**
      * Set dao instance
      *
@@ -114,6 +142,69 @@ public interface IEntityService<T> {
 
 
 
+    /**
+     * Return one page of entities together with the total number of rows of the query, as needed by grids with server
+     * paging.
+     *
+     * @param query      a Java Persistence query string, not grouped
+     * @param pageSize   Number of entity per page
+     * @param pageNumber Page to display, starting at 1
+     * @param countMode  how the total is counted
+     * @param args       an object array of query parameters
+     * @return the page and the total
+     * @throws BusinessException if the query can not be counted
+     */
+    Page<T> getPage(String query, int pageSize, int pageNumber, CountMode countMode, Object... args)
+            throws BusinessException;
+
+    /**
+     * Return the page of entities asked by a Kendo UI DataSource with server filtering, sorting and paging, see
+     * {@link kendoui.dao.IDao#queryByDataSource(DataSourceRequest, DataSourceFields, CountMode)}.
+     *
+     * @param request   the filter, sort and page of the DataSource
+     * @param fields    the fields the request may filter and sort on
+     * @param countMode how the total is counted
+     * @return the page and the total
+     * @throws BusinessException if the request uses a field not exposed or a value does not convert
+     */
+    Page<T> getPage(DataSourceRequest request, DataSourceFields fields, CountMode countMode) throws BusinessException;
+
+    /**
+     * Return a page of the groups of the outermost grouping of a Kendo UI DataSource request, see
+     * {@link kendoui.dao.IDao#queryGroupsByDataSource(DataSourceRequest, DataSourceFields)}.
+     *
+     * @param request the filter, groups and page of the DataSource
+     * @param fields  the fields the request may filter, group and aggregate on
+     * @return the page of groups and the number of groups
+     * @throws BusinessException if the request is not grouped or uses a field not exposed
+     */
+    Page<DataSourceGroup> getGroups(DataSourceRequest request, DataSourceFields fields) throws BusinessException;
+
+    /**
+     * Return the aggregates of all the rows of the filter of a Kendo UI DataSource request, see
+     * {@link kendoui.dao.IDao#queryAggregatesByDataSource(DataSourceRequest, DataSourceFields)}.
+     *
+     * @param request the filter and aggregates of the DataSource
+     * @param fields  the fields the request may filter and aggregate on
+     * @return the aggregates by field then aggregate name
+     * @throws BusinessException if the request uses a field not exposed
+     */
+    Map<String, Map<String, Object>> getAggregates(DataSourceRequest request, DataSourceFields fields)
+            throws BusinessException;
+
+    /**
+     * Return the rows of the given query mapped to a read model, without loading any entity, see
+     * {@link kendoui.dao.IDao#queryByProjection(String, Class, Object[])}.
+     *
+     * @param query a Java Persistence query string with a constructor expression of the read model
+     * @param type  the class of the read model
+     * @param args  an object array of query parameters
+     * @param <P>
+     * @return the rows or an empty list if nothing matches
+     * @throws BusinessException if the query is invalid
+     */
+    <P> List<P> getProjection(String query, Class<P> type, Object... args) throws BusinessException;
+
     /**
      * Get last record for the entity.
      *
@@ -0,0 +1,490 @@
+package kendoui.utils;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import kendoui.dao.CopyWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fill the catalog tables with synthetic data of a given shape, for benchmarks and load tests: points of sale,
+ * categories arranged in a DAG of a given depth and fan-out, their texts and the categories of each point of sale.
+ * The same seed and shape always generate the same rows. The rows are streamed with COPY, the closure triggers are
+ * disabled during the load and the closure of the new categories is computed once at the end.
+ * <p/>
+ * Ids are taken from the entity sequences like the id generators do, so a catalog can be added to a database which
+ * has one already, even while application nodes hold blocks of ids; the sequences are then moved past the generated
+ * ids, never back.
+ */
+public class CatalogDataGenerator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CatalogDataGenerator.class);
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    private static final String[] TABLES = {"default_text", "category", "category_tree", "point_of_sale",
+            "point_of_sale_category", "category_closure"};
+
+    // The closure of the new categories, as in the closure migration: new categories only have new ancestors
+    private static final String INSERT_CLOSURE = "INSERT INTO category_closure (ancestor, descendant, depth, paths)"
+            + " WITH RECURSIVE path (ancestor, descendant, depth) AS ("
+            + " SELECT id, id, 0 FROM category WHERE id >= %d"
+            + " UNION ALL"
+            + " SELECT path.ancestor, category_tree.child, path.depth + 1"
+            + " FROM path JOIN category_tree ON category_tree.parent = path.descendant)"
+            + " SELECT ancestor, descendant, depth, count(*) FROM path GROUP BY ancestor, descendant, depth";
+
+    /**
+     * The ids and counts of a generated catalog.
+     */
+    public static final class Catalog {
+
+        private final long firstPointOfSaleId;
+
+        private final int pointOfSaleCount;
+
+        private final long firstCategoryId;
+
+        private final int categoryCount;
+
+        private final long edgeCount;
+
+        private final long pointOfSaleCategoryCount;
+
+        Catalog(long firstPointOfSaleId, int pointOfSaleCount, long firstCategoryId, int categoryCount,
+                long edgeCount, long pointOfSaleCategoryCount) {
+            this.firstPointOfSaleId = firstPointOfSaleId;
+            this.pointOfSaleCount = pointOfSaleCount;
+            this.firstCategoryId = firstCategoryId;
+            this.categoryCount = categoryCount;
+            this.edgeCount = edgeCount;
+            this.pointOfSaleCategoryCount = pointOfSaleCategoryCount;
+        }
+
+        /**
+         * Get the id of the first point of sale, the others follow
+         *
+         * @return the id
+         */
+        public long getFirstPointOfSaleId() {
+            return firstPointOfSaleId;
+        }
+
+        /**
+         * Get the number of points of sale
+         *
+         * @return the count
+         */
+        public int getPointOfSaleCount() {
+            return pointOfSaleCount;
+        }
+
+        /**
+         * Get the id of the first category, a root, the others follow level by level
+         *
+         * @return the id
+         */
+        public long getFirstCategoryId() {
+            return firstCategoryId;
+        }
+
+        /**
+         * Get the number of categories
+         *
+         * @return the count
+         */
+        public int getCategoryCount() {
+            return categoryCount;
+        }
+
+        /**
+         * Get the number of category_tree edges
+         *
+         * @return the count
+         */
+        public long getEdgeCount() {
+            return edgeCount;
+        }
+
+        /**
+         * Get the number of point_of_sale_category rows
+         *
+         * @return the count
+         */
+        public long getPointOfSaleCategoryCount() {
+            return pointOfSaleCategoryCount;
+        }
+    }
+
+    private long seed = 42L;
+
+    private int pointOfSaleCount = 100;
+
+    private int categoriesPerPointOfSale = 20;
+
+    private int rootCount = 1;
+
+    private int treeDepth = 4;
+
+    private int fanOut = 5;
+
+    private double extraParentRatio = 0.1;
+
+    private int minTextLength = 10;
+
+    private int maxTextLength = 60;
+
+    private double inUseRatio = 0.5;
+
+    /**
+     * Set the seed of the random choices, the same seed generates the same catalog
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Set the number of points of sale
+     *
+     * @param pointOfSaleCount the count
+     */
+    public void setPointOfSaleCount(int pointOfSaleCount) {
+        this.pointOfSaleCount = pointOfSaleCount;
+    }
+
+    /**
+     * Set the number of distinct categories of each point of sale
+     *
+     * @param categoriesPerPointOfSale the count, at most the number of categories
+     */
+    public void setCategoriesPerPointOfSale(int categoriesPerPointOfSale) {
+        this.categoriesPerPointOfSale = categoriesPerPointOfSale;
+    }
+
+    /**
+     * Set the number of categories without parent
+     *
+     * @param rootCount the count
+     */
+    public void setRootCount(int rootCount) {
+        this.rootCount = rootCount;
+    }
+
+    /**
+     * Set the number of levels of the category hierarchy
+     *
+     * @param treeDepth the depth, 1 for roots only
+     */
+    public void setTreeDepth(int treeDepth) {
+        this.treeDepth = treeDepth;
+    }
+
+    /**
+     * Set the number of children of each category above the last level
+     *
+     * @param fanOut the fan-out
+     */
+    public void setFanOut(int fanOut) {
+        this.fanOut = fanOut;
+    }
+
+    /**
+     * Set the share of the categories given a second parent in the level above, which makes the hierarchy a DAG
+     *
+     * @param extraParentRatio the ratio, between 0 and 1
+     */
+    public void setExtraParentRatio(double extraParentRatio) {
+        this.extraParentRatio = extraParentRatio;
+    }
+
+    /**
+     * Set the minimum length of the texts
+     *
+     * @param minTextLength the length, at least 1
+     */
+    public void setMinTextLength(int minTextLength) {
+        this.minTextLength = minTextLength;
+    }
+
+    /**
+     * Set the maximum length of the texts
+     *
+     * @param maxTextLength the length
+     */
+    public void setMaxTextLength(int maxTextLength) {
+        this.maxTextLength = maxTextLength;
+    }
+
+    /**
+     * Set the share of the categories in use, a point of sale is in use when one of its categories is
+     *
+     * @param inUseRatio the ratio, between 0 and 1
+     */
+    public void setInUseRatio(double inUseRatio) {
+        this.inUseRatio = inUseRatio;
+    }
+
+    /**
+     * Get the number of categories of the shape
+     *
+     * @return the count
+     */
+    public int getCategoryCount() {
+        long count = 0;
+        long level = rootCount;
+        for (int depth = 0; depth < treeDepth; depth++) {
+            count += level;
+            if (count > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many categories, more than " + Integer.MAX_VALUE);
+            }
+            level *= fanOut;
+        }
+        return (int) count;
+    }
+
+    /**
+     * Generate a catalog in one transaction
+     *
+     * @param connection a connection to the database, owner of the catalog tables as the closure triggers are
+     *                   disabled during the load
+     * @return the ids and counts of the catalog
+     * @throws SQLException if the catalog can not be loaded, nothing is loaded then
+     */
+    public Catalog generate(Connection connection) throws SQLException {
+        int categoryCount = getCategoryCount();
+        if (categoriesPerPointOfSale > categoryCount || minTextLength < 1 || maxTextLength < minTextLength) {
+            throw new IllegalArgumentException("Invalid shape: " + categoriesPerPointOfSale
+                    + " categories per point of sale out of " + categoryCount + ", texts of " + minTextLength
+                    + " to " + maxTextLength + " characters");
+        }
+        long start = System.currentTimeMillis();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        Statement statement = connection.createStatement();
+        try {
+            long firstTextId = nextId(statement, "default_text_sequence");
+            long firstCategoryId = nextId(statement, "category_sequence");
+            long firstPointOfSaleId = nextId(statement, "point_of_sale_sequence");
+            long firstPointOfSaleCategoryId = nextId(statement, "point_of_sale_category_sequence");
+
+            statement.execute("ALTER TABLE category DISABLE TRIGGER category_closure_self_trigger");
+            statement.execute("ALTER TABLE category_tree DISABLE TRIGGER category_tree_closure_trigger");
+
+            BitSet inUse = new BitSet(categoryCount);
+            Random random = new Random(seed);
+            for (int i = 0; i < categoryCount; i++) {
+                if (random.nextDouble() < inUseRatio) {
+                    inUse.set(i);
+                }
+            }
+            copyTexts(connection, firstTextId, categoryCount);
+            copyCategories(connection, firstCategoryId, firstTextId, categoryCount, inUse);
+            long edgeCount = copyTree(connection, firstCategoryId);
+            copyPointOfSales(connection, firstPointOfSaleId, categoryCount, inUse);
+            long pointOfSaleCategoryCount = copyPointOfSaleCategories(connection, firstPointOfSaleCategoryId,
+                    firstPointOfSaleId, firstCategoryId, categoryCount);
+
+            statement.executeUpdate(String.format(INSERT_CLOSURE, firstCategoryId));
+            statement.execute("ALTER TABLE category ENABLE TRIGGER category_closure_self_trigger");
+            statement.execute("ALTER TABLE category_tree ENABLE TRIGGER category_tree_closure_trigger");
+
+            advanceSequence(statement, "default_text_sequence", Constant.DEFAULT_TEXT_ID_BLOCK_SIZE,
+                    firstTextId + 2L * categoryCount);
+            advanceSequence(statement, "category_sequence", Constant.CATEGORY_ID_BLOCK_SIZE,
+                    firstCategoryId + categoryCount);
+            advanceSequence(statement, "point_of_sale_sequence", Constant.POINT_OF_SALE_ID_BLOCK_SIZE,
+                    firstPointOfSaleId + pointOfSaleCount);
+            advanceSequence(statement, "point_of_sale_category_sequence",
+                    Constant.POINT_OF_SALE_CATEGORY_ID_BLOCK_SIZE,
+                    firstPointOfSaleCategoryId + pointOfSaleCategoryCount);
+            for (String table : TABLES) {
+                statement.execute("ANALYZE " + table);
+            }
+            connection.commit();
+            LOG.info("Generated {} points of sale, {} categories, {} edges and {} point of sale categories in {} ms",
+                    new Object[]{pointOfSaleCount, categoryCount, edgeCount, pointOfSaleCategoryCount,
+                            System.currentTimeMillis() - start});
+            return new Catalog(firstPointOfSaleId, pointOfSaleCount, firstCategoryId, categoryCount, edgeCount,
+                    pointOfSaleCategoryCount);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } catch (RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            statement.close();
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Two texts per category, its name then its description
+     */
+    private void copyTexts(Connection connection, long firstTextId, int categoryCount) throws SQLException {
+        Random random = new Random(seed + 1);
+        CopyWriter writer = new CopyWriter(connection, "default_text (id, text)");
+        try {
+            for (int i = 0; i < 2 * categoryCount; i++) {
+                writer.row(firstTextId + i, text(random));
+            }
+            writer.finish();
+        } finally {
+            writer.cancel();
+        }
+    }
+
+    private void copyCategories(Connection connection, long firstCategoryId, long firstTextId, int categoryCount,
+                                BitSet inUse) throws SQLException {
+        CopyWriter writer = new CopyWriter(connection, "category (id, name, description, inuse)");
+        try {
+            for (int i = 0; i < categoryCount; i++) {
+                writer.row(firstCategoryId + i, firstTextId + 2 * i, firstTextId + 2 * i + 1, inUse.get(i));
+            }
+            writer.finish();
+        } finally {
+            writer.cancel();
+        }
+    }
+
+    /**
+     * The categories are numbered level by level: child c of category p of a level is at the start of the next level
+     * plus p * fanOut + c. Some get a second parent in the level above.
+     */
+    private long copyTree(Connection connection, long firstCategoryId) throws SQLException {
+        Random random = new Random(seed + 2);
+        CopyWriter writer = new CopyWriter(connection, "category_tree (parent, child)");
+        try {
+            long levelStart = firstCategoryId;
+            long levelSize = rootCount;
+            for (int depth = 1; depth < treeDepth; depth++) {
+                long childStart = levelStart + levelSize;
+                for (long p = 0; p < levelSize; p++) {
+                    for (int c = 0; c < fanOut; c++) {
+                        long child = childStart + p * fanOut + c;
+                        writer.row(levelStart + p, child);
+                        if (levelSize > 1 && random.nextDouble() < extraParentRatio) {
+                            long other = (p + 1 + (long) (random.nextDouble() * (levelSize - 1))) % levelSize;
+                            writer.row(levelStart + other, child);
+                        }
+                    }
+                }
+                levelStart = childStart;
+                levelSize *= fanOut;
+            }
+            return writer.finish();
+        } finally {
+            writer.cancel();
+        }
+    }
+
+    private void copyPointOfSales(Connection connection, long firstPointOfSaleId, int categoryCount, BitSet inUse)
+            throws SQLException {
+        Random random = new Random(seed + 3);
+        Random texts = new Random(seed + 4);
+        CopyWriter writer = new CopyWriter(connection, "point_of_sale (id, name, inuse)");
+        try {
+            for (int i = 0; i < pointOfSaleCount; i++) {
+                boolean used = false;
+                for (int category : categoriesOf(random, categoryCount)) {
+                    used |= inUse.get(category);
+                }
+                writer.row(firstPointOfSaleId + i, text(texts), used);
+            }
+            writer.finish();
+        } finally {
+            writer.cancel();
+        }
+    }
+
+    private long copyPointOfSaleCategories(Connection connection, long firstId, long firstPointOfSaleId,
+                                           long firstCategoryId, int categoryCount) throws SQLException {
+        // The same draws as for the inUse state of the points of sale
+        Random random = new Random(seed + 3);
+        CopyWriter writer = new CopyWriter(connection,
+                "point_of_sale_category (id, pointofsale, category, pointofsaleorder)");
+        try {
+            long id = firstId;
+            for (int i = 0; i < pointOfSaleCount; i++) {
+                int order = 0;
+                for (int category : categoriesOf(random, categoryCount)) {
+                    writer.row(id++, firstPointOfSaleId + i, firstCategoryId + category, order);
+                    order += Constant.POINT_OF_SALE_ORDER_GAP;
+                }
+            }
+            return writer.finish();
+        } finally {
+            writer.cancel();
+        }
+    }
+
+    /**
+     * Draw the distinct categories of a point of sale, Floyd's sampling
+     *
+     * @return the category indexes, in the order of the point of sale
+     */
+    private int[] categoriesOf(Random random, int categoryCount) {
+        Set<Integer> drawn = new HashSet<Integer>();
+        int[] categories = new int[categoriesPerPointOfSale];
+        int k = 0;
+        for (int j = categoryCount - categoriesPerPointOfSale; j < categoryCount; j++) {
+            int category = random.nextInt(j + 1);
+            if (!drawn.add(category)) {
+                category = j;
+                drawn.add(j);
+            }
+            categories[k++] = category;
+        }
+        return categories;
+    }
+
+    private String text(Random random) {
+        int length = minTextLength + random.nextInt(maxTextLength - minTextLength + 1);
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++) {
+            // Words of about six letters
+            text[i] = i > 0 && text[i - 1] != ' ' && i < length - 1 && random.nextInt(6) == 0 ? ' '
+                    : LETTERS.charAt(random.nextInt(LETTERS.length()));
+        }
+        return new String(text);
+    }
+
+    /**
+     * Reserve the first block of ids from the sequence, the ids below it are in use or held by application nodes
+     *
+     * @return the first id of the block
+     */
+    private static long nextId(Statement statement, String sequence) throws SQLException {
+        ResultSet result = statement.executeQuery("SELECT nextval('" + sequence + "')");
+        try {
+            result.next();
+            return result.getLong(1);
+        } finally {
+            result.close();
+        }
+    }
+
+    /**
+     * Move the sequence so its next block starts at <code>nextId</code> or later. The sequence is only moved forward:
+     * nextval takes a block past every one handed out so far, and the sequence is set to the highest of it and the
+     * value whose next block starts at <code>nextId</code>.
+     *
+     * @param blockSize the INCREMENT BY of the sequence
+     * @param nextId    the id following the generated ones
+     */
+    private static void advanceSequence(Statement statement, String sequence, String blockSize, long nextId)
+            throws SQLException {
+        statement.execute("SELECT setval('" + sequence + "', greatest(nextval('" + sequence + "'), "
+                + (nextId - Long.parseLong(blockSize)) + "), true)");
+    }
+}
@@ -0,0 +1,440 @@
+package kendoui.utils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Immutable snapshot of the category hierarchy. The category ids are kept sorted in one <code>long</code> array and the
+ * edges as compressed sparse rows of <code>int</code> indexes into it, one array of children and one of parents, so a
+ * snapshot of the whole hierarchy costs a few bytes per category and edge and answers traversals without touching the
+ * database or the entity graph. Changes return a new snapshot and leave this one untouched, so a snapshot can be
+ * shared between threads without locking.
+ */
+public final class CategoryGraph {
+
+    private static final long[] NO_IDS = new long[0];
+
+    private static final int[] NO_INDEXES = new int[0];
+
+    /**
+     * The graph without any category.
+     */
+    public static final CategoryGraph EMPTY = new CategoryGraph(NO_IDS, NO_INDEXES, NO_INDEXES, 0);
+
+    // Sorted category ids, the index of an id is its node number
+    private final long[] ids;
+
+    private final int[] childOffsets;
+
+    private final int[] children;
+
+    private final int[] parentOffsets;
+
+    private final int[] parents;
+
+    /**
+     * Constructor of CategoryGraph, builds both adjacency directions from the edge list.
+     *
+     * @param ids          sorted distinct category ids
+     * @param edgeParents  the parent node of each edge
+     * @param edgeChildren the child node of each edge
+     * @param edgeCount    the number of edges in the edge arrays
+     */
+    private CategoryGraph(long[] ids, int[] edgeParents, int[] edgeChildren, int edgeCount) {
+        this.ids = ids;
+        this.childOffsets = new int[ids.length + 1];
+        this.children = new int[edgeCount];
+        this.parentOffsets = new int[ids.length + 1];
+        this.parents = new int[edgeCount];
+        compress(edgeParents, edgeChildren, edgeCount, childOffsets, children);
+        compress(edgeChildren, edgeParents, edgeCount, parentOffsets, parents);
+    }
+
+    /**
+     * Fill compressed sparse rows: the targets of node i are <code>targets[offsets[i]]</code> to
+     * <code>targets[offsets[i + 1] - 1]</code>, in increasing order.
+     */
+    private static void compress(int[] sources, int[] edgeTargets, int edgeCount, int[] offsets, int[] targets) {
+        for (int i = 0; i < edgeCount; i++) {
+            offsets[sources[i] + 1]++;
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int i = 0; i < edgeCount; i++) {
+            targets[next[sources[i]]++] = edgeTargets[i];
+        }
+        for (int i = 0; i + 1 < offsets.length; i++) {
+            Arrays.sort(targets, offsets[i], offsets[i + 1]);
+        }
+    }
+
+    /**
+     * Get the number of categories
+     *
+     * @return the number of categories
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Get the number of parent to child edges
+     *
+     * @return the number of edges
+     */
+    public int getEdgeCount() {
+        return children.length;
+    }
+
+    /**
+     * Whether the category is part of the graph
+     *
+     * @param id a Category id
+     * @return true if the graph has the category
+     */
+    public boolean contains(long id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    /**
+     * Whether the category is a direct child of the parent
+     *
+     * @param parentId the parent Category id
+     * @param childId  the child Category id
+     * @return true if the edge exists
+     */
+    public boolean hasEdge(long parentId, long childId) {
+        int parent = Arrays.binarySearch(ids, parentId);
+        int child = Arrays.binarySearch(ids, childId);
+        return parent >= 0 && child >= 0
+                && Arrays.binarySearch(children, childOffsets[parent], childOffsets[parent + 1], child) >= 0;
+    }
+
+    /**
+     * Get the direct children of a category
+     *
+     * @param id a Category id
+     * @return the child ids in increasing order, empty if the category is unknown
+     */
+    public long[] getChildren(long id) {
+        return neighbours(id, childOffsets, children);
+    }
+
+    /**
+     * Get the direct parents of a category
+     *
+     * @param id a Category id
+     * @return the parent ids in increasing order, empty if the category is unknown
+     */
+    public long[] getParents(long id) {
+        return neighbours(id, parentOffsets, parents);
+    }
+
+    /**
+     * Get all the descendants of a category
+     *
+     * @param id a Category id
+     * @return the descendant ids, nearest first, empty if the category is unknown
+     */
+    public long[] getDescendants(long id) {
+        return traverse(id, childOffsets, children);
+    }
+
+    /**
+     * Get all the ancestors of a category
+     *
+     * @param id a Category id
+     * @return the ancestor ids, nearest first, empty if the category is unknown
+     */
+    public long[] getAncestors(long id) {
+        return traverse(id, parentOffsets, parents);
+    }
+
+    /**
+     * Whether a category can be reached from another one going down the hierarchy. A category reaches itself.
+     *
+     * @param fromId the ancestor Category id
+     * @param toId   the descendant Category id
+     * @return true if there is a path from the first category to the second one
+     */
+    public boolean isReachable(long fromId, long toId) {
+        int from = Arrays.binarySearch(ids, fromId);
+        int to = Arrays.binarySearch(ids, toId);
+        if (from < 0 || to < 0) {
+            return fromId == toId;
+        }
+        if (from == to) {
+            return true;
+        }
+        BitSet visited = new BitSet(ids.length);
+        int[] queue = new int[ids.length];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = from;
+        visited.set(from);
+        while (head < tail) {
+            int node = queue[head++];
+            for (int i = childOffsets[node]; i < childOffsets[node + 1]; i++) {
+                int child = children[i];
+                if (child == to) {
+                    return true;
+                }
+                if (!visited.get(child)) {
+                    visited.set(child);
+                    queue[tail++] = child;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether adding the edge would make the hierarchy cyclic
+     *
+     * @param parentId the parent Category id
+     * @param childId  the child Category id
+     * @return true if the parent is the child or one of its descendants
+     */
+    public boolean wouldCreateCycle(long parentId, long childId) {
+        return isReachable(childId, parentId);
+    }
+
+    /**
+     * Return a graph with the category added
+     *
+     * @param id a Category id
+     * @return the new graph, or this one if it already has the category
+     */
+    public CategoryGraph withCategory(long id) {
+        if (contains(id)) {
+            return this;
+        }
+        return toBuilder().addCategory(id).build();
+    }
+
+    /**
+     * Return a graph with the edge added, the categories of the edge are added as well if needed
+     *
+     * @param parentId the parent Category id
+     * @param childId  the child Category id
+     * @return the new graph, or this one if it already has the edge
+     * @throws IllegalArgumentException if the edge would make the hierarchy cyclic
+     */
+    public CategoryGraph withEdge(long parentId, long childId) {
+        if (wouldCreateCycle(parentId, childId)) {
+            throw new IllegalArgumentException("Category " + parentId + " is a descendant of category " + childId);
+        }
+        if (hasEdge(parentId, childId)) {
+            return this;
+        }
+        int parent = Arrays.binarySearch(ids, parentId);
+        int child = Arrays.binarySearch(ids, childId);
+        if (parent < 0 || child < 0) {
+            return toBuilder().addEdge(parentId, childId).build();
+        }
+        int edgeCount = children.length;
+        int[] edgeParents = new int[edgeCount + 1];
+        int[] edgeChildren = new int[edgeCount + 1];
+        copyEdges(edgeParents, edgeChildren, -1, -1);
+        edgeParents[edgeCount] = parent;
+        edgeChildren[edgeCount] = child;
+        return new CategoryGraph(ids, edgeParents, edgeChildren, edgeCount + 1);
+    }
+
+    /**
+     * Return a graph without the edge, the categories stay in the graph
+     *
+     * @param parentId the parent Category id
+     * @param childId  the child Category id
+     * @return the new graph, or this one if it does not have the edge
+     */
+    public CategoryGraph withoutEdge(long parentId, long childId) {
+        if (!hasEdge(parentId, childId)) {
+            return this;
+        }
+        int edgeCount = children.length - 1;
+        int[] edgeParents = new int[edgeCount];
+        int[] edgeChildren = new int[edgeCount];
+        copyEdges(edgeParents, edgeChildren, Arrays.binarySearch(ids, parentId), Arrays.binarySearch(ids, childId));
+        return new CategoryGraph(ids, edgeParents, edgeChildren, edgeCount);
+    }
+
+    /**
+     * Return a graph where the category has the given parent only, as after moving it with its subtree
+     *
+     * @param childId     the moved Category id
+     * @param newParentId the new parent Category id, or null to make the category a root
+     * @return the new graph
+     * @throws IllegalArgumentException if the new parent is the category or one of its descendants
+     */
+    public CategoryGraph withParent(long childId, Long newParentId) {
+        CategoryGraph graph = this;
+        for (long parentId : getParents(childId)) {
+            graph = graph.withoutEdge(parentId, childId);
+        }
+        return newParentId == null ? graph.withCategory(childId) : graph.withEdge(newParentId, childId);
+    }
+
+    /**
+     * Copy the edges of this graph into edge arrays, skipping the edge from the given parent to the given child.
+     */
+    private void copyEdges(int[] edgeParents, int[] edgeChildren, int skippedParent, int skippedChild) {
+        int edge = 0;
+        for (int node = 0; node < ids.length; node++) {
+            for (int i = childOffsets[node]; i < childOffsets[node + 1]; i++) {
+                if (node != skippedParent || children[i] != skippedChild) {
+                    edgeParents[edge] = node;
+                    edgeChildren[edge] = children[i];
+                    edge++;
+                }
+            }
+        }
+    }
+
+    private long[] neighbours(long id, int[] offsets, int[] targets) {
+        int node = Arrays.binarySearch(ids, id);
+        if (node < 0) {
+            return NO_IDS;
+        }
+        long[] result = new long[offsets[node + 1] - offsets[node]];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids[targets[offsets[node] + i]];
+        }
+        return result;
+    }
+
+    /**
+     * Breadth first traversal from a category, the category itself excluded.
+     */
+    private long[] traverse(long id, int[] offsets, int[] targets) {
+        int start = Arrays.binarySearch(ids, id);
+        if (start < 0) {
+            return NO_IDS;
+        }
+        BitSet visited = new BitSet(ids.length);
+        int[] queue = new int[ids.length];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        visited.set(start);
+        while (head < tail) {
+            int node = queue[head++];
+            for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                int target = targets[i];
+                if (!visited.get(target)) {
+                    visited.set(target);
+                    queue[tail++] = target;
+                }
+            }
+        }
+        long[] result = new long[tail - 1];
+        for (int i = 1; i < tail; i++) {
+            result[i - 1] = ids[queue[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Return a builder holding the categories and edges of this graph
+     *
+     * @return a new builder
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        for (long id : ids) {
+            builder.addCategory(id);
+        }
+        for (int node = 0; node < ids.length; node++) {
+            for (int i = childOffsets[node]; i < childOffsets[node + 1]; i++) {
+                builder.addEdge(ids[node], ids[children[i]]);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Collects categories and edges, e.g. while reading them from the database, and builds the graph at once.
+     */
+    public static final class Builder {
+
+        private long[] categoryIds = new long[16];
+
+        private int categoryCount;
+
+        private long[] edges = new long[32];
+
+        private int edgeCount;
+
+        /**
+         * Add a category, adding it twice has no effect
+         *
+         * @param id a Category id
+         * @return this builder
+         */
+        public Builder addCategory(long id) {
+            if (categoryCount == categoryIds.length) {
+                categoryIds = Arrays.copyOf(categoryIds, categoryCount * 2);
+            }
+            categoryIds[categoryCount++] = id;
+            return this;
+        }
+
+        /**
+         * Add a parent to child edge, its categories are added as well
+         *
+         * @param parentId the parent Category id
+         * @param childId  the child Category id
+         * @return this builder
+         */
+        public Builder addEdge(long parentId, long childId) {
+            if (edgeCount * 2 == edges.length) {
+                edges = Arrays.copyOf(edges, edges.length * 2);
+            }
+            edges[edgeCount * 2] = parentId;
+            edges[edgeCount * 2 + 1] = childId;
+            edgeCount++;
+            addCategory(parentId);
+            addCategory(childId);
+            return this;
+        }
+
+        /**
+         * Build the graph. Duplicate edges are kept once, cycles are not checked.
+         *
+         * @return the graph
+         */
+        public CategoryGraph build() {
+            long[] sorted = Arrays.copyOf(categoryIds, categoryCount);
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            long[] ids = Arrays.copyOf(sorted, distinct);
+
+            // Sort the edges as (parent, child) index pairs packed in longs to drop the duplicates
+            long[] packed = new long[edgeCount];
+            for (int i = 0; i < edgeCount; i++) {
+                long parent = Arrays.binarySearch(ids, edges[i * 2]);
+                long child = Arrays.binarySearch(ids, edges[i * 2 + 1]);
+                packed[i] = (parent << 32) | child;
+            }
+            Arrays.sort(packed);
+            int[] edgeParents = new int[edgeCount];
+            int[] edgeChildren = new int[edgeCount];
+            int count = 0;
+            for (int i = 0; i < packed.length; i++) {
+                if (i == 0 || packed[i] != packed[i - 1]) {
+                    edgeParents[count] = (int) (packed[i] >>> 32);
+                    edgeChildren[count] = (int) packed[i];
+                    count++;
+                }
+            }
+            return new CategoryGraph(ids, edgeParents, edgeChildren, count);
+        }
+    }
+}
@@ -18,6 +18,54 @@ public final class Constant {
 
     public static final int DEFAULT_PAGE_SIZE = 10;
 
+    // Largest page a client can request, a larger take or pageSize is reduced to it
+    public static final int MAX_PAGE_SIZE = 500;
+
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    // Planner estimates below this number of rows are replaced by an exact count
+    public static final long COUNT_ESTIMATE_THRESHOLD = 100000L;
+
+    // How long a cached page count is reused, in milliseconds
+    public static final long COUNT_CACHE_TTL_MILLIS = 30000L;
+
+    public static final int COUNT_CACHE_SIZE = 256;
+
+    // Compiled Kendo DataSource query shapes kept per DAO
+    public static final int DATA_SOURCE_QUERY_CACHE_SIZE = 64;
+
+    // Proxies and collections initialized together when one of them is first accessed
+    public static final int BATCH_FETCH_SIZE = 50;
+
+    /**
+     * *************** Id generation ******************
+     */
+    public static final String ID_GENERATOR_STRATEGY = "org.hibernate.id.enhanced.SequenceStyleGenerator";
+
+    public static final String ID_GENERATOR_OPTIMIZER = "kendoui.dao.PooledLoOptimizer";
+
+    // Ids reserved per sequence call, each must match the INCREMENT BY of the entity sequence
+    public static final String CATEGORY_ID_BLOCK_SIZE = "50";
+
+    public static final String DEFAULT_TEXT_ID_BLOCK_SIZE = "100";
+
+    public static final String POINT_OF_SALE_ID_BLOCK_SIZE = "20";
+
+    public static final String POINT_OF_SALE_CATEGORY_ID_BLOCK_SIZE = "100";
+
+    // Spacing of the pointOfSaleOrder of the categories of a point of sale, a category moved between two others takes
+    // the middle value so only its row changes
+    public static final int POINT_OF_SALE_ORDER_GAP = 1024;
+
+    // The categories of a point of sale are renumbered in the background once two neighbours are closer than this
+    public static final int POINT_OF_SALE_ORDER_MIN_GAP = 8;
+
+    // Point of sales renumbered per background pass
+    public static final int POINT_OF_SALE_ORDER_RENUMBER_BATCH = 100;
+
+    // Rejected lines listed in the result of a bulk import, the others are only counted
+    public static final int IMPORT_MAX_REJECTIONS = 1000;
+
     // Error message for a category that does not exist
     public static final String ERROR_CAUSE_CATEGORY_NOT_EXIST = "The category does not exist.";
 }
@@ -0,0 +1,130 @@
+package kendoui.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of durations with fixed buckets from 100 microseconds to 10 seconds, cheap enough to record
+ * every call. Quantiles are approximated by the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    // Upper bounds of the buckets in nanoseconds, the last bucket has no bound
+    private static final long[] BOUNDS = {100000L, 250000L, 500000L, 1000000L, 2500000L, 5000000L, 10000000L,
+            25000000L, 50000000L, 100000000L, 250000000L, 500000000L, 1000000000L, 2500000000L, 5000000000L,
+            10000000000L};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a duration
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS.length && nanos > BOUNDS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Get the upper bounds of the buckets, the last bucket of {@link #getBucketCounts()} has no bound
+     *
+     * @return the bounds in nanoseconds
+     */
+    public static long[] getBounds() {
+        return BOUNDS.clone();
+    }
+
+    /**
+     * Get the number of durations recorded in each bucket
+     *
+     * @return the counts, one more than the bounds
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Get the number of durations recorded
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Get the total of the durations recorded
+     *
+     * @return the sum in nanoseconds
+     */
+    public long getSumNanos() {
+        return sum.get();
+    }
+
+    /**
+     * Get the longest duration recorded
+     *
+     * @return the maximum in milliseconds
+     */
+    public double getMaxMillis() {
+        return (double) max.get() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Get the mean of the durations recorded
+     *
+     * @return the mean in milliseconds, 0 if nothing was recorded
+     */
+    public double getMeanMillis() {
+        long total = count.get();
+        return total == 0 ? 0 : (double) sum.get() / total / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Get the upper bound of the bucket of the given quantile
+     *
+     * @param quantile the quantile, between 0 and 1
+     * @return the bound in milliseconds, the maximum for the last bucket, 0 if nothing was recorded
+     */
+    public double getQuantileMillis(double quantile) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min((double) BOUNDS[i] / NANOS_PER_MILLI, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+}
@@ -0,0 +1,43 @@
+package kendoui.dao;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+
+import kendoui.model.PointOfSaleCategoryRow;
+
+import org.hibernate.HibernateException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConstructorResultTransformerTest {
+
+    @Test
+    public void testNativeRowIsConverted() {
+        Timestamp lastUpdated = new Timestamp(1000L);
+        lastUpdated.setNanos(123456000);
+        PointOfSaleCategoryRow row = (PointOfSaleCategoryRow) new ConstructorResultTransformer(
+                PointOfSaleCategoryRow.class).transformTuple(new Object[]{BigInteger.valueOf(7), BigInteger.ONE,
+                "Main street", BigInteger.TEN, "Drinks", null, 3, Boolean.TRUE, lastUpdated}, null);
+        Assert.assertEquals(7L, row.getId());
+        Assert.assertEquals(10L, row.getCategoryId());
+        Assert.assertEquals("Drinks", row.getCategoryName());
+        Assert.assertNull(row.getCategoryDescription());
+        Assert.assertEquals(3, row.getPointOfSaleOrder());
+        Assert.assertTrue(row.isCategoryInUse());
+        Assert.assertEquals(lastUpdated, row.getLastUpdated());
+    }
+
+    @Test
+    public void testConvert() {
+        Assert.assertEquals(5L, ConstructorResultTransformer.convert(BigInteger.valueOf(5), long.class));
+        Assert.assertEquals(5, ConstructorResultTransformer.convert(5L, Integer.class));
+        Assert.assertEquals(new BigDecimal("2.5"), ConstructorResultTransformer.convert(2.5d, BigDecimal.class));
+        Assert.assertEquals("text", ConstructorResultTransformer.convert("text", String.class));
+    }
+
+    @Test(expected = HibernateException.class)
+    public void testColumnCountMismatch() {
+        new ConstructorResultTransformer(PointOfSaleCategoryRow.class).transformTuple(new Object[]{1L, 2L}, null);
+    }
+}
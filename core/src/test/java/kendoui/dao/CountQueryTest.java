@@ -0,0 +1,41 @@
+package kendoui.dao;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CountQueryTest {
+
+    @Test
+    public void testDeriveFromEntityQuery() {
+        Assert.assertEquals("select count(*) from Category", CountQuery.derive("from Category"));
+        Assert.assertEquals("select count(*) from Category c where c.inUse = ?",
+                CountQuery.derive("select c from Category c where c.inUse = ? order by c.id desc"));
+    }
+
+    @Test
+    public void testDeriveFromDistinctQuery() {
+        Assert.assertEquals("select count(distinct posc) from PointOfSaleCategory posc where posc.pointOfSale.id = ?1",
+                CountQuery.derive("Select distinct (posc) from PointOfSaleCategory posc where posc.pointOfSale.id = ?1"));
+    }
+
+    @Test
+    public void testDeriveDropsFetchJoins() {
+        Assert.assertEquals("select count(*) from PointOfSaleCategory p join p.category c where c.inUse = true",
+                CountQuery.derive("select p from PointOfSaleCategory p join fetch p.category c where c.inUse = true "
+                        + "order by p.pointOfSaleOrder"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGroupedQueryCanNotBeCounted() {
+        CountQuery.derive("select c.inUse, count(c) from Category c group by c.inUse");
+    }
+
+    @Test
+    public void testUnfiltered() {
+        Assert.assertTrue(CountQuery.isUnfiltered("from Category"));
+        Assert.assertTrue(CountQuery.isUnfiltered("select c from Category c order by c.id"));
+        Assert.assertTrue(CountQuery.isUnfiltered("from Category order by id"));
+        Assert.assertFalse(CountQuery.isUnfiltered("from Category c where c.inUse = true"));
+        Assert.assertFalse(CountQuery.isUnfiltered("select p from PointOfSaleCategory p join p.category c"));
+    }
+}
@@ -0,0 +1,88 @@
+package kendoui.dao;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+public class DaoMetricsTest {
+
+    public interface SampleDao {
+
+        List<?> queryByList(String query, Object... args);
+
+        List<?> queryByList(String query, int offset, int count, Object... args);
+
+        void persist(Object entity);
+    }
+
+    public static class SampleDaoImpl implements SampleDao {
+
+        @Override
+        public List<?> queryByList(String query, Object... args) {
+            return Arrays.asList(1, 2, 3);
+        }
+
+        @Override
+        public List<?> queryByList(String query, int offset, int count, Object... args) {
+            throw new IllegalArgumentException(query);
+        }
+
+        @Override
+        public void persist(Object entity) {
+        }
+    }
+
+    @Test
+    public void testNormalize() {
+        Assert.assertEquals("select c from Category c where c.name = ? and c.id > ? and c.order = ?1",
+                DaoMetrics.normalize("select c\n  from Category c where c.name = 'it''s' and c.id > 12\tand c.order = ?1"));
+        Assert.assertEquals("Category.byPointOfSale", DaoMetrics.normalize("Category.byPointOfSale"));
+        Assert.assertEquals("select p2.id from t p2 where p2.v = :v2", DaoMetrics.normalize("select p2.id from t p2 where p2.v = :v2 "));
+    }
+
+    @Test
+    public void testInterceptor() {
+        DaoMetrics metrics = new DaoMetrics();
+        DaoMetricsInterceptor interceptor = new DaoMetricsInterceptor();
+        interceptor.setMetrics(metrics);
+        ProxyFactory factory = new ProxyFactory(new SampleDaoImpl());
+        factory.addAdvice(interceptor);
+        SampleDao dao = (SampleDao) factory.getProxy();
+
+        dao.queryByList("select c from Category c where c.id = 1");
+        dao.queryByList("select c from Category c where c.id = 2");
+        dao.persist(new Object());
+        try {
+            dao.queryByList("select c from Category c where c.id = 3", 0, 10, new Object[0]);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        dao.toString();
+
+        List<DaoMetrics.Metric> all = metrics.getMetrics();
+        Assert.assertEquals(2, all.size());
+        DaoMetrics.Metric persist = all.get(0);
+        Assert.assertEquals("SampleDaoImpl", persist.getDao());
+        Assert.assertEquals("persist", persist.getMethod());
+        Assert.assertEquals("", persist.getQuery());
+        DaoMetrics.Metric query = all.get(1);
+        Assert.assertEquals("select c from Category c where c.id = ?", query.getQuery());
+        Assert.assertEquals(3, query.getLatency().getCount());
+        Assert.assertEquals(6, query.getRows());
+        Assert.assertEquals(1, query.getErrors());
+
+        StringBuilder out = new StringBuilder();
+        metrics.writePrometheus(out);
+        String report = out.toString();
+        Assert.assertTrue(report.contains("# TYPE kendoui_dao_call_seconds summary\n"));
+        Assert.assertTrue(report.contains("kendoui_dao_call_seconds_count{dao=\"SampleDaoImpl\",method=\"queryByList\","
+                + "query=\"select c from Category c where c.id = ?\"} 3\n"));
+        Assert.assertTrue(report.contains("quantile=\"0.999\""));
+        Assert.assertTrue(report.contains("kendoui_dao_errors_total{dao=\"SampleDaoImpl\",method=\"queryByList\","
+                + "query=\"select c from Category c where c.id = ?\"} 1\n"));
+    }
+}
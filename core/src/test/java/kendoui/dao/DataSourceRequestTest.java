@@ -0,0 +1,166 @@
+package kendoui.dao;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import kendoui.utils.Constant;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DataSourceRequestTest {
+
+    private static final DataSourceFields FIELDS = new DataSourceFields.Builder("test").field("id")
+            .field("name", "name.text").field("inUse").field("posName", "pointOfSale.name").build();
+
+    @Test
+    public void testParse() {
+        Map<String, String[]> parameters = new HashMap<String, String[]>();
+        parameters.put("take", new String[]{"20"});
+        parameters.put("skip", new String[]{"40"});
+        parameters.put("sort[0][field]", new String[]{"name"});
+        parameters.put("sort[0][dir]", new String[]{"desc"});
+        parameters.put("filter[logic]", new String[]{"or"});
+        parameters.put("filter[filters][0][field]", new String[]{"inUse"});
+        parameters.put("filter[filters][0][operator]", new String[]{"eq"});
+        parameters.put("filter[filters][0][value]", new String[]{"true"});
+        parameters.put("filter[filters][1][logic]", new String[]{"and"});
+        parameters.put("filter[filters][1][filters][0][field]", new String[]{"name"});
+        parameters.put("filter[filters][1][filters][0][operator]", new String[]{"startswith"});
+        parameters.put("filter[filters][1][filters][0][value]", new String[]{"Dri"});
+
+        DataSourceRequest request = DataSourceRequest.parse(parameters);
+        Assert.assertEquals(40, request.getSkip());
+        Assert.assertEquals(20, request.getTake());
+        Assert.assertEquals("name", request.getSort().get(0).getAttribute());
+        Assert.assertFalse(request.getSort().get(0).isAscending());
+        Assert.assertEquals("or(inUse eq true, and(name startswith Dri))", request.getFilter().toString());
+    }
+
+    @Test
+    public void testParsePage() {
+        Map<String, String[]> parameters = new HashMap<String, String[]>();
+        parameters.put("page", new String[]{"3"});
+        parameters.put("pageSize", new String[]{"25"});
+        DataSourceRequest request = DataSourceRequest.parse(parameters);
+        Assert.assertEquals(50, request.getSkip());
+        Assert.assertEquals(25, request.getTake());
+        Assert.assertNull(request.getFilter());
+    }
+
+    @Test
+    public void testParseClampsThePageSize() {
+        Map<String, String[]> parameters = new HashMap<String, String[]>();
+        parameters.put("page", new String[]{"2"});
+        parameters.put("pageSize", new String[]{"1000000"});
+        DataSourceRequest request = DataSourceRequest.parse(parameters);
+        Assert.assertEquals(Constant.MAX_PAGE_SIZE, request.getTake());
+        Assert.assertEquals(Constant.MAX_PAGE_SIZE, request.getSkip());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParsePageOutOfRange() {
+        Map<String, String[]> parameters = new HashMap<String, String[]>();
+        parameters.put("page", new String[]{String.valueOf(Integer.MAX_VALUE)});
+        parameters.put("pageSize", new String[]{"100"});
+        DataSourceRequest.parse(parameters);
+    }
+
+    @Test
+    public void testParseGroups() {
+        Map<String, String[]> parameters = new HashMap<String, String[]>();
+        parameters.put("group[0][field]", new String[]{"posName"});
+        parameters.put("group[0][dir]", new String[]{"desc"});
+        parameters.put("group[0][aggregates][0][field]", new String[]{"lastUpdated"});
+        parameters.put("group[0][aggregates][0][aggregate]", new String[]{"max"});
+        parameters.put("group[1][field]", new String[]{"inUse"});
+        parameters.put("aggregate[0][field]", new String[]{"id"});
+        parameters.put("aggregate[0][aggregate]", new String[]{"count"});
+
+        DataSourceRequest request = DataSourceRequest.parse(parameters);
+        Assert.assertEquals(2, request.getGroups().size());
+        Assert.assertEquals("posName desc[lastUpdated max]", request.getGroups().get(0).toString());
+        Assert.assertEquals("inUse asc[]", request.getGroups().get(1).toString());
+        Assert.assertEquals("[id count]", request.getAggregates().toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownAggregate() {
+        Map<String, String[]> parameters = new HashMap<String, String[]>();
+        parameters.put("aggregate[0][field]", new String[]{"id"});
+        parameters.put("aggregate[0][aggregate]", new String[]{"median"});
+        DataSourceRequest.parse(parameters);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownOperator() {
+        Map<String, String[]> parameters = new HashMap<String, String[]>();
+        parameters.put("filter[filters][0][field]", new String[]{"name"});
+        parameters.put("filter[filters][0][operator]", new String[]{"matches"});
+        DataSourceRequest.parse(parameters);
+    }
+
+    @Test
+    public void testShapeIgnoresValues() {
+        DataSourceQuery.Shape first = DataSourceQuery.getShape(request("name", "contains", "drink"), FIELDS);
+        DataSourceQuery.Shape second = DataSourceQuery.getShape(request("name", "contains", "food"), FIELDS);
+        Assert.assertEquals(first.getKey(), second.getKey());
+        Assert.assertEquals("and(name.text contains ignorecase) order by;", first.getKey());
+        Assert.assertEquals(Arrays.asList("food"), second.getValues());
+    }
+
+    @Test
+    public void testShapeOfNullEquality() {
+        DataSourceQuery.Shape shape = DataSourceQuery.getShape(request("posName", "eq", null), FIELDS);
+        Assert.assertEquals("and(pointOfSale.name isnull ignorecase) order by;", shape.getKey());
+        Assert.assertTrue(shape.getValues().isEmpty());
+    }
+
+    @Test
+    public void testShapeOfGroups() {
+        DataSourceRequest request = new DataSourceRequest(0, 10, Arrays.asList(SortOrder.asc("name")), null,
+                Arrays.asList(new DataSourceRequest.Group("posName", false, Arrays.asList(
+                        new DataSourceRequest.Aggregate("id", "count")))),
+                Arrays.asList(new DataSourceRequest.Aggregate("id", "max")));
+        Assert.assertEquals(" order by pointOfSale.name desc; name.text asc group by pointOfSale.name id count"
+                + " aggregate id max", DataSourceQuery.getShape(request, FIELDS).getKey());
+    }
+
+    @Test
+    public void testGetAggregates() {
+        List<DataSourceRequest.Aggregate> aggregates = Arrays.asList(new DataSourceRequest.Aggregate("id", "min"),
+                new DataSourceRequest.Aggregate("id", "max"), new DataSourceRequest.Aggregate("name", "count"));
+        Map<String, Map<String, Object>> values = DataSourceQuery.getAggregates(aggregates,
+                new Object[]{"group", 3L, 1L, 9L, 3L}, 2);
+        Assert.assertEquals("{id={min=1, max=9}, name={count=3}}", values.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownField() {
+        DataSourceQuery.getShape(request("lastUpdated", "gt", "2012-11-15"), FIELDS);
+    }
+
+    @Test
+    public void testConvert() {
+        Assert.assertEquals(42L, DataSourceQuery.convert("42", Long.class));
+        Assert.assertEquals(Boolean.TRUE, DataSourceQuery.convert("true", Boolean.class));
+        Assert.assertEquals(new Timestamp(1353000000000L), DataSourceQuery.convert("2012-11-15T17:20:00.000Z",
+                Timestamp.class));
+        Assert.assertEquals(new Timestamp(1353000000000L), DataSourceQuery.convert(
+                "Thu Nov 15 2012 18:20:00 GMT+0100 (CET)", Timestamp.class));
+        Assert.assertEquals(new Timestamp(1353000000000L), DataSourceQuery.convert("1353000000000", Timestamp.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConvertInvalidNumber() {
+        DataSourceQuery.convert("4x2", Long.class);
+    }
+
+    private static DataSourceRequest request(String field, String operator, String value) {
+        return new DataSourceRequest(0, 10, Arrays.<SortOrder>asList(), DataSourceRequest.Filter.combination("and",
+                Arrays.asList(DataSourceRequest.Filter.condition(field, operator, value, true))));
+    }
+}
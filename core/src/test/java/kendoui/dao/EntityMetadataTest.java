@@ -0,0 +1,73 @@
+package kendoui.dao;
+
+import java.sql.Timestamp;
+
+import kendoui.model.Category;
+import kendoui.model.DefaultText;
+import kendoui.model.PointOfSaleCategory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EntityMetadataTest {
+
+    private static class CategoryTestDao extends BaseDao<Category> {
+    }
+
+    @Test
+    public void testResolveEntityClass() {
+        Assert.assertEquals(Category.class, EntityMetadataRegistry.resolveEntityClass(CategoryTestDao.class));
+        Assert.assertEquals(Category.class, new CategoryTestDao() {
+        }.getPersistentClass());
+    }
+
+    @Test
+    public void testMetadataIsBuiltOnce() {
+        Assert.assertSame(EntityMetadataRegistry.getMetadata(DefaultText.class),
+                EntityMetadataRegistry.getMetadata(DefaultText.class));
+    }
+
+    @Test
+    public void testEntityName() {
+        EntityMetadata<PointOfSaleCategory> metadata = EntityMetadataRegistry.getMetadata(PointOfSaleCategory.class);
+        Assert.assertEquals("PointOfSaleCategory", metadata.getEntityName());
+        Assert.assertEquals("id", metadata.getIdName());
+        Assert.assertEquals("lastUpdated", metadata.getVersionName());
+    }
+
+    @Test
+    public void testQueriesAreBuiltOnce() {
+        EntityMetadata<Category> metadata = EntityMetadataRegistry.getMetadata(Category.class);
+        Assert.assertEquals("from Category where name = ?", metadata.getFieldQuery("name"));
+        Assert.assertSame(metadata.getFieldQuery("name"), metadata.getFieldQuery("name"));
+        Assert.assertEquals("from Category where name.text = ?", metadata.getFieldQuery("name.text"));
+        Assert.assertNotSame(metadata.getFieldQuery("name.text"), metadata.getFieldQuery("name.text"));
+        Assert.assertEquals("from Category order by id desc", metadata.getLastRecordQuery());
+        Assert.assertEquals("from Category where id in (:ids)", metadata.getIdsQuery());
+    }
+
+    @Test
+    public void testAccessors() {
+        EntityMetadata<Category> metadata = EntityMetadataRegistry.getMetadata(Category.class);
+        Category category = metadata.newInstance();
+        category.setId(42L);
+        Timestamp version = new Timestamp(System.currentTimeMillis());
+        metadata.setVersion(category, version);
+        Assert.assertEquals(42L, metadata.getId(category));
+        Assert.assertSame(version, category.getLastUpdated());
+        Assert.assertSame(version, metadata.getVersion(category));
+    }
+
+    @Test
+    public void testPrimitiveId() {
+        EntityMetadata<DefaultText> metadata = EntityMetadataRegistry.getMetadata(DefaultText.class);
+        DefaultText text = new DefaultText("text");
+        text.setId(7L);
+        Assert.assertEquals(7L, metadata.getId(text));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotAnEntity() {
+        EntityMetadataRegistry.getMetadata(String.class);
+    }
+}
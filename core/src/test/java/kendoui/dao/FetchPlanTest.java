@@ -0,0 +1,40 @@
+package kendoui.dao;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FetchPlanTest {
+
+    @Test
+    public void testJoinFetchesGoBeforeTheWhereClause() {
+        Assert.assertEquals("select c from PointOfSaleCategory posc join posc.category c left join fetch c.name "
+                + "left join fetch c.description where posc.pointOfSale.id = ?1 order by posc.pointOfSaleOrder",
+                FetchPlans.POS_CATALOG.apply("select c from PointOfSaleCategory posc join posc.category c "
+                        + "where posc.pointOfSale.id = ?1 order by posc.pointOfSaleOrder"));
+    }
+
+    @Test
+    public void testAliasedJoinFetches() {
+        Assert.assertEquals("select distinct posc from PointOfSaleCategory posc left join fetch posc.pointOfSale "
+                + "left join fetch posc.category pc left join fetch pc.name left join fetch pc.description",
+                FetchPlans.POINT_OF_SALE_CATEGORY_GRID.apply("select distinct posc from PointOfSaleCategory posc"));
+    }
+
+    @Test
+    public void testNestedClausesAreSkipped() {
+        FetchPlan plan = new FetchPlan.Builder("test").joinFetch("c.name").build();
+        Assert.assertEquals("from Category c left join fetch c.name where c.id in (select p.id from Category p "
+                + "where p.inUse = true) and c.name.text <> ' where '",
+                plan.apply("from Category c where c.id in (select p.id from Category p where p.inUse = true) "
+                        + "and c.name.text <> ' where '"));
+    }
+
+    @Test
+    public void testBatchFetches() {
+        FetchPlan plan = FetchPlans.CATEGORY_TREE;
+        Assert.assertEquals(1, plan.getBatchFetches().size());
+        Assert.assertEquals("select distinct e from Category e left join fetch e.chidren where e in (:rows)",
+                plan.getBatchQuery("Category", "chidren"));
+        Assert.assertSame(plan.getBatchQuery("Category", "chidren"), plan.getBatchQuery("Category", "chidren"));
+    }
+}
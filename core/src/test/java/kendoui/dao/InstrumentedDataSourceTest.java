@@ -0,0 +1,126 @@
+package kendoui.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+public class InstrumentedDataSourceTest {
+
+    private final AtomicInteger closed = new AtomicInteger();
+
+    private InstrumentedDataSource dataSource;
+
+    @Before
+    public void setUp() {
+        dataSource = new InstrumentedDataSource();
+        dataSource.setTargetDataSource(dataSource(true));
+        dataSource.setLeakThresholdMillis(0);
+        dataSource.afterPropertiesSet();
+    }
+
+    @Test
+    public void testStackTracesOffByDefault() throws SQLException {
+        Assert.assertFalse(dataSource.isCaptureStackTraces());
+        Connection connection = dataSource.getConnection();
+        Assert.assertFalse(dataSource.longestHeldConnections()[0].contains("testStackTracesOffByDefault"));
+        connection.close();
+    }
+
+    @Test
+    public void testBorrowAndHold() throws SQLException {
+        dataSource.setCaptureStackTraces(true);
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        Assert.assertEquals(2, dataSource.getActiveConnections());
+        Assert.assertEquals(2, dataSource.getBorrowCount());
+        Assert.assertEquals(0, dataSource.getWaitingThreads());
+        Assert.assertEquals(-1, dataSource.getIdleConnections());
+        Assert.assertEquals(2, dataSource.longestHeldConnections().length);
+        Assert.assertTrue(dataSource.longestHeldConnections()[0].contains("testBorrowAndHold"));
+
+        first.close();
+        first.close();
+        Assert.assertEquals(2, closed.get());
+        Assert.assertEquals(1, dataSource.getActiveConnections());
+        Assert.assertEquals(1, dataSource.getHoldTime().getCount());
+        Assert.assertFalse(second.isClosed());
+        second.close();
+        Assert.assertEquals(0, dataSource.getActiveConnections());
+        Assert.assertEquals(2, dataSource.getHoldTime().getCount());
+    }
+
+    @Test
+    public void testBorrowFailure() {
+        dataSource.setTargetDataSource(dataSource(false));
+        try {
+            dataSource.getConnection();
+            Assert.fail();
+        } catch (SQLException e) {
+            Assert.assertEquals("Timeout waiting for idle object", e.getMessage());
+        }
+        Assert.assertEquals(1, dataSource.getBorrowFailureCount());
+        Assert.assertEquals(0, dataSource.getActiveConnections());
+        Assert.assertEquals(0, dataSource.getWaitingThreads());
+    }
+
+    @Test
+    public void testLeaks() throws SQLException, InterruptedException {
+        dataSource.setLeakThresholdMillis(1);
+        Connection connection = dataSource.getConnection();
+        Thread.sleep(5);
+        dataSource.detectLeaks();
+        dataSource.detectLeaks();
+        Assert.assertEquals(1, dataSource.getLeakCount());
+        connection.close();
+        Assert.assertEquals(0, dataSource.longestHeldConnections().length);
+    }
+
+    @Test
+    public void testTargetConnection() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        Connection target = DataSourceUtils.getTargetConnection(connection);
+        Assert.assertNotSame(connection, target);
+        Assert.assertFalse(target instanceof ConnectionProxy);
+        connection.close();
+    }
+
+    private DataSource dataSource(final boolean available) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().equals("getConnection")) {
+                            if (!available) {
+                                throw new SQLException("Timeout waiting for idle object");
+                            }
+                            return connection();
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    private Connection connection() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("close")) {
+                            closed.incrementAndGet();
+                        }
+                        return method.getName().equals("isClosed") ? Boolean.FALSE : null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,36 @@
+package kendoui.dao;
+
+import java.sql.Timestamp;
+
+import kendoui.exception.DAOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KeysetCursorTest {
+
+    @Test
+    public void testRoundTrip() throws DAOException {
+        Timestamp timestamp = new Timestamp(1353000000000L);
+        timestamp.setNanos(123456789);
+        Object[] values = new Object[]{5000, "name", Boolean.TRUE, timestamp, 42L};
+        Object[] decoded = KeysetCursor.decode(KeysetCursor.encode(values), values.length);
+        Assert.assertArrayEquals(values, decoded);
+    }
+
+    @Test(expected = DAOException.class)
+    public void testKeyCountMismatch() throws DAOException {
+        KeysetCursor.decode(KeysetCursor.encode(new Object[]{1, 2L}), 3);
+    }
+
+    @Test(expected = DAOException.class)
+    public void testMalformedCursor() throws DAOException {
+        KeysetCursor.decode("not a cursor!", 2);
+    }
+
+    @Test
+    public void testNullKey() throws DAOException {
+        Object[] values = new Object[]{null, 1L};
+        Assert.assertArrayEquals(values, KeysetCursor.decode(KeysetCursor.encode(values), values.length));
+    }
+}
@@ -0,0 +1,64 @@
+package kendoui.dao;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PooledLoOptimizerTest {
+
+    /**
+     * Stands in for a database sequence incremented by the block size.
+     */
+    private static class Sequence implements AccessCallback {
+
+        private final int increment;
+
+        private long next;
+
+        private int calls;
+
+        Sequence(long start, int increment) {
+            this.next = start;
+            this.increment = increment;
+        }
+
+        @Override
+        public synchronized IntegralDataTypeHolder getNextValue() {
+            calls++;
+            IntegralDataTypeHolder value = IdentifierGeneratorHelper.getIntegralDataTypeHolder(Long.class);
+            value.initialize(next);
+            next += increment;
+            return value;
+        }
+    }
+
+    @Test
+    public void testOneSequenceCallPerBlock() {
+        Sequence sequence = new Sequence(1, 50);
+        PooledLoOptimizer optimizer = new PooledLoOptimizer(Long.class, 50);
+        for (long expected = 1; expected <= 120; expected++) {
+            Assert.assertEquals(expected, optimizer.generate(sequence));
+        }
+        Assert.assertEquals(3, sequence.calls);
+    }
+
+    @Test
+    public void testNodesSharingSequenceNeverCollide() {
+        Sequence sequence = new Sequence(101, 10);
+        PooledLoOptimizer first = new PooledLoOptimizer(Long.class, 10);
+        PooledLoOptimizer second = new PooledLoOptimizer(Long.class, 10);
+        Set<Object> ids = new HashSet<Object>();
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(ids.add(first.generate(sequence)));
+            Assert.assertTrue(ids.add(second.generate(sequence)));
+            if (i % 3 == 0) {
+                Assert.assertTrue(ids.add(second.generate(sequence)));
+            }
+        }
+    }
+}
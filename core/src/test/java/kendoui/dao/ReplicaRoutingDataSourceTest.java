@@ -0,0 +1,130 @@
+package kendoui.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private final Connection primaryConnection = connection();
+
+    private final Connection replicaConnection = connection();
+
+    private final Connection otherReplicaConnection = connection();
+
+    private ReplicaRoutingDataSource routing;
+
+    private DataSource downReplica;
+
+    @Before
+    public void setUp() {
+        downReplica = dataSource(null);
+        routing = new ReplicaRoutingDataSource();
+        routing.setPrimary(dataSource(primaryConnection));
+        routing.setHealthCheckIntervalMillis(0);
+    }
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        ReadYourWrites.clear();
+    }
+
+    @Test
+    public void testReadOnlyTransactionsGoToTheReplicas() throws SQLException {
+        routing.setReplicas(Arrays.asList(dataSource(replicaConnection), dataSource(otherReplicaConnection)));
+        routing.afterPropertiesSet();
+        Assert.assertSame(primaryConnection, routing.getConnection());
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Connection first = routing.getConnection();
+        Connection second = routing.getConnection();
+        Assert.assertNotSame(primaryConnection, first);
+        Assert.assertNotSame(primaryConnection, second);
+        Assert.assertNotSame(first, second);
+        Assert.assertFalse(ReadYourWrites.hasWritten());
+    }
+
+    @Test
+    public void testFallbackToThePrimary() throws SQLException {
+        routing.setReplicas(Arrays.asList(downReplica, dataSource(replicaConnection)));
+        routing.afterPropertiesSet();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Assert.assertSame(replicaConnection, routing.getConnection());
+        Assert.assertSame(replicaConnection, routing.getConnection());
+        Assert.assertEquals(1, routing.getHealthyReplicaCount());
+
+        routing.setReplicas(Arrays.asList(downReplica));
+        Assert.assertSame(primaryConnection, routing.getConnection());
+        Assert.assertEquals(0, routing.getHealthyReplicaCount());
+    }
+
+    @Test
+    public void testReadYourWrites() throws SQLException {
+        routing.setReplicas(Arrays.asList(dataSource(replicaConnection)));
+        routing.afterPropertiesSet();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        Assert.assertSame(primaryConnection, routing.getConnection());
+        Assert.assertTrue(ReadYourWrites.hasWritten());
+        Assert.assertTrue(ReadYourWrites.isPinned());
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Assert.assertSame(primaryConnection, routing.getConnection());
+        ReadYourWrites.clear();
+        Assert.assertSame(replicaConnection, routing.getConnection());
+
+        ReadYourWrites.pinToPrimary();
+        Assert.assertSame(primaryConnection, routing.getConnection());
+        Assert.assertFalse(ReadYourWrites.hasWritten());
+    }
+
+    @Test
+    public void testReplicationLagQueryOfTheServerVersion() {
+        String query = ReplicaRoutingDataSource.getReplicationLagQuery(9);
+        Assert.assertTrue(query, query.contains("pg_is_in_recovery()"));
+        Assert.assertTrue(query, query.contains("pg_last_xlog_receive_location() = pg_last_xlog_replay_location()"));
+
+        query = ReplicaRoutingDataSource.getReplicationLagQuery(10);
+        Assert.assertTrue(query, query.contains("pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn()"));
+        Assert.assertFalse(query, query.contains("xlog"));
+    }
+
+    private static DataSource dataSource(final Connection connection) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().equals("getConnection")) {
+                            if (connection == null) {
+                                throw new SQLException("Connection refused");
+                            }
+                            return connection;
+                        }
+                        return method.getName().equals("toString") ? "dataSource" : null;
+                    }
+                });
+    }
+
+    private static Connection connection() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return method.getName().equals("equals") ? proxy == args[0] : null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,37 @@
+package kendoui.utils;
+
+import java.sql.SQLException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CatalogDataGeneratorTest {
+
+    @Test
+    public void testCategoryCount() {
+        CatalogDataGenerator generator = new CatalogDataGenerator();
+        generator.setRootCount(2);
+        generator.setTreeDepth(3);
+        generator.setFanOut(4);
+        Assert.assertEquals(2 + 8 + 32, generator.getCategoryCount());
+        generator.setTreeDepth(1);
+        Assert.assertEquals(2, generator.getCategoryCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyCategoriesPerPointOfSale() throws SQLException {
+        CatalogDataGenerator generator = new CatalogDataGenerator();
+        generator.setTreeDepth(2);
+        generator.setFanOut(3);
+        generator.setCategoriesPerPointOfSale(5);
+        generator.generate(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooDeep() {
+        CatalogDataGenerator generator = new CatalogDataGenerator();
+        generator.setTreeDepth(20);
+        generator.setFanOut(10);
+        generator.getCategoryCount();
+    }
+}
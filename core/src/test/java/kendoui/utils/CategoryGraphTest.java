@@ -0,0 +1,61 @@
+package kendoui.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CategoryGraphTest {
+
+    /**
+     * 1 -> 2 -> 4 -> 5, 1 -> 3 -> 4, 6 alone
+     */
+    private static CategoryGraph sample() {
+        return new CategoryGraph.Builder().addEdge(1, 2).addEdge(1, 3).addEdge(2, 4).addEdge(3, 4).addEdge(4, 5)
+                .addEdge(1, 2).addCategory(6).build();
+    }
+
+    @Test
+    public void testAdjacency() {
+        CategoryGraph graph = sample();
+        Assert.assertEquals(6, graph.size());
+        Assert.assertEquals(5, graph.getEdgeCount());
+        Assert.assertArrayEquals(new long[]{2, 3}, graph.getChildren(1));
+        Assert.assertArrayEquals(new long[]{2, 3}, graph.getParents(4));
+        Assert.assertArrayEquals(new long[0], graph.getChildren(6));
+        Assert.assertArrayEquals(new long[0], graph.getParents(42));
+    }
+
+    @Test
+    public void testTraversals() {
+        CategoryGraph graph = sample();
+        Assert.assertArrayEquals(new long[]{2, 3, 4, 5}, graph.getDescendants(1));
+        Assert.assertArrayEquals(new long[]{4, 2, 3, 1}, graph.getAncestors(5));
+        Assert.assertTrue(graph.isReachable(1, 5));
+        Assert.assertFalse(graph.isReachable(5, 1));
+        Assert.assertFalse(graph.isReachable(2, 3));
+        Assert.assertTrue(graph.wouldCreateCycle(5, 1));
+        Assert.assertFalse(graph.wouldCreateCycle(6, 1));
+    }
+
+    @Test
+    public void testPatchesAreCopies() {
+        CategoryGraph graph = sample();
+        CategoryGraph added = graph.withEdge(6, 1);
+        Assert.assertArrayEquals(new long[]{1, 2, 3, 4, 5}, added.getDescendants(6));
+        Assert.assertArrayEquals(new long[0], graph.getDescendants(6));
+
+        CategoryGraph removed = added.withoutEdge(2, 4);
+        Assert.assertArrayEquals(new long[]{3}, removed.getParents(4));
+        Assert.assertTrue(added.hasEdge(2, 4));
+
+        CategoryGraph moved = graph.withParent(4, 6L);
+        Assert.assertArrayEquals(new long[]{6}, moved.getParents(4));
+        Assert.assertArrayEquals(new long[]{2, 3}, moved.getChildren(1));
+        Assert.assertArrayEquals(new long[]{4, 5}, moved.getDescendants(6));
+        Assert.assertArrayEquals(new long[]{7}, graph.withEdge(5, 7).getDescendants(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCycleIsRejected() {
+        sample().withEdge(5, 2);
+    }
+}
@@ -0,0 +1,41 @@
+package kendoui.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    private static final long MILLI = 1000000L;
+
+    @Test
+    public void testQuantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getQuantileMillis(0.99), 0);
+        for (int i = 0; i < 98; i++) {
+            histogram.record(MILLI / 2);
+        }
+        histogram.record(20 * MILLI);
+        histogram.record(30 * 1000 * MILLI);
+
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(0.5, histogram.getQuantileMillis(0.5), 0);
+        Assert.assertEquals(25, histogram.getQuantileMillis(0.99), 0);
+        Assert.assertEquals(30000, histogram.getQuantileMillis(1), 0);
+        Assert.assertEquals(30000, histogram.getMaxMillis(), 0);
+        Assert.assertEquals((98 * 0.5 + 20 + 30000) / 100, histogram.getMeanMillis(), 0.0001);
+    }
+
+    @Test
+    public void testBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(100000L);
+        histogram.record(100001L);
+        histogram.record(Long.MAX_VALUE / 2);
+        long[] counts = histogram.getBucketCounts();
+        Assert.assertEquals(LatencyHistogram.getBounds().length + 1, counts.length);
+        Assert.assertEquals(2, counts[0]);
+        Assert.assertEquals(1, counts[1]);
+        Assert.assertEquals(1, counts[counts.length - 1]);
+    }
+}
@@ -11,6 +11,7 @@ sudo su $POSTGRES_USER << EOF
     --
 
     drop database if exists kendo;
+    drop database if exists kendo_replica;
 
 	--
     -- Only used for development
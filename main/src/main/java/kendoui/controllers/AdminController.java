@@ -0,0 +1,92 @@
+package kendoui.controllers;
+
+import java.util.List;
+
+import kendoui.dao.DaoMetrics;
+import kendoui.dao.InstrumentedDataSource;
+import kendoui.utils.LatencyHistogram;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Diagnostics of the running application, in plain text.
+ */
+@Controller
+@RequestMapping("/admin")
+public class AdminController {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    @Autowired(required = false)
+    private List<InstrumentedDataSource> dataSources;
+
+    @Autowired(required = false)
+    private DaoMetrics daoMetrics;
+
+    /**
+     * Report the latency, rows and errors of the DAO calls in the Prometheus text format
+     *
+     * @return the report
+     */
+    @RequestMapping(value = "/metrics", produces = "text/plain; version=0.0.4")
+    @ResponseBody
+    public String metrics() {
+        StringBuilder report = new StringBuilder();
+        if (daoMetrics != null) {
+            daoMetrics.writePrometheus(report);
+        }
+        return report.toString();
+    }
+
+    /**
+     * Report the gauges, histograms and longest held connections of the connection pools
+     *
+     * @return the report
+     */
+    @RequestMapping(value = "/pool", produces = "text/plain")
+    @ResponseBody
+    public String pool() {
+        StringBuilder report = new StringBuilder();
+        if (dataSources == null) {
+            return "No instrumented data source\n";
+        }
+        for (InstrumentedDataSource dataSource : dataSources) {
+            report.append("# ").append(dataSource.getName()).append('\n');
+            report.append("active ").append(dataSource.getActiveConnections()).append('\n');
+            report.append("idle ").append(dataSource.getIdleConnections()).append('\n');
+            report.append("maxActive ").append(dataSource.getMaxActiveConnections()).append('\n');
+            report.append("waiting ").append(dataSource.getWaitingThreads()).append('\n');
+            report.append("borrowFailures ").append(dataSource.getBorrowFailureCount()).append('\n');
+            report.append("leaks ").append(dataSource.getLeakCount()).append(" (threshold ")
+                    .append(dataSource.getLeakThresholdMillis()).append(" ms)\n");
+            appendHistogram(report, "borrowWait", dataSource.getBorrowWait());
+            appendHistogram(report, "holdTime", dataSource.getHoldTime());
+            report.append("longest held connections\n");
+            for (String connection : dataSource.longestHeldConnections()) {
+                report.append("  ").append(connection).append('\n');
+            }
+            report.append('\n');
+        }
+        return report.toString();
+    }
+
+    private static void appendHistogram(StringBuilder report, String name, LatencyHistogram histogram) {
+        report.append(name).append(" count=").append(histogram.getCount())
+                .append(" mean=").append(histogram.getMeanMillis())
+                .append("ms p50=").append(histogram.getQuantileMillis(0.5))
+                .append("ms p99=").append(histogram.getQuantileMillis(0.99))
+                .append("ms max=").append(histogram.getMaxMillis()).append("ms\n");
+        long[] bounds = LatencyHistogram.getBounds();
+        long[] counts = histogram.getBucketCounts();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                report.append("  ").append(i < bounds.length ? "<= " + (double) bounds[i] / NANOS_PER_MILLI : "> "
+                        + (double) bounds[bounds.length - 1] / NANOS_PER_MILLI).append("ms ").append(counts[i])
+                        .append('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package kendoui.controllers;
+
+import kendoui.dao.DataSourceRequest;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.ServletRequestBindingException;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Resolve a {@link DataSourceRequest} argument of a controller method from the parameters a Kendo UI DataSource with
+ * server filtering, sorting and paging sends. Malformed parameters fail with a
+ * {@link ServletRequestBindingException}, answered with a 400 Bad Request.
+ */
+public class DataSourceRequestArgumentResolver implements HandlerMethodArgumentResolver {
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.springframework.web.method.support.HandlerMethodArgumentResolver#supportsParameter(
+     *      org.springframework.core.MethodParameter)
+     */
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return DataSourceRequest.class.equals(parameter.getParameterType());
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.springframework.web.method.support.HandlerMethodArgumentResolver#resolveArgument(
+     *      org.springframework.core.MethodParameter, org.springframework.web.method.support.ModelAndViewContainer,
+     *      org.springframework.web.context.request.NativeWebRequest,
+     *      org.springframework.web.bind.support.WebDataBinderFactory)
+     */
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory)
+            throws ServletRequestBindingException {
+        try {
+            return DataSourceRequest.parse(webRequest.getParameterMap());
+        } catch (IllegalArgumentException e) {
+            throw new ServletRequestBindingException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package kendoui.controllers;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import kendoui.dao.ReadYourWrites;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Pin the reads of a client to the primary database for a while after it wrote, so it reads its own writes even when
+ * the replicas lag. The time of the last write is kept in the HTTP session.
+ * <p/>
+ * The session must exist before the response is committed, the requests which may write (not GET nor HEAD) create it
+ * up front. The write is recorded once the handler returns, and again when the request completes for the writes of
+ * the view rendering, which are only recorded when the session exists.
+ */
+public class ReadYourWritesInterceptor extends HandlerInterceptorAdapter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReadYourWritesInterceptor.class);
+
+    public static final String LAST_WRITE_ATTRIBUTE = ReadYourWritesInterceptor.class.getName() + ".lastWrite";
+
+    private long windowMillis = 5000L;
+
+    /**
+     * Set how long after a write the reads of the client go to the primary, 0 to disable
+     *
+     * @param windowMillis the window in milliseconds
+     */
+    public void setWindowMillis(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.springframework.web.servlet.HandlerInterceptor#preHandle(javax.servlet.http.HttpServletRequest,
+     *      javax.servlet.http.HttpServletResponse, Object)
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (windowMillis <= 0) {
+            return true;
+        }
+        String method = request.getMethod();
+        HttpSession session = request.getSession(!"GET".equals(method) && !"HEAD".equals(method));
+        if (session != null) {
+            Long lastWrite = (Long) session.getAttribute(LAST_WRITE_ATTRIBUTE);
+            if (lastWrite != null && System.currentTimeMillis() - lastWrite < windowMillis) {
+                ReadYourWrites.pinToPrimary();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.springframework.web.servlet.HandlerInterceptor#postHandle(javax.servlet.http.HttpServletRequest,
+     *      javax.servlet.http.HttpServletResponse, Object, org.springframework.web.servlet.ModelAndView)
+     */
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        recordWrite(request);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.springframework.web.servlet.HandlerInterceptor#afterCompletion(javax.servlet.http.HttpServletRequest,
+     *      javax.servlet.http.HttpServletResponse, Object, Exception)
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        try {
+            recordWrite(request);
+        } finally {
+            ReadYourWrites.clear();
+        }
+    }
+
+    /**
+     * Record the time of the write of the request in its session, if it wrote
+     *
+     * @param request the request
+     */
+    private void recordWrite(HttpServletRequest request) {
+        if (windowMillis <= 0 || !ReadYourWrites.hasWritten()) {
+            return;
+        }
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            session.setAttribute(LAST_WRITE_ATTRIBUTE, System.currentTimeMillis());
+        } else {
+            // A GET request wrote, the next reads of the client may go to a replica
+            LOG.debug("No session to record the write of {} {}", request.getMethod(), request.getRequestURI());
+        }
+    }
+}
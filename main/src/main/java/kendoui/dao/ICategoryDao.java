@@ -3,7 +3,9 @@ package kendoui.dao;
 
 import kendoui.exception.DAOException;
 import kendoui.model.Category;
+import kendoui.utils.CategoryGraph;
 
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -11,11 +13,84 @@ import java.util.Set;
  */
 public interface ICategoryDao extends IDao<Category> {
     /**
-     * Get a set of category by pointOfSale id.
+     * Get a set of category by pointOfSale id, iterating in point of sale order.
      *
      * @param posId a PointOfSale id
      * @return a set of category or null if the category does not exist
      * @throws DAOException
      */
     Set<Category> getCategorySetByPOS(Long posId) throws DAOException;
+
+    /**
+     * Get the categories of a pointOfSale in point of sale order.
+     *
+     * @param posId a PointOfSale id
+     * @return the categories, ordered by pointOfSaleOrder
+     * @throws DAOException
+     */
+    List<Category> getCategoryListByPOS(Long posId) throws DAOException;
+
+    /**
+     * Get all the descendants of a category, read from the category closure in one query.
+     *
+     * @param categoryId a Category id
+     * @return the descendants, nearest first, or an empty list if the category has no children
+     * @throws DAOException
+     */
+    List<Category> getDescendants(Long categoryId) throws DAOException;
+
+    /**
+     * Get all the ancestors of a category, read from the category closure in one query.
+     *
+     * @param categoryId a Category id
+     * @return the ancestors, nearest first, or an empty list if the category has no parents
+     * @throws DAOException
+     */
+    List<Category> getAncestors(Long categoryId) throws DAOException;
+
+    /**
+     * Get a category and its descendants down to the given depth, read from the category closure in one query.
+     *
+     * @param categoryId a Category id
+     * @param maxDepth   the depth of the deepest descendants returned, 1 for the children
+     * @return the category followed by its descendants, nearest first
+     * @throws DAOException
+     */
+    List<Category> getSubtree(Long categoryId, int maxDepth) throws DAOException;
+
+    /**
+     * Move a category with its whole subtree under a new parent, removing it from all its current parents. The
+     * category closure follows in the same transaction.
+     *
+     * @param categoryId  a Category id
+     * @param newParentId the id of the new parent Category or null to make the category a root
+     * @throws DAOException if the new parent is the category itself or one of its descendants
+     */
+    void moveSubtree(Long categoryId, Long newParentId) throws DAOException;
+
+    /**
+     * Add a category to a parent, keeping its other parents.
+     *
+     * @param parentId the parent Category id
+     * @param childId  the child Category id
+     * @throws DAOException if the parent is the child or one of its descendants
+     */
+    void addEdge(Long parentId, Long childId) throws DAOException;
+
+    /**
+     * Remove a category from one of its parents.
+     *
+     * @param parentId the parent Category id
+     * @param childId  the child Category id
+     * @throws DAOException
+     */
+    void removeEdge(Long parentId, Long childId) throws DAOException;
+
+    /**
+     * Read all the category ids and the category tree edges into a graph snapshot, with plain JDBC and no entity.
+     *
+     * @return the category graph
+     * @throws DAOException if the hierarchy can not be read
+     */
+    CategoryGraph loadCategoryGraph() throws DAOException;
 }
@@ -1,9 +1,12 @@
 package kendoui.dao;
 
+import java.io.Reader;
+import java.util.Collection;
 import java.util.List;
 
 import kendoui.model.Category;
 import kendoui.model.PointOfSaleCategory;
+import kendoui.model.PointOfSaleCategoryRow;
 import kendoui.dao.IDao;
 import kendoui.exception.DAOException;
 
@@ -17,6 +20,15 @@ public interface IPointOfSaleCategoryDao extends IDao<PointOfSaleCategory> {
      */
     List<PointOfSaleCategory> getPointOfSaleCategorybyPointOfSaleId(Long pointOfSaleId) throws DAOException;
 
+    /**
+     * get the grid rows of a PointOfSale as read models, without loading the entities
+     *
+     * @param pointOfSaleId
+     * @return the rows in point of sale order
+     * @throws DAOException
+     */
+    List<PointOfSaleCategoryRow> getPointOfSaleCategoryRows(Long pointOfSaleId) throws DAOException;
+
     /**
      * get PointOfSaleCategories By CategoryId
      *
@@ -53,13 +65,26 @@ public interface IPointOfSaleCategoryDao extends IDao<PointOfSaleCategory> {
     void updatePosInUseStateTrue(Long categoryId) throws DAOException;
 
     /**
-     * Create a new PointOfSaleCategory by categoryId and pointOfSaleId
+     * Set inUse of every pointofsale associated with one of the categories to true, with one statement whatever the
+     * number of categories. The managed point of sales are refreshed and their cache entries evicted.
+     *
+     * @param categoryIds the Category ids
+     * @return the ids of the point of sales whose inUse changed
+     * @throws DAOException
+     */
+    List<Long> updatePosInUseStateTrue(Collection<Long> categoryIds) throws DAOException;
+
+    /**
+     * Create a new PointOfSaleCategory by categoryId and pointOfSaleId, unless it exists, and set the point of sale in
+     * use when the category is. One statement, neither entity is loaded; safe to retry or to run concurrently for the
+     * same pair.
      *
      * @param categoriyId
      * @param pointOfSaleId
-     * @return
+     * @return true, the category is assigned to the point of sale
+     * @throws DAOException if the category or the point of sale does not exist
      */
-    Boolean setCategoryTree(Long categoriyId, Long pointOfSaleId);
+    Boolean setCategoryTree(Long categoriyId, Long pointOfSaleId) throws DAOException;
 
     /**
      * Update inUse state of PointOfSale after de-associate a category from Sku
@@ -69,6 +94,98 @@ public interface IPointOfSaleCategoryDao extends IDao<PointOfSaleCategory> {
      */
     void updatePosInUseStateFalse(Long categoryId) throws DAOException;
 
+    /**
+     * Set inUse of every pointofsale associated with one of the categories to false when none of its categories is in
+     * use anymore, with one statement whatever the number of categories. The managed point of sales are refreshed and
+     * their cache entries evicted.
+     *
+     * @param categoryIds the Category ids
+     * @return the ids of the point of sales whose inUse changed
+     * @throws DAOException
+     */
+    List<Long> updatePosInUseStateFalse(Collection<Long> categoryIds) throws DAOException;
+
+    /**
+     * Recompute inUse of every pointofsale associated with one of the categories: a point of sale is in use when one
+     * of its categories is. One statement whatever the number of categories, the managed point of sales are refreshed
+     * and their cache entries evicted.
+     *
+     * @param categoryIds the Category ids
+     * @return the ids of the point of sales whose inUse changed
+     * @throws DAOException
+     */
+    List<Long> recomputePosInUseState(Collection<Long> categoryIds) throws DAOException;
+
+    /**
+     * Make the categories of a point of sale the desired list, in its order: the missing categories are assigned, the
+     * ones not listed removed and the pointOfSaleOrder of the others set to their position in the list. One statement
+     * computes and applies the differences, a second one recomputes the inUse state of the point of sale when
+     * categories were added or removed. Categories which do not exist are ignored and reported, a category listed
+     * twice keeps its first position. The managed point of sale categories of the point of sale are evicted.
+     *
+     * @param pointOfSaleId the PointOfSale id
+     * @param categoryIds   the Category ids in the desired order
+     * @return the categories inserted, deleted, reordered and unknown
+     * @throws DAOException if categories are to be assigned to a point of sale which does not exist
+     */
+    ReconcileResult reconcileCategories(Long pointOfSaleId, List<Long> categoryIds) throws DAOException;
+
+    /**
+     * Move a category of a point of sale right before another one. Only the row of the moved category is updated, it
+     * takes an order between the other one and its predecessor; the categories of the point of sale are renumbered
+     * first when there is no such order left.
+     *
+     * @param pointOfSaleId    the PointOfSale id
+     * @param categoryId       the Category id to move
+     * @param beforeCategoryId the Category id to move it before
+     * @throws DAOException if a category is not assigned to the point of sale
+     */
+    void moveCategoryBefore(Long pointOfSaleId, Long categoryId, Long beforeCategoryId) throws DAOException;
+
+    /**
+     * Move a category of a point of sale right after another one, see {@link #moveCategoryBefore(Long, Long, Long)}.
+     *
+     * @param pointOfSaleId   the PointOfSale id
+     * @param categoryId      the Category id to move
+     * @param afterCategoryId the Category id to move it after
+     * @throws DAOException if a category is not assigned to the point of sale
+     */
+    void moveCategoryAfter(Long pointOfSaleId, Long categoryId, Long afterCategoryId) throws DAOException;
+
+    /**
+     * Space the pointOfSaleOrder of the categories of a point of sale by the order gap again, keeping their order.
+     *
+     * @param pointOfSaleId the PointOfSale id
+     * @return the number of categories whose order changed
+     * @throws DAOException
+     */
+    int renumberCategories(Long pointOfSaleId) throws DAOException;
+
+    /**
+     * Get the point of sales with two categories whose orders are closer than the given gap, to renumber.
+     *
+     * @param minGap     the smallest gap left alone
+     * @param maxResults the number of point of sales returned at most
+     * @return the PointOfSale ids, ascending
+     * @throws DAOException
+     */
+    List<Long> getCrowdedPointOfSales(int minGap, int maxResults) throws DAOException;
+
+    /**
+     * Import point of sale category assignments from CSV lines of point of sale id, category id and order. The lines
+     * are copied into a staging table with COPY and merged with one statement: malformed lines, unknown ids, pairs
+     * repeated in the input and pairs already assigned are rejected, the others inserted. The inUse state of the point
+     * of sales is recomputed once at the end. Must run in a transaction, a line with a wrong number of columns fails
+     * the whole import.
+     *
+     * @param csv           the CSV lines, order may be empty for 0
+     * @param header        whether the first line is a header to skip
+     * @param maxRejections the number of rejected lines listed at most in the result
+     * @return the counts and the first rejected lines
+     * @throws DAOException if the input can not be read or copied
+     */
+    ImportResult importCategories(Reader csv, boolean header, int maxRejections) throws DAOException;
+
     /**
      * get CategoryTree
      *
@@ -1,13 +1,24 @@
 package kendoui.dao.impl;
 
-import java.util.HashSet;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import kendoui.dao.BaseContentDao;
+import kendoui.dao.FetchPlans;
 import kendoui.dao.ICategoryDao;
 import kendoui.exception.DAOException;
 import kendoui.model.Category;
+import kendoui.utils.CategoryGraph;
+import kendoui.utils.Constant;
 
+import org.hibernate.HibernateException;
+import org.hibernate.SQLQuery;
+import org.hibernate.jdbc.Work;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -15,8 +26,17 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public class CategoryDao extends BaseContentDao<Category> implements ICategoryDao {
-    private static final String GET_CATEGORY_BY_POSID = "select posc.category from PointOfSaleCategory posc where posc.pointOfSale.id = ? order by posc.pointOfSaleOrder";
 
+    // Native statements on the category tree, the triggers of category_tree keep the category closure in step
+    private static final String DETACH_CATEGORY = "delete from category_tree where child = ?";
+
+    private static final String ATTACH_CATEGORY = "insert into category_tree (parent, child) values (?, ?)";
+
+    private static final String REMOVE_EDGE = "delete from category_tree where parent = ? and child = ?";
+
+    private static final String SELECT_CATEGORY_IDS = "select id from category";
+
+    private static final String SELECT_CATEGORY_EDGES = "select parent, child from category_tree";
 
     /**
      * (non-Javadoc)
@@ -24,6 +44,145 @@ public class CategoryDao extends BaseContentDao<Category> implements ICategoryDa
      * @see kendoui.dao.ICategoryDao#getCategorySetByPOS
      */
     public Set<Category> getCategorySetByPOS(Long posId) throws DAOException {
-        return new HashSet<Category>(getByList(GET_CATEGORY_BY_POSID, posId));
+        return new LinkedHashSet<Category>(getCategoryListByPOS(posId));
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.ICategoryDao#getCategoryListByPOS(Long)
+     */
+    @Override
+    public List<Category> getCategoryListByPOS(Long posId) throws DAOException {
+        return getByNamedList(Category.QUERY_BY_POINT_OF_SALE, FetchPlans.POS_CATALOG, posId);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.ICategoryDao#getDescendants(Long)
+     */
+    @Override
+    public List<Category> getDescendants(Long categoryId) throws DAOException {
+        return getByNamedList(Category.QUERY_DESCENDANTS, categoryId);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.ICategoryDao#getAncestors(Long)
+     */
+    @Override
+    public List<Category> getAncestors(Long categoryId) throws DAOException {
+        return getByNamedList(Category.QUERY_ANCESTORS, categoryId);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.ICategoryDao#getSubtree(Long, int)
+     */
+    @Override
+    public List<Category> getSubtree(Long categoryId, int maxDepth) throws DAOException {
+        return getByNamedList(Category.QUERY_SUBTREE, categoryId, maxDepth);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.ICategoryDao#moveSubtree(Long, Long)
+     */
+    @Override
+    public void moveSubtree(Long categoryId, Long newParentId) throws DAOException {
+        if (newParentId != null) {
+            Number paths = (Number) queryByNamedList(Category.QUERY_COUNT_PATHS, categoryId, newParentId).get(0);
+            if (paths.longValue() > 0) {
+                throw new DAOException("Can not move category " + categoryId + " under its own subtree");
+            }
+        }
+        // Flush the pending collection changes first, the statements bypass the persistence context
+        getSession().flush();
+        executeTreeStatement(DETACH_CATEGORY, categoryId);
+        if (newParentId != null) {
+            executeTreeStatement(ATTACH_CATEGORY, newParentId, categoryId);
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.ICategoryDao#addEdge(Long, Long)
+     */
+    @Override
+    public void addEdge(Long parentId, Long childId) throws DAOException {
+        Number paths = (Number) queryByNamedList(Category.QUERY_COUNT_PATHS, childId, parentId).get(0);
+        if (paths.longValue() > 0) {
+            throw new DAOException("Can not add category " + childId + " under its own subtree");
+        }
+        getSession().flush();
+        executeTreeStatement(ATTACH_CATEGORY, parentId, childId);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.ICategoryDao#removeEdge(Long, Long)
+     */
+    @Override
+    public void removeEdge(Long parentId, Long childId) throws DAOException {
+        getSession().flush();
+        executeTreeStatement(REMOVE_EDGE, parentId, childId);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.ICategoryDao#loadCategoryGraph()
+     */
+    @Override
+    public CategoryGraph loadCategoryGraph() throws DAOException {
+        final CategoryGraph.Builder builder = new CategoryGraph.Builder();
+        try {
+            getSession().doWork(new Work() {
+                @Override
+                public void execute(Connection connection) throws SQLException {
+                    Statement statement = connection.createStatement();
+                    try {
+                        statement.setFetchSize(Constant.DEFAULT_FETCH_SIZE);
+                        ResultSet categories = statement.executeQuery(SELECT_CATEGORY_IDS);
+                        while (categories.next()) {
+                            builder.addCategory(categories.getLong(1));
+                        }
+                        categories.close();
+                        ResultSet edges = statement.executeQuery(SELECT_CATEGORY_EDGES);
+                        while (edges.next()) {
+                            builder.addEdge(edges.getLong(1), edges.getLong(2));
+                        }
+                        edges.close();
+                    } finally {
+                        statement.close();
+                    }
+                }
+            });
+        } catch (HibernateException e) {
+            throw new DAOException("Can not read the category graph", e);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Execute a native statement on the category tree. The statement is synchronized on the tree table only, so
+     * Hibernate evicts the cached parents and chidren collections and keeps the rest of the second level cache.
+     *
+     * @param sql  a native SQL statement
+     * @param args an object array of statement parameters
+     */
+    private void executeTreeStatement(String sql, Object... args) {
+        SQLQuery statement = getSession().createSQLQuery(sql);
+        statement.addSynchronizedQuerySpace(Category.TREE_TABLE);
+        for (int i = 0; i < args.length; i++) {
+            statement.setParameter(i, args[i]);
+        }
+        statement.executeUpdate();
     }
 }
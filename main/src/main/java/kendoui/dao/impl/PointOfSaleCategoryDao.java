@@ -1,20 +1,42 @@
 package kendoui.dao.impl;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-
-import javax.persistence.NoResultException;
-import javax.persistence.Query;
+import java.util.Map;
 
 import kendoui.dao.BaseContentDao;
-import kendoui.dao.ICategoryDao;
+import kendoui.dao.FetchPlans;
+import kendoui.dao.ImportResult;
+import kendoui.dao.ReconcileResult;
 import kendoui.dao.IPointOfSaleCategoryDao;
-import kendoui.dao.IPointOfSaleDao;
 import kendoui.exception.DAOException;
 import kendoui.model.Category;
 import kendoui.model.PointOfSale;
 import kendoui.model.PointOfSaleCategory;
+import kendoui.model.PointOfSaleCategoryRow;
+import kendoui.utils.Constant;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import org.hibernate.EntityMode;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.cache.UpdateTimestampsCache;
+import org.hibernate.engine.EntityKey;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.jdbc.Work;
+import org.hibernate.persister.entity.EntityPersister;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.support.nativejdbc.CommonsDbcpNativeJdbcExtractor;
+import org.springframework.jdbc.support.nativejdbc.NativeJdbcExtractor;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -23,32 +45,214 @@ import org.springframework.stereotype.Repository;
 @Repository
 public class PointOfSaleCategoryDao extends BaseContentDao<PointOfSaleCategory> implements IPointOfSaleCategoryDao {
 
-    private static String GET_POINT_OF_SALE_CATEGORY_BY_POINT_OF_SALE_ID = "Select distinct(posc) from PointOfSaleCategory posc where posc.pointOfSale.id = :pointOfSaleId";
+    // Set-based inUse updates of the point of sales of an array of categories, bumping the version column
+    private static final String SET_POS_IN_USE = "UPDATE point_of_sale SET inuse = true, lastupdated = now()"
+            + " WHERE inuse IS NOT TRUE"
+            + " AND id IN (SELECT pointofsale FROM point_of_sale_category WHERE category = ANY (?))"
+            + " RETURNING id";
+
+    private static final String CLEAR_POS_IN_USE = "UPDATE point_of_sale pos SET inuse = false, lastupdated = now()"
+            + " WHERE pos.inuse"
+            + " AND pos.id IN (SELECT pointofsale FROM point_of_sale_category WHERE category = ANY (?))"
+            + " AND NOT EXISTS (SELECT 1 FROM point_of_sale_category pc JOIN category c ON c.id = pc.category"
+            + " WHERE pc.pointofsale = pos.id AND c.inuse)"
+            + " RETURNING pos.id";
+
+    private static final String RECOMPUTE_POS_IN_USE = "UPDATE point_of_sale pos SET inuse = s.inuse, lastupdated = now()"
+            + " FROM (SELECT pc.pointofsale AS id, coalesce(bool_or(c.inuse), false) AS inuse"
+            + " FROM point_of_sale_category pc JOIN category c ON c.id = pc.category"
+            + " WHERE pc.pointofsale IN (SELECT pointofsale FROM point_of_sale_category WHERE category = ANY (?))"
+            + " GROUP BY pc.pointofsale) s"
+            + " WHERE pos.id = s.id AND pos.inuse IS DISTINCT FROM s.inuse"
+            + " RETURNING pos.id";
+
+    // Bulk import: the CSV lines are copied as text into a staging table dropped at commit, line numbered by a serial
+    private static final String IMPORT_TABLE = "pg_temp.point_of_sale_category_import";
+
+    private static final String CREATE_IMPORT_TABLE = "DROP TABLE IF EXISTS " + IMPORT_TABLE + ";"
+            + " CREATE TEMP TABLE point_of_sale_category_import (line bigserial PRIMARY KEY, pointofsale text,"
+            + " category text, pointofsaleorder text, pointofsale_id bigint, category_id bigint, order_value integer,"
+            + " reason text) ON COMMIT DROP";
+
+    private static final String COPY_IMPORT = "COPY " + IMPORT_TABLE + " (pointofsale, category, pointofsaleorder)"
+            + " FROM STDIN WITH CSV";
+
+    private static final String REJECT_MALFORMED = "UPDATE " + IMPORT_TABLE + " SET reason = CASE"
+            + " WHEN pointofsale IS NULL OR pointofsale !~ '^\\s*[0-9]{1,18}\\s*$' THEN 'invalid point of sale id'"
+            + " WHEN category IS NULL OR category !~ '^\\s*[0-9]{1,18}\\s*$' THEN 'invalid category id'"
+            + " ELSE 'invalid order' END"
+            + " WHERE pointofsale IS NULL OR pointofsale !~ '^\\s*[0-9]{1,18}\\s*$'"
+            + " OR category IS NULL OR category !~ '^\\s*[0-9]{1,18}\\s*$'"
+            + " OR pointofsaleorder !~ '^\\s*-?[0-9]{1,9}\\s*$'";
+
+    private static final String PARSE_IMPORT = "UPDATE " + IMPORT_TABLE + " SET pointofsale_id = pointofsale::bigint,"
+            + " category_id = category::bigint, order_value = coalesce(pointofsaleorder::integer, 0)"
+            + " WHERE reason IS NULL";
+
+    private static final String REJECT_UNKNOWN = "UPDATE " + IMPORT_TABLE + " i SET reason = CASE"
+            + " WHEN p.id IS NULL THEN 'unknown point of sale' ELSE 'unknown category' END"
+            + " FROM " + IMPORT_TABLE + " j LEFT JOIN point_of_sale p ON p.id = j.pointofsale_id"
+            + " LEFT JOIN category c ON c.id = j.category_id"
+            + " WHERE i.line = j.line AND j.reason IS NULL AND (p.id IS NULL OR c.id IS NULL)";
+
+    private static final String REJECT_DUPLICATES = "UPDATE " + IMPORT_TABLE + " i SET reason = 'duplicate of line '"
+            + " || d.first FROM (SELECT line, first_value(line) OVER w AS first, row_number() OVER w AS n"
+            + " FROM " + IMPORT_TABLE + " WHERE reason IS NULL"
+            + " WINDOW w AS (PARTITION BY pointofsale_id, category_id ORDER BY line)) d"
+            + " WHERE i.line = d.line AND d.n > 1";
 
-    private static String GET_POINT_OF_SALE_CATEGORY_BY_POINT_OF_SALE_ID_AND_CATEGORY_ID = "Select distinct(posc) from PointOfSaleCategory posc where posc.pointOfSale.id = :pointOfSaleId and posc.category.id = :categoryId";
+    // The merge: one insert of the valid lines, the ids taken in blocks of the sequence like the pooled-lo optimizer,
+    // the pairs already assigned left to the unique constraint and reported
+    private static final String MERGE_IMPORT = "WITH accepted AS ("
+            + " SELECT line, pointofsale_id, category_id, order_value, row_number() OVER (ORDER BY line) - 1 AS k"
+            + " FROM " + IMPORT_TABLE + " WHERE reason IS NULL),"
+            + " blocks AS (SELECT row_number() OVER () - 1 AS b,"
+            + " nextval('point_of_sale_category_sequence') AS first FROM generate_series(1,"
+            + " (SELECT ceil(count(*) / " + Constant.POINT_OF_SALE_CATEGORY_ID_BLOCK_SIZE + ".0)::integer"
+            + " FROM accepted))),"
+            + " inserted AS (INSERT INTO point_of_sale_category (id, pointofsale, category, pointofsaleorder)"
+            + " SELECT blocks.first + accepted.k % " + Constant.POINT_OF_SALE_CATEGORY_ID_BLOCK_SIZE + ","
+            + " accepted.pointofsale_id, accepted.category_id, accepted.order_value"
+            + " FROM accepted JOIN blocks ON blocks.b = accepted.k / " + Constant.POINT_OF_SALE_CATEGORY_ID_BLOCK_SIZE
+            + " ON CONFLICT ON CONSTRAINT pointofsale_category_unique DO NOTHING"
+            + " RETURNING pointofsale, category)"
+            + " UPDATE " + IMPORT_TABLE + " i SET reason = 'already assigned' WHERE i.reason IS NULL"
+            + " AND NOT EXISTS (SELECT 1 FROM inserted"
+            + " WHERE inserted.pointofsale = i.pointofsale_id AND inserted.category = i.category_id)";
 
-    private static String GET_CATEGORY_TREE = "Select p.category from PointOfSaleCategory p where p.pointOfSale.id = :pointofsaleId";
+    private static final String COUNT_IMPORT = "SELECT count(*), count(reason) FROM " + IMPORT_TABLE;
 
-    private static String GET_POINT_OF_SALE_CATEGORY_BY_CATEGORY_ID = "FROM PointOfSaleCategory x WHERE x.category.id = :category";
+    private static final String SELECT_REJECTIONS = "SELECT line, pointofsale, category, pointofsaleorder, reason"
+            + " FROM " + IMPORT_TABLE + " WHERE reason IS NOT NULL ORDER BY line LIMIT ?";
 
-    @Autowired
-    private ICategoryDao categoryDao;
+    private static final String RECOMPUTE_IMPORTED_POS_IN_USE = "UPDATE point_of_sale pos"
+            + " SET inuse = s.inuse, lastupdated = now()"
+            + " FROM (SELECT pc.pointofsale AS id, coalesce(bool_or(c.inuse), false) AS inuse"
+            + " FROM point_of_sale_category pc JOIN category c ON c.id = pc.category"
+            + " WHERE pc.pointofsale IN (SELECT pointofsale_id FROM " + IMPORT_TABLE + " WHERE reason IS NULL)"
+            + " GROUP BY pc.pointofsale) s"
+            + " WHERE pos.id = s.id AND pos.inuse IS DISTINCT FROM s.inuse"
+            + " RETURNING pos.id";
 
-    @Autowired
-    private IPointOfSaleDao pointOfSaleDao;
+    // Reconcile the categories of a point of sale with a desired list in one statement, the list positions spaced by
+    // the order gap as pointofsaleorder: the missing links are inserted with ids taken in blocks of the sequence, the links not listed
+    // deleted and the moved ones updated. Returns each change, and the listed categories which do not exist.
+    private static final String RECONCILE_CATEGORIES = "WITH desired AS ("
+            + " SELECT DISTINCT ON (d.category) d.category,"
+            + " ((d.n - 1) * " + Constant.POINT_OF_SALE_ORDER_GAP + ")::integer AS position"
+            + " FROM unnest(?::bigint[]) WITH ORDINALITY AS d(category, n) ORDER BY d.category, d.n),"
+            + " known AS (SELECT d.category, d.position FROM desired d JOIN category c ON c.id = d.category),"
+            + " added AS (SELECT k.category, k.position, row_number() OVER (ORDER BY k.position) - 1 AS n"
+            + " FROM known k WHERE NOT EXISTS (SELECT 1 FROM point_of_sale_category pc"
+            + " WHERE pc.pointofsale = ? AND pc.category = k.category)),"
+            + " blocks AS (SELECT row_number() OVER () - 1 AS b,"
+            + " nextval('point_of_sale_category_sequence') AS first FROM generate_series(1,"
+            + " (SELECT ceil(count(*) / " + Constant.POINT_OF_SALE_CATEGORY_ID_BLOCK_SIZE + ".0)::integer"
+            + " FROM added))),"
+            + " inserted AS (INSERT INTO point_of_sale_category (id, pointofsale, category, pointofsaleorder)"
+            + " SELECT blocks.first + added.n % " + Constant.POINT_OF_SALE_CATEGORY_ID_BLOCK_SIZE + ", ?,"
+            + " added.category, added.position"
+            + " FROM added JOIN blocks ON blocks.b = added.n / " + Constant.POINT_OF_SALE_CATEGORY_ID_BLOCK_SIZE
+            + " ON CONFLICT ON CONSTRAINT pointofsale_category_unique"
+            + " DO UPDATE SET pointofsaleorder = EXCLUDED.pointofsaleorder, lastupdated = now()"
+            + " RETURNING category),"
+            + " deleted AS (DELETE FROM point_of_sale_category pc WHERE pc.pointofsale = ?"
+            + " AND NOT EXISTS (SELECT 1 FROM known k WHERE k.category = pc.category) RETURNING pc.category),"
+            + " reordered AS (UPDATE point_of_sale_category pc SET pointofsaleorder = k.position, lastupdated = now()"
+            + " FROM known k WHERE pc.pointofsale = ? AND pc.category = k.category"
+            + " AND pc.pointofsaleorder IS DISTINCT FROM k.position RETURNING pc.category)"
+            + " SELECT 'inserted', category FROM inserted"
+            + " UNION ALL SELECT 'deleted', category FROM deleted"
+            + " UNION ALL SELECT 'reordered', category FROM reordered"
+            + " UNION ALL SELECT 'unknown', d.category FROM desired d"
+            + " WHERE NOT EXISTS (SELECT 1 FROM known k WHERE k.category = d.category)";
 
+    private static final String RECOMPUTE_ONE_POS_IN_USE = "UPDATE point_of_sale pos"
+            + " SET inuse = s.inuse, lastupdated = now()"
+            + " FROM (SELECT EXISTS (SELECT 1 FROM point_of_sale_category pc JOIN category c ON c.id = pc.category"
+            + " WHERE pc.pointofsale = ? AND c.inuse) AS inuse) s"
+            + " WHERE pos.id = ? AND pos.inuse IS DISTINCT FROM s.inuse"
+            + " RETURNING pos.id";
+
+    // Move a category right before or after another one of the point of sale: it takes the middle of the order of the
+    // anchor and of its neighbour, or is one gap away at the ends. Nothing is updated when no order is left in between.
+    private static final String MOVE_CATEGORY_BEFORE = "WITH anchor AS (SELECT pointofsaleorder::bigint AS o"
+            + " FROM point_of_sale_category WHERE pointofsale = ? AND category = ?),"
+            + " neighbour AS (SELECT max(pc.pointofsaleorder)::bigint AS o FROM point_of_sale_category pc, anchor"
+            + " WHERE pc.pointofsale = ? AND pc.category <> ? AND pc.pointofsaleorder < anchor.o),"
+            + " slot AS (SELECT coalesce((neighbour.o + anchor.o) / 2, anchor.o - " + Constant.POINT_OF_SALE_ORDER_GAP
+            + ") AS o, coalesce(neighbour.o, anchor.o - " + Constant.POINT_OF_SALE_ORDER_GAP + " - 1) AS low,"
+            + " anchor.o AS high FROM anchor, neighbour)"
+            + " UPDATE point_of_sale_category pc SET pointofsaleorder = slot.o::integer, lastupdated = now()"
+            + " FROM slot WHERE pc.pointofsale = ? AND pc.category = ?"
+            + " AND slot.o > slot.low AND slot.o < slot.high AND slot.o >= " + Integer.MIN_VALUE;
+
+    private static final String MOVE_CATEGORY_AFTER = "WITH anchor AS (SELECT pointofsaleorder::bigint AS o"
+            + " FROM point_of_sale_category WHERE pointofsale = ? AND category = ?),"
+            + " neighbour AS (SELECT min(pc.pointofsaleorder)::bigint AS o FROM point_of_sale_category pc, anchor"
+            + " WHERE pc.pointofsale = ? AND pc.category <> ? AND pc.pointofsaleorder > anchor.o),"
+            + " slot AS (SELECT coalesce((anchor.o + neighbour.o) / 2, anchor.o + " + Constant.POINT_OF_SALE_ORDER_GAP
+            + ") AS o, anchor.o AS low,"
+            + " coalesce(neighbour.o, anchor.o + " + Constant.POINT_OF_SALE_ORDER_GAP + " + 1) AS high"
+            + " FROM anchor, neighbour)"
+            + " UPDATE point_of_sale_category pc SET pointofsaleorder = slot.o::integer, lastupdated = now()"
+            + " FROM slot WHERE pc.pointofsale = ? AND pc.category = ?"
+            + " AND slot.o > slot.low AND slot.o < slot.high AND slot.o <= " + Integer.MAX_VALUE;
+
+    // Respace the categories of a point of sale by the order gap, keeping their order
+    private static final String RENUMBER_CATEGORIES = "UPDATE point_of_sale_category pc"
+            + " SET pointofsaleorder = s.position, lastupdated = now()"
+            + " FROM (SELECT id, ((row_number() OVER (ORDER BY pointofsaleorder, id) - 1) * "
+            + Constant.POINT_OF_SALE_ORDER_GAP + ")::integer AS position"
+            + " FROM point_of_sale_category WHERE pointofsale = ?) s"
+            + " WHERE pc.id = s.id AND pc.pointofsaleorder IS DISTINCT FROM s.position";
+
+    // The renumbering before a move, only when both categories are assigned to the point of sale so a failing move
+    // changes nothing
+    private static final String RENUMBER_CATEGORIES_TO_MOVE = RENUMBER_CATEGORIES
+            + " AND (SELECT count(*) FROM point_of_sale_category WHERE pointofsale = ? AND category IN (?, ?)) = 2";
+
+    private static final String SELECT_CROWDED_POINT_OF_SALES = "SELECT pointofsale FROM ("
+            + " SELECT pointofsale, pointofsaleorder - lag(pointofsaleorder)"
+            + " OVER (PARTITION BY pointofsale ORDER BY pointofsaleorder, id) AS gap"
+            + " FROM point_of_sale_category) g"
+            + " WHERE gap < ? GROUP BY pointofsale ORDER BY pointofsale LIMIT ?";
+
+    // Assign a category to a point of sale in one round trip: the link is inserted last unless it exists, and the point
+    // of sale set in use when the category is, returning whether each changed
+    private static final String ASSIGN_CATEGORY = "WITH link AS ("
+            + " INSERT INTO point_of_sale_category (id, pointofsale, category, pointofsaleorder)"
+            + " SELECT ?, ?, ?, coalesce(max(pointofsaleorder) + " + Constant.POINT_OF_SALE_ORDER_GAP + ", 0)"
+            + " FROM point_of_sale_category WHERE pointofsale = ?"
+            + " ON CONFLICT ON CONSTRAINT pointofsale_category_unique DO NOTHING RETURNING pointofsale, category),"
+            + " pos AS (UPDATE point_of_sale p SET inuse = true, lastupdated = now()"
+            + " FROM link JOIN category c ON c.id = link.category"
+            + " WHERE p.id = link.pointofsale AND c.inuse AND p.inuse IS NOT TRUE RETURNING p.id)"
+            + " SELECT (SELECT count(*) FROM link), (SELECT count(*) FROM pos)";
+
+    // Reaches the driver connection for COPY through the Spring proxies and the DBCP pool
+    private static final NativeJdbcExtractor NATIVE_JDBC_EXTRACTOR = new CommonsDbcpNativeJdbcExtractor();
 
     /**
      * (non-Javadoc)
      *
      * @see kendoui.dao.IPointOfSaleCategoryDao#getPointOfSaleCategorybyPointOfSaleId(java.lang.Long)
      */
-    @SuppressWarnings("unchecked")
     @Override
     public List<PointOfSaleCategory> getPointOfSaleCategorybyPointOfSaleId(Long pointOfSaleId) throws DAOException {
-        Query query = createQuery(GET_POINT_OF_SALE_CATEGORY_BY_POINT_OF_SALE_ID);
-        query.setParameter("pointOfSaleId", pointOfSaleId);
-        return (List<PointOfSaleCategory>) query.getResultList();
+        return getByNamedList(PointOfSaleCategory.QUERY_BY_POINT_OF_SALE, FetchPlans.POINT_OF_SALE_CATEGORY_GRID,
+                pointOfSaleId);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IPointOfSaleCategoryDao#getPointOfSaleCategoryRows(java.lang.Long)
+     */
+    @Override
+    public List<PointOfSaleCategoryRow> getPointOfSaleCategoryRows(Long pointOfSaleId) throws DAOException {
+        return queryByNamedProjection(PointOfSaleCategory.QUERY_ROWS_BY_POINT_OF_SALE, PointOfSaleCategoryRow.class,
+                pointOfSaleId);
     }
 
     /**
@@ -59,9 +263,8 @@ public class PointOfSaleCategoryDao extends BaseContentDao<PointOfSaleCategory>
     @Override
     @SuppressWarnings("unchecked")
     public List<Category> getCategoryTree(Long pointofsaleId) throws DAOException {
-        Query query = createQuery(GET_CATEGORY_TREE);
-        query.setParameter("pointofsaleId", pointofsaleId);
-        return (List<Category>) query.getResultList();
+        return (List<Category>) queryByNamedList(PointOfSaleCategory.QUERY_CATEGORY_TREE, FetchPlans.CATEGORY_TREE,
+                pointofsaleId);
     }
 
     /**
@@ -70,11 +273,8 @@ public class PointOfSaleCategoryDao extends BaseContentDao<PointOfSaleCategory>
      * @see kendoui.dao.IPointOfSaleCategoryDao#getPointOfSaleCategoriesByCategoryId(java.lang.Long)
      */
     @Override
-    @SuppressWarnings("unchecked")
     public List<PointOfSaleCategory> getPointOfSaleCategoriesByCategoryId(Long categoryId) throws DAOException {
-        Query query = createQuery(GET_POINT_OF_SALE_CATEGORY_BY_CATEGORY_ID);
-        query.setParameter("category", categoryId);
-        return (List<PointOfSaleCategory>) query.getResultList();
+        return getByNamedList(PointOfSaleCategory.QUERY_BY_CATEGORY, categoryId);
     }
 
     /**
@@ -99,14 +299,7 @@ public class PointOfSaleCategoryDao extends BaseContentDao<PointOfSaleCategory>
      */
     @Override
     public PointOfSaleCategory getPointOfSaleCategoriesByCategoryIdAndPosId(Long categoryId, Long posId) {
-        Query query = createQuery(GET_POINT_OF_SALE_CATEGORY_BY_POINT_OF_SALE_ID_AND_CATEGORY_ID);
-        query.setParameter("pointOfSaleId", posId);
-        query.setParameter("categoryId", categoryId);
-        try {
-            return (PointOfSaleCategory) query.getSingleResult();
-        } catch (NoResultException e) {
-            return null;
-        }
+        return getByNamedOne(PointOfSaleCategory.QUERY_BY_POINT_OF_SALE_AND_CATEGORY, posId, categoryId);
     }
 
     /**
@@ -115,17 +308,40 @@ public class PointOfSaleCategoryDao extends BaseContentDao<PointOfSaleCategory>
      * @see kendoui.dao.IPointOfSaleCategoryDao#setCategoryTree(Long, Long)
      */
     @Override
-    public Boolean setCategoryTree(Long categoriyId, Long pointOfSaleId) {
-        Category category = categoryDao.find(categoriyId);
-        PointOfSale pointOfSale = pointOfSaleDao.find(pointOfSaleId);
-        PointOfSaleCategory pointOfSaleCategory = new PointOfSaleCategory();
-        pointOfSaleCategory.setCategory(category);
-        pointOfSaleCategory.setPointOfSale(pointOfSaleDao.find(pointOfSaleId));
-        persist(pointOfSaleCategory);
-
-        if (category.getInUse()) {
-            pointOfSale.setInUse(true);
-            pointOfSaleDao.merge(pointOfSale);
+    public Boolean setCategoryTree(final Long categoriyId, final Long pointOfSaleId) throws DAOException {
+        final long id = allocateIds(1)[0];
+        final boolean[] changed = new boolean[2];
+        Session session = getSession();
+        try {
+            // The statement must see the pending changes of the session
+            session.flush();
+            session.doWork(new Work() {
+                @Override
+                public void execute(Connection connection) throws SQLException {
+                    PreparedStatement statement = connection.prepareStatement(ASSIGN_CATEGORY);
+                    try {
+                        statement.setLong(1, id);
+                        statement.setLong(2, pointOfSaleId);
+                        statement.setLong(3, categoriyId);
+                        statement.setLong(4, pointOfSaleId);
+                        ResultSet result = statement.executeQuery();
+                        result.next();
+                        changed[0] = result.getLong(1) > 0;
+                        changed[1] = result.getLong(2) > 0;
+                        result.close();
+                    } finally {
+                        statement.close();
+                    }
+                }
+            });
+        } catch (HibernateException e) {
+            throw new DAOException("Can not assign category " + categoriyId + " to point of sale " + pointOfSaleId, e);
+        }
+        if (changed[0]) {
+            invalidateCachedQueries(session);
+        }
+        if (changed[1]) {
+            refreshPointOfSales(session, Collections.singletonList(pointOfSaleId));
         }
         return true;
     }
@@ -137,14 +353,17 @@ public class PointOfSaleCategoryDao extends BaseContentDao<PointOfSaleCategory>
      */
     @Override
     public void updatePosInUseStateTrue(Long categoryId) throws DAOException {
-        List<PointOfSaleCategory> pointOfSaleCategoryList = getPointOfSaleCategoriesByCategoryId(categoryId);
-        for (PointOfSaleCategory pointOfSaleCategory : pointOfSaleCategoryList) {
-            PointOfSale pointOfSale = pointOfSaleCategory.getPointOfSale();
-            if (!pointOfSale.getInUse()) {
-                pointOfSale.setInUse(true);
-                pointOfSaleDao.merge(pointOfSale);
-            }
-        }
+        updatePosInUseStateTrue(Collections.singleton(categoryId));
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IPointOfSaleCategoryDao#updatePosInUseStateTrue(java.util.Collection)
+     */
+    @Override
+    public List<Long> updatePosInUseStateTrue(Collection<Long> categoryIds) throws DAOException {
+        return updatePointOfSales(SET_POS_IN_USE, categoryIds);
     }
 
     /**
@@ -154,22 +373,408 @@ public class PointOfSaleCategoryDao extends BaseContentDao<PointOfSaleCategory>
      */
     @Override
     public void updatePosInUseStateFalse(Long categoryId) throws DAOException {
-        List<PointOfSaleCategory> pointOfSaleCategoryList = getPointOfSaleCategoriesByCategoryId(categoryId);
-        for (PointOfSaleCategory pointOfSaleCategory : pointOfSaleCategoryList) {
-            PointOfSale pointOfSale = pointOfSaleCategory.getPointOfSale();
-            List<Category> categories = getCategoryTree(pointOfSale.getId());
-            boolean inUse = false;
-            for (Category category : categories) {
-                if (category.getInUse()) {
-                    inUse = true;
-                    break;
+        updatePosInUseStateFalse(Collections.singleton(categoryId));
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IPointOfSaleCategoryDao#updatePosInUseStateFalse(java.util.Collection)
+     */
+    @Override
+    public List<Long> updatePosInUseStateFalse(Collection<Long> categoryIds) throws DAOException {
+        return updatePointOfSales(CLEAR_POS_IN_USE, categoryIds);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IPointOfSaleCategoryDao#recomputePosInUseState(java.util.Collection)
+     */
+    @Override
+    public List<Long> recomputePosInUseState(Collection<Long> categoryIds) throws DAOException {
+        return updatePointOfSales(RECOMPUTE_POS_IN_USE, categoryIds);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IPointOfSaleCategoryDao#importCategories(java.io.Reader, boolean, int)
+     */
+    @Override
+    public ImportResult importCategories(final Reader csv, final boolean header, final int maxRejections)
+            throws DAOException {
+        final long[] counts = new long[2];
+        final List<ImportResult.Rejection> rejections = new ArrayList<ImportResult.Rejection>();
+        final List<Long> updated = new ArrayList<Long>();
+        Session session = getSession();
+        try {
+            // The merge must see the pending assignments of the session
+            session.flush();
+            session.doWork(new Work() {
+                @Override
+                public void execute(Connection connection) throws SQLException {
+                    Statement statement = connection.createStatement();
+                    try {
+                        statement.execute(CREATE_IMPORT_TABLE);
+                        try {
+                            getPGConnection(connection).getCopyAPI().copyIn(
+                                    COPY_IMPORT + (header ? " HEADER" : ""), csv);
+                        } catch (IOException e) {
+                            throw new SQLException("Can not read the import", e);
+                        }
+                        statement.executeUpdate(REJECT_MALFORMED);
+                        statement.executeUpdate(PARSE_IMPORT);
+                        statement.executeUpdate(REJECT_UNKNOWN);
+                        statement.executeUpdate(REJECT_DUPLICATES);
+                        statement.executeUpdate(MERGE_IMPORT);
+                        ResultSet result = statement.executeQuery(RECOMPUTE_IMPORTED_POS_IN_USE);
+                        while (result.next()) {
+                            updated.add(result.getLong(1));
+                        }
+                        result.close();
+                        result = statement.executeQuery(COUNT_IMPORT);
+                        result.next();
+                        counts[0] = result.getLong(1);
+                        counts[1] = result.getLong(2);
+                        result.close();
+                    } finally {
+                        statement.close();
+                    }
+
+                    PreparedStatement select = connection.prepareStatement(SELECT_REJECTIONS);
+                    try {
+                        select.setInt(1, maxRejections);
+                        ResultSet result = select.executeQuery();
+                        while (result.next()) {
+                            rejections.add(new ImportResult.Rejection(result.getLong(1), new String[] {
+                                    result.getString(2), result.getString(3), result.getString(4)},
+                                    result.getString(5)));
+                        }
+                        result.close();
+                    } finally {
+                        select.close();
+                    }
                 }
+            });
+        } catch (HibernateException e) {
+            throw new DAOException("Can not import the point of sale categories", e);
+        }
+        invalidateCachedQueries(session);
+        refreshPointOfSales(session, updated);
+        return new ImportResult(counts[0], counts[0] - counts[1], counts[1], rejections);
+    }
+
+    /**
+     * Return the driver connection under the Spring proxies and the DBCP pool, the pgjdbc driver of this version does
+     * not implement <code>unwrap</code>. The pool must have <code>accessToUnderlyingConnectionAllowed</code> set.
+     *
+     * @param connection the connection of the session
+     * @return the PostgreSQL connection
+     * @throws SQLException if the driver connection is not reachable
+     */
+    private static PGConnection getPGConnection(Connection connection) throws SQLException {
+        Connection nativeConnection = NATIVE_JDBC_EXTRACTOR.getNativeConnection(connection);
+        if (!(nativeConnection instanceof PGConnection)) {
+            throw new SQLException("Not a PostgreSQL connection: " + nativeConnection
+                    + ", is accessToUnderlyingConnectionAllowed set on the pool?");
+        }
+        return (PGConnection) nativeConnection;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IPointOfSaleCategoryDao#reconcileCategories(Long, java.util.List)
+     */
+    @Override
+    public ReconcileResult reconcileCategories(final Long pointOfSaleId, List<Long> categoryIds)
+            throws DAOException {
+        final Long[] ids = categoryIds.toArray(new Long[categoryIds.size()]);
+        final List<Long> inserted = new ArrayList<Long>();
+        final List<Long> deleted = new ArrayList<Long>();
+        final List<Long> reordered = new ArrayList<Long>();
+        final List<Long> unknown = new ArrayList<Long>();
+        final List<Long> updated = new ArrayList<Long>();
+        Session session = getSession();
+        try {
+            // The statements must see the pending changes of the session
+            session.flush();
+            session.doWork(new Work() {
+                @Override
+                public void execute(Connection connection) throws SQLException {
+                    PreparedStatement statement = connection.prepareStatement(RECONCILE_CATEGORIES);
+                    try {
+                        statement.setArray(1, connection.createArrayOf("bigint", ids));
+                        for (int i = 2; i <= 5; i++) {
+                            statement.setLong(i, pointOfSaleId);
+                        }
+                        ResultSet result = statement.executeQuery();
+                        while (result.next()) {
+                            String change = result.getString(1);
+                            Long categoryId = result.getLong(2);
+                            if ("inserted".equals(change)) {
+                                inserted.add(categoryId);
+                            } else if ("deleted".equals(change)) {
+                                deleted.add(categoryId);
+                            } else if ("reordered".equals(change)) {
+                                reordered.add(categoryId);
+                            } else {
+                                unknown.add(categoryId);
+                            }
+                        }
+                        result.close();
+                    } finally {
+                        statement.close();
+                    }
+                    if (inserted.isEmpty() && deleted.isEmpty()) {
+                        return;
+                    }
+
+                    statement = connection.prepareStatement(RECOMPUTE_ONE_POS_IN_USE);
+                    try {
+                        statement.setLong(1, pointOfSaleId);
+                        statement.setLong(2, pointOfSaleId);
+                        ResultSet result = statement.executeQuery();
+                        while (result.next()) {
+                            updated.add(result.getLong(1));
+                        }
+                        result.close();
+                    } finally {
+                        statement.close();
+                    }
+                }
+            });
+        } catch (HibernateException e) {
+            throw new DAOException("Can not reconcile the categories of point of sale " + pointOfSaleId, e);
+        }
+
+        ReconcileResult result = new ReconcileResult(inserted, deleted, reordered, unknown, !updated.isEmpty());
+        if (result.isChanged()) {
+            evictPointOfSaleCategories(session, pointOfSaleId);
+            invalidateCachedQueries(session);
+        }
+        refreshPointOfSales(session, updated);
+        return result;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IPointOfSaleCategoryDao#moveCategoryBefore(Long, Long, Long)
+     */
+    @Override
+    public void moveCategoryBefore(Long pointOfSaleId, Long categoryId, Long beforeCategoryId) throws DAOException {
+        moveCategory(MOVE_CATEGORY_BEFORE, pointOfSaleId, categoryId, beforeCategoryId);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IPointOfSaleCategoryDao#moveCategoryAfter(Long, Long, Long)
+     */
+    @Override
+    public void moveCategoryAfter(Long pointOfSaleId, Long categoryId, Long afterCategoryId) throws DAOException {
+        moveCategory(MOVE_CATEGORY_AFTER, pointOfSaleId, categoryId, afterCategoryId);
+    }
+
+    /**
+     * Move a category next to another one by updating its row only, renumbering the categories of the point of sale
+     * first when there is no order left in between. Nothing is changed when a category is not assigned to the point of
+     * sale.
+     *
+     * @param sql              the move statement
+     * @param pointOfSaleId    the PointOfSale id
+     * @param categoryId       the Category id to move
+     * @param anchorCategoryId the Category id to move it next to
+     * @throws DAOException if a category is not assigned to the point of sale
+     */
+    private void moveCategory(String sql, Long pointOfSaleId, Long categoryId, Long anchorCategoryId)
+            throws DAOException {
+        if (categoryId.equals(anchorCategoryId)) {
+            return;
+        }
+        Object[] parameters = {pointOfSaleId, anchorCategoryId, pointOfSaleId, categoryId, pointOfSaleId,
+                categoryId};
+        if (executeUpdate(sql, parameters) == 0) {
+            executeUpdate(RENUMBER_CATEGORIES_TO_MOVE, pointOfSaleId, pointOfSaleId, categoryId, anchorCategoryId);
+            if (executeUpdate(sql, parameters) == 0) {
+                throw new DAOException("Category " + categoryId + " or " + anchorCategoryId
+                        + " is not assigned to point of sale " + pointOfSaleId);
             }
+        }
+        evictPointOfSaleCategories(getSession(), pointOfSaleId);
+        invalidateCachedQueries(getSession());
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IPointOfSaleCategoryDao#renumberCategories(Long)
+     */
+    @Override
+    public int renumberCategories(Long pointOfSaleId) throws DAOException {
+        int rows = executeUpdate(RENUMBER_CATEGORIES, pointOfSaleId);
+        if (rows > 0) {
+            evictPointOfSaleCategories(getSession(), pointOfSaleId);
+            invalidateCachedQueries(getSession());
+        }
+        return rows;
+    }
 
-            // Only update inUse if all the categories associated with this pos if it is false
-            if (!inUse && pointOfSale.getInUse()) {
-                pointOfSale.setInUse(false);
-                pointOfSaleDao.merge(pointOfSale);
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.dao.IPointOfSaleCategoryDao#getCrowdedPointOfSales(int, int)
+     */
+    @Override
+    public List<Long> getCrowdedPointOfSales(final int minGap, final int maxResults) throws DAOException {
+        final List<Long> ids = new ArrayList<Long>();
+        try {
+            getSession().doWork(new Work() {
+                @Override
+                public void execute(Connection connection) throws SQLException {
+                    PreparedStatement statement = connection.prepareStatement(SELECT_CROWDED_POINT_OF_SALES);
+                    try {
+                        statement.setInt(1, minGap);
+                        statement.setInt(2, maxResults);
+                        ResultSet result = statement.executeQuery();
+                        while (result.next()) {
+                            ids.add(result.getLong(1));
+                        }
+                        result.close();
+                    } finally {
+                        statement.close();
+                    }
+                }
+            });
+        } catch (HibernateException e) {
+            throw new DAOException("Can not select the point of sales to renumber", e);
+        }
+        return ids;
+    }
+
+    /**
+     * Run a statement on the JDBC connection of the session, after flushing it
+     *
+     * @param sql        the statement
+     * @param parameters the parameters
+     * @return the number of rows changed
+     * @throws DAOException if the statement fails
+     */
+    private int executeUpdate(final String sql, final Object... parameters) throws DAOException {
+        final int[] rows = new int[1];
+        Session session = getSession();
+        try {
+            session.flush();
+            session.doWork(new Work() {
+                @Override
+                public void execute(Connection connection) throws SQLException {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    try {
+                        for (int i = 0; i < parameters.length; i++) {
+                            statement.setObject(i + 1, parameters[i]);
+                        }
+                        rows[0] = statement.executeUpdate();
+                    } finally {
+                        statement.close();
+                    }
+                }
+            });
+        } catch (HibernateException e) {
+            throw new DAOException("Can not update the point of sale categories", e);
+        }
+        return rows[0];
+    }
+
+    /**
+     * Evict the managed point of sale categories of a point of sale, changed by a statement
+     *
+     * @param session       the session
+     * @param pointOfSaleId the PointOfSale id
+     */
+    private static void evictPointOfSaleCategories(Session session, Long pointOfSaleId) {
+        Map<?, ?> entries = ((SessionImplementor) session).getPersistenceContext().getEntityEntries();
+        for (Object entity : new ArrayList<Object>(entries.keySet())) {
+            if (entity instanceof PointOfSaleCategory
+                    && pointOfSaleId.equals(((PointOfSaleCategory) entity).getPointOfSale().getId())) {
+                session.evict(entity);
+            }
+        }
+    }
+
+    /**
+     * Run a point of sale update taking the category ids as one array parameter and returning the ids of the updated
+     * point of sales. The statement runs on the JDBC connection of the session, so the point of sales are refreshed
+     * when managed and evicted from the second level cache afterwards.
+     *
+     * @param sql         the update statement
+     * @param categoryIds the Category ids
+     * @return the ids of the updated point of sales
+     * @throws DAOException if the statement fails
+     */
+    private List<Long> updatePointOfSales(final String sql, Collection<Long> categoryIds) throws DAOException {
+        if (categoryIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final Long[] ids = categoryIds.toArray(new Long[categoryIds.size()]);
+        final List<Long> updated = new ArrayList<Long>();
+        Session session = getSession();
+        try {
+            // The statement must see the pending inUse changes of the categories
+            session.flush();
+            session.doWork(new Work() {
+                @Override
+                public void execute(Connection connection) throws SQLException {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    try {
+                        statement.setArray(1, connection.createArrayOf("bigint", ids));
+                        ResultSet result = statement.executeQuery();
+                        while (result.next()) {
+                            updated.add(result.getLong(1));
+                        }
+                        result.close();
+                    } finally {
+                        statement.close();
+                    }
+                }
+            });
+        } catch (HibernateException e) {
+            throw new DAOException("Can not update the inUse state of the point of sales", e);
+        }
+        refreshPointOfSales(session, updated);
+        return updated;
+    }
+
+    /**
+     * Invalidate the cached queries on the point of sale categories after they were changed by a statement, which
+     * Hibernate does not track
+     *
+     * @param session the session
+     */
+    private static void invalidateCachedQueries(Session session) {
+        SessionFactoryImplementor factory = (SessionFactoryImplementor) session.getSessionFactory();
+        UpdateTimestampsCache timestamps = factory.getUpdateTimestampsCache();
+        if (timestamps != null) {
+            timestamps.invalidate(factory.getEntityPersister(PointOfSaleCategory.class.getName()).getQuerySpaces());
+        }
+    }
+
+    /**
+     * Evict point of sales updated by a statement from the second level cache and refresh them when managed
+     *
+     * @param session the session
+     * @param ids     the ids of the updated point of sales
+     */
+    private static void refreshPointOfSales(Session session, List<Long> ids) {
+        SessionImplementor sessionImplementor = (SessionImplementor) session;
+        EntityPersister persister = sessionImplementor.getFactory().getEntityPersister(PointOfSale.class.getName());
+        for (Long id : ids) {
+            session.getSessionFactory().getCache().evictEntity(PointOfSale.class, id);
+            Object managed = sessionImplementor.getPersistenceContext().getEntity(
+                    new EntityKey(id, persister, EntityMode.POJO));
+            if (managed != null) {
+                session.refresh(managed);
             }
         }
     }
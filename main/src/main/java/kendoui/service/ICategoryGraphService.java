@@ -0,0 +1,52 @@
+package kendoui.service;
+
+import kendoui.exception.BusinessException;
+import kendoui.utils.CategoryGraph;
+
+/**
+ * Service interface for the in-memory snapshot of the category hierarchy.
+ */
+public interface ICategoryGraphService {
+
+    /**
+     * Return the current snapshot of the category hierarchy, reading it from the database on first use. The snapshot
+     * is immutable and can be traversed without locking, a newer snapshot replaces it when the hierarchy changes.
+     *
+     * @return the category graph
+     * @throws BusinessException if the hierarchy can not be read
+     */
+    CategoryGraph getGraph() throws BusinessException;
+
+    /**
+     * Drop the current snapshot, the next {@link #getGraph()} reads the hierarchy again. Needed after the hierarchy
+     * was changed without this service, e.g. through the Category parents and chidren collections.
+     */
+    void refresh();
+
+    /**
+     * Add a category to a parent. The snapshot is patched once the transaction commits.
+     *
+     * @param parentId the parent Category id
+     * @param childId  the child Category id
+     * @throws BusinessException if the edge would make the hierarchy cyclic
+     */
+    void addEdge(Long parentId, Long childId) throws BusinessException;
+
+    /**
+     * Remove a category from one of its parents. The snapshot is patched once the transaction commits.
+     *
+     * @param parentId the parent Category id
+     * @param childId  the child Category id
+     * @throws BusinessException
+     */
+    void removeEdge(Long parentId, Long childId) throws BusinessException;
+
+    /**
+     * Move a category with its subtree under a new parent. The snapshot is patched once the transaction commits.
+     *
+     * @param categoryId  a Category id
+     * @param newParentId the id of the new parent Category or null to make the category a root
+     * @throws BusinessException if the new parent is the category or one of its descendants
+     */
+    void moveCategory(Long categoryId, Long newParentId) throws BusinessException;
+}
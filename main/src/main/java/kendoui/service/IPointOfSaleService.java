@@ -1,9 +1,13 @@
 package kendoui.service;
 
+import kendoui.dao.ImportResult;
+import kendoui.dao.ReconcileResult;
 import kendoui.exception.MTXException;
 import kendoui.model.Category;
 import kendoui.model.PointOfSale;
+import kendoui.model.PointOfSaleCategoryRow;
 
+import java.io.Reader;
 import java.util.List;
 
 /**
@@ -21,4 +25,52 @@ public interface IPointOfSaleService extends IEntityService<PointOfSale> {
      */
     List<Category> getCategoryByPosId(Long posId) throws MTXException;
 
+    /**
+     * Return the category grid rows of a POS as read models.
+     *
+     * @param posId
+     * @return a list of PointOfSaleCategoryRow in point of sale order
+     * @throws MTXException
+     */
+    List<PointOfSaleCategoryRow> getCategoryRowsByPosId(Long posId) throws MTXException;
+
+    /**
+     * Import category assignments of point of sales from CSV lines of point of sale id, category id and order.
+     *
+     * @param csv    the CSV lines
+     * @param header whether the first line is a header
+     * @return the counts and the first rejected lines
+     * @throws MTXException
+     */
+    ImportResult importCategories(Reader csv, boolean header) throws MTXException;
+
+    /**
+     * Make the categories of a POS the given list, in its order.
+     *
+     * @param posId
+     * @param categoryIds the Category ids in the desired order
+     * @return the categories inserted, deleted, reordered and unknown
+     * @throws MTXException
+     */
+    ReconcileResult reconcileCategories(Long posId, List<Long> categoryIds) throws MTXException;
+
+    /**
+     * Move a category of a POS right before or after another one, updating its order only.
+     *
+     * @param posId
+     * @param categoryId       the Category id to move
+     * @param anchorCategoryId the Category id to move it next to
+     * @param after            true to move it after the anchor, false before
+     * @throws MTXException
+     */
+    void moveCategory(Long posId, Long categoryId, Long anchorCategoryId, boolean after) throws MTXException;
+
+    /**
+     * Renumber the categories of the POS whose order gaps ran out, a batch of POS per call.
+     *
+     * @return the number of POS renumbered
+     * @throws MTXException
+     */
+    int renumberCategoryOrders() throws MTXException;
+
 }
\ No newline at end of file
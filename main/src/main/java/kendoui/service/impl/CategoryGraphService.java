@@ -0,0 +1,201 @@
+package kendoui.service.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import kendoui.dao.ICategoryDao;
+import kendoui.exception.BusinessException;
+import kendoui.exception.DAOException;
+import kendoui.service.BaseEntityService;
+import kendoui.service.ICategoryGraphService;
+import kendoui.utils.CategoryGraph;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Service keeping an immutable snapshot of the category hierarchy. Readers only read the current reference, writers
+ * change the database then swap in a patched copy of the snapshot after their transaction commits, so readers never
+ * lock and never see uncommitted edges.
+ */
+@Service
+public class CategoryGraphService implements ICategoryGraphService {
+
+    private final Logger logger = LoggerFactory.getLogger(CategoryGraphService.class);
+
+    /**
+     * A change of the hierarchy, applied to a snapshot to get the next one.
+     */
+    private abstract static class GraphPatch {
+
+        abstract CategoryGraph apply(CategoryGraph graph);
+    }
+
+    @Autowired
+    private ICategoryDao categoryDao;
+
+    private final AtomicReference<CategoryGraph> graph = new AtomicReference<CategoryGraph>();
+
+    // Counts the changes, a snapshot read while the hierarchy changed is not kept
+    private final AtomicLong changes = new AtomicLong();
+
+    private final Object loadLock = new Object();
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.ICategoryGraphService#getGraph()
+     */
+    @Override
+    @Transactional(value = BaseEntityService.CONTENT_TXM, readOnly = true)
+    public CategoryGraph getGraph() throws BusinessException {
+        CategoryGraph current = graph.get();
+        if (current != null) {
+            return current;
+        }
+        synchronized (loadLock) {
+            current = graph.get();
+            if (current == null) {
+                long changesBefore = changes.get();
+                try {
+                    current = categoryDao.loadCategoryGraph();
+                } catch (DAOException e) {
+                    logger.error(e.getMessage(), e);
+                    throw new BusinessException(e.getMessage(), e);
+                }
+                if (changes.get() == changesBefore) {
+                    graph.compareAndSet(null, current);
+                }
+                logger.info("Loaded category graph of {} categories and {} edges", current.size(),
+                        current.getEdgeCount());
+            }
+            return current;
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.ICategoryGraphService#refresh()
+     */
+    @Override
+    public void refresh() {
+        changes.incrementAndGet();
+        graph.set(null);
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.ICategoryGraphService#addEdge(Long, Long)
+     */
+    @Override
+    @Transactional(BaseEntityService.CONTENT_TXM)
+    public void addEdge(final Long parentId, final Long childId) throws BusinessException {
+        if (getGraph().wouldCreateCycle(parentId, childId)) {
+            throw new BusinessException("Can not add category " + childId + " under its own subtree");
+        }
+        try {
+            categoryDao.addEdge(parentId, childId);
+        } catch (DAOException e) {
+            throw new BusinessException(e.getMessage(), e);
+        }
+        applyAfterCommit(new GraphPatch() {
+            @Override
+            CategoryGraph apply(CategoryGraph graph) {
+                return graph.withEdge(parentId, childId);
+            }
+        });
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.ICategoryGraphService#removeEdge(Long, Long)
+     */
+    @Override
+    @Transactional(BaseEntityService.CONTENT_TXM)
+    public void removeEdge(final Long parentId, final Long childId) throws BusinessException {
+        try {
+            categoryDao.removeEdge(parentId, childId);
+        } catch (DAOException e) {
+            throw new BusinessException(e.getMessage(), e);
+        }
+        applyAfterCommit(new GraphPatch() {
+            @Override
+            CategoryGraph apply(CategoryGraph graph) {
+                return graph.withoutEdge(parentId, childId);
+            }
+        });
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.ICategoryGraphService#moveCategory(Long, Long)
+     */
+    @Override
+    @Transactional(BaseEntityService.CONTENT_TXM)
+    public void moveCategory(final Long categoryId, final Long newParentId) throws BusinessException {
+        if (newParentId != null && getGraph().wouldCreateCycle(newParentId, categoryId)) {
+            throw new BusinessException("Can not move category " + categoryId + " under its own subtree");
+        }
+        try {
+            categoryDao.moveSubtree(categoryId, newParentId);
+        } catch (DAOException e) {
+            throw new BusinessException(e.getMessage(), e);
+        }
+        applyAfterCommit(new GraphPatch() {
+            @Override
+            CategoryGraph apply(CategoryGraph graph) {
+                return graph.withParent(categoryId, newParentId);
+            }
+        });
+    }
+
+    /**
+     * Apply the patch once the current transaction commits, the writers always run in one.
+     *
+     * @param patch the change of the hierarchy
+     */
+    private void applyAfterCommit(final GraphPatch patch) {
+        changes.incrementAndGet();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                apply(patch);
+            }
+        });
+    }
+
+    /**
+     * Swap in the patched snapshot, retrying when another change was swapped in meanwhile. A snapshot the patch does
+     * not fit, e.g. because the hierarchy was also changed elsewhere, is dropped and read again on next use.
+     *
+     * @param patch the change of the hierarchy
+     */
+    private void apply(GraphPatch patch) {
+        while (true) {
+            CategoryGraph current = graph.get();
+            if (current == null) {
+                return;
+            }
+            CategoryGraph next;
+            try {
+                next = patch.apply(current);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Category graph out of step, reloading it: {}", e.getMessage());
+                graph.compareAndSet(current, null);
+                return;
+            }
+            if (graph.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package kendoui.service.impl;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import kendoui.exception.MTXException;
+import kendoui.service.IPointOfSaleService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Background pass renumbering the categories of the point of sales whose order gaps ran out, so moving a category
+ * keeps updating one row.
+ */
+public class CategoryOrderRenumberTask implements InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CategoryOrderRenumberTask.class);
+
+    private IPointOfSaleService pointOfSaleService;
+
+    private long intervalMillis = 600000L;
+
+    private ScheduledExecutorService renumberer;
+
+    /**
+     * Set the service renumbering the categories
+     *
+     * @param pointOfSaleService the service
+     */
+    public void setPointOfSaleService(IPointOfSaleService pointOfSaleService) {
+        this.pointOfSaleService = pointOfSaleService;
+    }
+
+    /**
+     * Set the delay between two passes, 0 to not run
+     *
+     * @param intervalMillis the delay in milliseconds
+     */
+    public void setIntervalMillis(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.springframework.beans.factory.InitializingBean#afterPropertiesSet()
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (pointOfSaleService == null) {
+            throw new IllegalArgumentException("The point of sale service is required");
+        }
+        if (intervalMillis > 0) {
+            renumberer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "category-order-renumber");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            renumberer.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    renumber();
+                }
+            }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see org.springframework.beans.factory.DisposableBean#destroy()
+     */
+    @Override
+    public void destroy() {
+        if (renumberer != null) {
+            renumberer.shutdownNow();
+        }
+    }
+
+    /**
+     * Run passes until no point of sale is left to renumber
+     */
+    void renumber() {
+        try {
+            while (pointOfSaleService.renumberCategoryOrders() > 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+        } catch (MTXException e) {
+            LOG.warn("Can not renumber the categories of the point of sales", e);
+        } catch (RuntimeException e) {
+            // Keep the task scheduled
+            LOG.warn("Can not renumber the categories of the point of sales", e);
+        }
+    }
+}
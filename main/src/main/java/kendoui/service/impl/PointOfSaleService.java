@@ -1,14 +1,17 @@
 package kendoui.service.impl;
 
-import java.util.ArrayList;
+import java.io.Reader;
 import java.util.List;
-import java.util.Set;
 
 import kendoui.dao.ICategoryDao;
+import kendoui.dao.IPointOfSaleCategoryDao;
+import kendoui.dao.ImportResult;
+import kendoui.dao.ReconcileResult;
 import kendoui.exception.BusinessException;
 import kendoui.exception.DAOException;
 import kendoui.model.Category;
 import kendoui.model.PointOfSale;
+import kendoui.model.PointOfSaleCategoryRow;
 import kendoui.service.BaseEntityService;
 import kendoui.service.IPointOfSaleService;
 import kendoui.utils.Constant;
@@ -17,6 +20,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Service for access PointOfSale related info.
@@ -28,6 +32,9 @@ public class PointOfSaleService extends BaseEntityService<PointOfSale> implement
     @Autowired
     private ICategoryDao categoryDao;
 
+    @Autowired
+    private IPointOfSaleCategoryDao pointOfSaleCategoryDao;
+
     /**
      * Return list of Category by POS id.
      *
@@ -35,20 +42,113 @@ public class PointOfSaleService extends BaseEntityService<PointOfSale> implement
      * @return a list of Category
      * @throws BusinessException
      */
+    @Transactional(value = CONTENT_TXM, readOnly = true)
     public List<Category> getCategoryByPosId(Long posId) throws BusinessException {
-        List<Category> categoryList = new ArrayList<Category>();
-        Set<Category> categorySet = null;
+        List<Category> categoryList = null;
         try {
-            categorySet = categoryDao.getCategorySetByPOS(posId);
+            categoryList = categoryDao.getCategoryListByPOS(posId);
         } catch (DAOException e) {
             logger.error(e.getMessage(), e);
             throw new BusinessException(e.getMessage(), e);
         }
-        if (categorySet != null) {
-            categoryList.addAll(categorySet);
-        } else {
+        if (categoryList == null) {
             throw new BusinessException(Constant.ERROR_CAUSE_CATEGORY_NOT_EXIST);
         }
         return categoryList;
     }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.IPointOfSaleService#getCategoryRowsByPosId(Long)
+     */
+    @Override
+    @Transactional(value = CONTENT_TXM, readOnly = true)
+    public List<PointOfSaleCategoryRow> getCategoryRowsByPosId(Long posId) throws BusinessException {
+        try {
+            return pointOfSaleCategoryDao.getPointOfSaleCategoryRows(posId);
+        } catch (DAOException e) {
+            logger.error(e.getMessage(), e);
+            throw new BusinessException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.IPointOfSaleService#importCategories(java.io.Reader, boolean)
+     */
+    @Override
+    @Transactional(CONTENT_TXM)
+    public ImportResult importCategories(Reader csv, boolean header) throws BusinessException {
+        try {
+            ImportResult result = pointOfSaleCategoryDao.importCategories(csv, header, Constant.IMPORT_MAX_REJECTIONS);
+            logger.info("Imported {} of {} point of sale categories", result.getImportedCount(), result.getLineCount());
+            return result;
+        } catch (DAOException e) {
+            logger.error(e.getMessage(), e);
+            throw new BusinessException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.IPointOfSaleService#reconcileCategories(Long, java.util.List)
+     */
+    @Override
+    @Transactional(CONTENT_TXM)
+    public ReconcileResult reconcileCategories(Long posId, List<Long> categoryIds) throws BusinessException {
+        try {
+            return pointOfSaleCategoryDao.reconcileCategories(posId, categoryIds);
+        } catch (DAOException e) {
+            logger.error(e.getMessage(), e);
+            throw new BusinessException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.IPointOfSaleService#moveCategory(Long, Long, Long, boolean)
+     */
+    @Override
+    @Transactional(CONTENT_TXM)
+    public void moveCategory(Long posId, Long categoryId, Long anchorCategoryId, boolean after)
+            throws BusinessException {
+        try {
+            if (after) {
+                pointOfSaleCategoryDao.moveCategoryAfter(posId, categoryId, anchorCategoryId);
+            } else {
+                pointOfSaleCategoryDao.moveCategoryBefore(posId, categoryId, anchorCategoryId);
+            }
+        } catch (DAOException e) {
+            logger.error(e.getMessage(), e);
+            throw new BusinessException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * (non-Javadoc)
+     *
+     * @see kendoui.service.IPointOfSaleService#renumberCategoryOrders()
+     */
+    @Override
+    @Transactional(CONTENT_TXM)
+    public int renumberCategoryOrders() throws BusinessException {
+        try {
+            List<Long> posIds = pointOfSaleCategoryDao.getCrowdedPointOfSales(Constant.POINT_OF_SALE_ORDER_MIN_GAP,
+                    Constant.POINT_OF_SALE_ORDER_RENUMBER_BATCH);
+            for (Long posId : posIds) {
+                pointOfSaleCategoryDao.renumberCategories(posId);
+            }
+            if (!posIds.isEmpty()) {
+                logger.info("Renumbered the categories of {} point of sales", posIds.size());
+            }
+            return posIds.size();
+        } catch (DAOException e) {
+            logger.error(e.getMessage(), e);
+            throw new BusinessException(e.getMessage(), e);
+        }
+    }
 }
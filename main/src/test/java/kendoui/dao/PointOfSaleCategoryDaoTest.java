@@ -1,19 +1,31 @@
 package kendoui.dao;
 
+import java.io.StringReader;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+
+import javax.persistence.OptimisticLockException;
+import javax.sql.DataSource;
 
 import kendoui.dao.impl.PointOfSaleCategoryDao;
 import kendoui.dao.impl.PointOfSaleDao;
+import kendoui.exception.BusinessException;
 import kendoui.exception.DAOException;
 import kendoui.model.Category;
 import kendoui.model.DefaultText;
 import kendoui.model.PointOfSale;
 import kendoui.model.PointOfSaleCategory;
+import kendoui.service.IPointOfSaleService;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.annotation.Transactional;
 
 @Transactional(BaseApplicationDaoTest.CONTENT_TXM)
@@ -37,6 +49,12 @@ public class PointOfSaleCategoryDaoTest extends BaseApplicationDaoTest {
     @Autowired
     private PointOfSaleDao pointOfSaleDao;
 
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private IPointOfSaleService pointOfSaleService;
+
     @Before
     public void setUp() {
         DefaultText name = new DefaultText();
@@ -112,4 +130,337 @@ public class PointOfSaleCategoryDaoTest extends BaseApplicationDaoTest {
         Assert.assertFalse(pointOfSale.getInUse());
     }
 
+    @Test
+    public void testImportCategories() throws DAOException {
+        Category inUse = new Category();
+        inUse.setName(category.getName());
+        inUse.setDescription(category.getDescription());
+        inUse.setInUse(true);
+        categoryDao.persist(inUse);
+        String csv = "pointofsale,category,order\n"
+                + pointOfSale.getId() + "," + inUse.getId() + ",3\n"
+                + pointOfSale.getId() + "," + category.getId() + ",1\n"
+                + pointOfSale.getId() + "," + inUse.getId() + ",4\n"
+                + "x," + category.getId() + ",1\n"
+                + pointOfSale.getId() + ",999999999999,\n";
+        ImportResult result = pointOfSaleCategoryDao.importCategories(new StringReader(csv), true, 10);
+        Assert.assertEquals(5, result.getLineCount());
+        Assert.assertEquals(1, result.getImportedCount());
+        Assert.assertEquals(4, result.getRejectedCount());
+        Assert.assertEquals("already assigned", result.getRejections().get(0).getReason());
+        Assert.assertEquals("duplicate of line 1", result.getRejections().get(1).getReason());
+        Assert.assertEquals("invalid point of sale id", result.getRejections().get(2).getReason());
+        Assert.assertEquals("unknown category", result.getRejections().get(3).getReason());
+        Assert.assertNotNull(pointOfSaleCategoryDao.getPointOfSaleCategoriesByCategoryIdAndPosId(inUse.getId(),
+                pointOfSale.getId()));
+        Assert.assertTrue(pointOfSale.getInUse());
+    }
+
+    @Test
+    public void testUpdate() {
+        pointOfSaleDao.flush();
+        pointOfSaleDao.detach(pointOfSale);
+        Timestamp lastUpdated = pointOfSale.getLastUpdated();
+        Timestamp version = pointOfSaleDao.update(pointOfSale.getId(), lastUpdated,
+                Collections.singletonMap("name", "renamed"));
+        Assert.assertTrue(version.after(lastUpdated));
+        PointOfSale renamed = pointOfSaleDao.find(pointOfSale.getId());
+        Assert.assertEquals("renamed", renamed.getName());
+        Assert.assertEquals(version, renamed.getLastUpdated());
+        try {
+            pointOfSaleDao.update(pointOfSale.getId(), lastUpdated, Collections.singletonMap("name", "stale"));
+            Assert.fail();
+        } catch (OptimisticLockException e) {
+            Assert.assertEquals("renamed", pointOfSaleDao.find(pointOfSale.getId()).getName());
+        }
+    }
+
+    @Test
+    public void testMergeStaleVersion() {
+        pointOfSaleDao.flush();
+        pointOfSaleDao.detach(pointOfSale);
+        Timestamp lastUpdated = pointOfSale.getLastUpdated();
+        pointOfSale.setName("renamed");
+        Assert.assertSame(pointOfSale, pointOfSaleDao.merge(pointOfSale, lastUpdated));
+        Assert.assertTrue(pointOfSale.getLastUpdated().after(lastUpdated));
+        Assert.assertTrue(pointOfSaleDao.contains(pointOfSale));
+        try {
+            pointOfSaleDao.merge(pointOfSale, lastUpdated);
+            Assert.fail();
+        } catch (OptimisticLockException e) {
+            Assert.assertTrue(true);
+        }
+    }
+
+    @Test
+    public void testMergeWithOwnedCollections() {
+        Category parent = new Category();
+        parent.setName(category.getName());
+        parent.setDescription(category.getDescription());
+        categoryDao.persist(parent);
+        categoryDao.flush();
+        categoryDao.detach(category);
+        Timestamp lastUpdated = category.getLastUpdated();
+        category.setParents(Collections.singleton(parent));
+        Category merged = categoryDao.merge(category, lastUpdated);
+        Assert.assertTrue(categoryDao.contains(merged));
+        categoryDao.flush();
+        categoryDao.refresh(merged);
+        Assert.assertEquals(Collections.singleton(parent), merged.getParents());
+    }
+
+    @Test
+    public void testPersistAllWithFailingRow() {
+        PointOfSale first = newPointOfSale("first");
+        PointOfSale unnamed = newPointOfSale(null);
+        PointOfSale last = newPointOfSale("last");
+        BatchResult<PointOfSale> result = pointOfSaleDao.persistAll(Arrays.asList(first, unnamed, last));
+        Assert.assertEquals(Arrays.asList(BatchResult.Status.SUCCEEDED, BatchResult.Status.FAILED,
+                BatchResult.Status.SUCCEEDED), getStatuses(result));
+        Assert.assertNull(unnamed.getId());
+        Assert.assertEquals("first", pointOfSaleDao.find(first.getId()).getName());
+        Assert.assertEquals("last", pointOfSaleDao.find(last.getId()).getName());
+        pointOfSaleDao.flush();
+    }
+
+    @Test
+    public void testPersistAllWithFlushFailure() throws DAOException {
+        Category other = new Category();
+        other.setName(category.getName());
+        other.setDescription(category.getDescription());
+        categoryDao.persist(other);
+        PointOfSaleCategory link = new PointOfSaleCategory();
+        link.setPointOfSale(pointOfSale);
+        link.setCategory(other);
+        PointOfSaleCategory duplicate = new PointOfSaleCategory();
+        duplicate.setPointOfSale(pointOfSale);
+        duplicate.setCategory(category);
+        BatchResult<PointOfSaleCategory> result = pointOfSaleCategoryDao.persistAll(Arrays.asList(link, duplicate));
+        Assert.assertEquals(Arrays.asList(BatchResult.Status.SUCCEEDED, BatchResult.Status.FAILED),
+                getStatuses(result));
+        Assert.assertEquals(2, pointOfSaleCategoryDao.getPointOfSaleCategorybyPointOfSaleId(pointOfSale.getId())
+                .size());
+    }
+
+    @Test
+    public void testMergeAllWithStaleRow() {
+        PointOfSale other = newPointOfSale("other");
+        pointOfSaleDao.persist(other);
+        pointOfSaleDao.flush();
+        pointOfSaleDao.clear();
+        pointOfSale.setName("stale");
+        pointOfSale.setLastUpdated(new Timestamp(0));
+        other.setName("renamed");
+        BatchResult<PointOfSale> result = pointOfSaleDao.mergeAll(Arrays.asList(pointOfSale, other));
+        Assert.assertEquals(Arrays.asList(BatchResult.Status.FAILED, BatchResult.Status.SUCCEEDED),
+                getStatuses(result));
+        Assert.assertEquals("pointofsale", pointOfSaleDao.find(pointOfSale.getId()).getName());
+        Assert.assertEquals("renamed", pointOfSaleDao.find(other.getId()).getName());
+    }
+
+    @Test
+    public void testCreateAllAndSaveAll() throws BusinessException {
+        pointOfSale.setName("renamed");
+        PointOfSale unnamed = newPointOfSale(null);
+        PointOfSale last = newPointOfSale("last");
+        BatchResult<PointOfSale> result = pointOfSaleService.saveAll(Arrays.asList(pointOfSale, unnamed, last));
+        Assert.assertEquals(Arrays.asList(BatchResult.Status.SUCCEEDED, BatchResult.Status.FAILED,
+                BatchResult.Status.SUCCEEDED), getStatuses(result));
+        // The persistence context was cleared, the entities are detached
+        Assert.assertFalse(pointOfSaleDao.contains(pointOfSale));
+        PointOfSale created = newPointOfSale("created");
+        Assert.assertFalse(pointOfSaleService.createAll(Arrays.asList(created)).hasFailures());
+        Assert.assertEquals("renamed", pointOfSaleDao.find(pointOfSale.getId()).getName());
+        Assert.assertEquals("created", pointOfSaleDao.find(created.getId()).getName());
+        Assert.assertEquals("last", pointOfSaleDao.find(last.getId()).getName());
+    }
+
+    private static PointOfSale newPointOfSale(String name) {
+        PointOfSale pointOfSale = new PointOfSale();
+        pointOfSale.setName(name);
+        return pointOfSale;
+    }
+
+    private static List<BatchResult.Status> getStatuses(BatchResult<?> result) {
+        List<BatchResult.Status> statuses = new ArrayList<BatchResult.Status>();
+        for (BatchResult.Outcome<?> outcome : result.getOutcomes()) {
+            statuses.add(outcome.getStatus());
+        }
+        return statuses;
+    }
+
+    @Test
+    public void testSetCategoryTree() throws DAOException {
+        Category inUse = new Category();
+        inUse.setName(category.getName());
+        inUse.setDescription(category.getDescription());
+        inUse.setInUse(true);
+        categoryDao.persist(inUse);
+        Assert.assertTrue(pointOfSaleCategoryDao.setCategoryTree(inUse.getId(), pointOfSale.getId()));
+        Assert.assertTrue(pointOfSaleCategoryDao.setCategoryTree(inUse.getId(), pointOfSale.getId()));
+        Assert.assertEquals(2, pointOfSaleCategoryDao.getPointOfSaleCategorybyPointOfSaleId(pointOfSale.getId())
+                .size());
+        Assert.assertTrue(pointOfSale.getInUse());
+    }
+
+    @Test
+    public void testSetCategoryTreeOnNullInUse() throws DAOException {
+        Category inUse = new Category();
+        inUse.setName(category.getName());
+        inUse.setDescription(category.getDescription());
+        inUse.setInUse(true);
+        categoryDao.persist(inUse);
+        pointOfSaleCategoryDao.flush();
+        new JdbcTemplate(dataSource).update("UPDATE point_of_sale SET inuse = NULL WHERE id = ?", pointOfSale.getId());
+        Assert.assertTrue(pointOfSaleCategoryDao.setCategoryTree(inUse.getId(), pointOfSale.getId()));
+        Assert.assertTrue(pointOfSale.getInUse());
+    }
+
+    @Test
+    public void testReconcileCategories() throws DAOException {
+        Category inUse = new Category();
+        inUse.setName(category.getName());
+        inUse.setDescription(category.getDescription());
+        inUse.setInUse(true);
+        categoryDao.persist(inUse);
+        ReconcileResult result = pointOfSaleCategoryDao.reconcileCategories(pointOfSale.getId(),
+                Arrays.asList(inUse.getId(), 999999999999L, category.getId()));
+        Assert.assertEquals(Collections.singletonList(inUse.getId()), result.getInserted());
+        Assert.assertEquals(Collections.singletonList(category.getId()), result.getReordered());
+        Assert.assertEquals(Collections.singletonList(999999999999L), result.getUnknown());
+        Assert.assertTrue(result.getDeleted().isEmpty());
+        Assert.assertTrue(pointOfSale.getInUse());
+
+        result = pointOfSaleCategoryDao.reconcileCategories(pointOfSale.getId(),
+                Collections.singletonList(category.getId()));
+        Assert.assertEquals(Collections.singletonList(inUse.getId()), result.getDeleted());
+        Assert.assertEquals(Collections.singletonList(category.getId()), result.getReordered());
+        Assert.assertFalse(pointOfSale.getInUse());
+        Assert.assertFalse(pointOfSaleCategoryDao.reconcileCategories(pointOfSale.getId(),
+                Collections.singletonList(category.getId())).isChanged());
+    }
+
+    @Test
+    public void testMoveCategory() throws DAOException {
+        Category second = new Category();
+        second.setName(category.getName());
+        second.setDescription(category.getDescription());
+        categoryDao.persist(second);
+        pointOfSaleCategoryDao.setCategoryTree(second.getId(), pointOfSale.getId());
+        Assert.assertEquals(Arrays.asList(category, second), categoryDao.getCategoryListByPOS(pointOfSale.getId()));
+
+        pointOfSaleCategoryDao.moveCategoryBefore(pointOfSale.getId(), second.getId(), category.getId());
+        Assert.assertEquals(Arrays.asList(second, category), categoryDao.getCategoryListByPOS(pointOfSale.getId()));
+        pointOfSaleCategoryDao.moveCategoryAfter(pointOfSale.getId(), second.getId(), category.getId());
+        Assert.assertEquals(Arrays.asList(category, second), categoryDao.getCategoryListByPOS(pointOfSale.getId()));
+        Assert.assertEquals(0, pointOfSaleCategoryDao.renumberCategories(pointOfSale.getId()));
+    }
+
+    @Test
+    public void testMoveUnassignedCategory() throws DAOException {
+        Category unassigned = new Category();
+        unassigned.setName(category.getName());
+        unassigned.setDescription(category.getDescription());
+        categoryDao.persist(unassigned);
+        pointOfSaleCategory.setPointOfSaleOrder(1);
+        try {
+            pointOfSaleCategoryDao.moveCategoryBefore(pointOfSale.getId(), unassigned.getId(), category.getId());
+            Assert.fail();
+        } catch (DAOException e) {
+            // The categories of the point of sale are not renumbered
+            Assert.assertEquals(1, pointOfSaleCategoryDao.renumberCategories(pointOfSale.getId()));
+        }
+    }
+
+    @Test
+    public void testQueryByDataSource() throws DAOException {
+        DataSourceRequest.Filter filter = DataSourceRequest.Filter.combination("and", Arrays.asList(
+                DataSourceRequest.Filter.condition("posId", "eq", String.valueOf(pointOfSale.getId()), true),
+                DataSourceRequest.Filter.condition("categoryName", "contains", "NAME", true)));
+        DataSourceRequest request = new DataSourceRequest(0, 10, Arrays.asList(SortOrder.desc("pointOfSaleOrder")),
+                filter);
+        Page<PointOfSaleCategory> page = pointOfSaleCategoryDao.queryByDataSource(request,
+                DataSourceFieldSets.POINT_OF_SALE_CATEGORY_GRID, CountMode.EXACT);
+        Assert.assertEquals(1, page.getTotal());
+        Assert.assertEquals(pointOfSaleCategory.getId(), page.getRows().get(0).getId());
+
+        filter = DataSourceRequest.Filter.combination("and", Arrays.asList(
+                DataSourceRequest.Filter.condition("posId", "eq", String.valueOf(pointOfSale.getId()), true),
+                DataSourceRequest.Filter.condition("categoryName", "contains", "name%", true)));
+        page = pointOfSaleCategoryDao.queryByDataSource(new DataSourceRequest(0, 10, request.getSort(), filter),
+                DataSourceFieldSets.POINT_OF_SALE_CATEGORY_GRID, CountMode.EXACT);
+        Assert.assertEquals(0, page.getTotal());
+    }
+
+    @Test(expected = DAOException.class)
+    public void testQueryByDataSourceUnknownField() throws DAOException {
+        DataSourceRequest request = new DataSourceRequest(0, 10, Arrays.asList(SortOrder.asc("category.id")), null);
+        pointOfSaleCategoryDao.queryByDataSource(request, DataSourceFieldSets.POINT_OF_SALE_CATEGORY_GRID,
+                CountMode.EXACT);
+    }
+
+    @Test
+    public void testQueryGroupsByDataSource() throws DAOException {
+        DataSourceRequest.Filter filter = DataSourceRequest.Filter.combination("and", Collections.singletonList(
+                DataSourceRequest.Filter.condition("posId", "eq", String.valueOf(pointOfSale.getId()), true)));
+        DataSourceRequest request = new DataSourceRequest(0, 10, Collections.<SortOrder>emptyList(), filter,
+                Collections.singletonList(new DataSourceRequest.Group("categoryInUse", true, Collections.singletonList(
+                        new DataSourceRequest.Aggregate("pointOfSaleOrder", "max")))),
+                Collections.singletonList(new DataSourceRequest.Aggregate("lastUpdated", "min")));
+        Page<DataSourceGroup> groups = pointOfSaleCategoryDao.queryGroupsByDataSource(request,
+                DataSourceFieldSets.POINT_OF_SALE_CATEGORY_GRID);
+        Assert.assertEquals(1, groups.getTotal());
+        DataSourceGroup group = groups.getRows().get(0);
+        Assert.assertEquals(category.getInUse(), group.getValue());
+        Assert.assertEquals(1, group.getCount());
+        Assert.assertEquals(pointOfSaleCategory.getPointOfSaleOrder(),
+                group.getAggregates().get("pointOfSaleOrder").get("max"));
+        Assert.assertFalse(group.hasSubgroups());
+
+        Map<String, Map<String, Object>> aggregates = pointOfSaleCategoryDao.queryAggregatesByDataSource(request,
+                DataSourceFieldSets.POINT_OF_SALE_CATEGORY_GRID);
+        Assert.assertEquals(pointOfSaleCategory.getLastUpdated(), aggregates.get("lastUpdated").get("min"));
+    }
+
+    @Test
+    public void testQueryByKeysetOnNullableKey() throws DAOException {
+        Category second = new Category();
+        second.setName(category.getName());
+        second.setDescription(category.getDescription());
+        second.setInUse(null);
+        categoryDao.persist(second);
+        pointOfSaleCategoryDao.setCategoryTree(second.getId(), pointOfSale.getId());
+        pointOfSaleCategoryDao.flush();
+
+        List<SortOrder> sortOrders = Collections.singletonList(SortOrder.asc("category.inUse"));
+        KeysetPage<PointOfSaleCategory> page = pointOfSaleCategoryDao.queryByKeyset("e.pointOfSale.id = ?",
+                sortOrders, null, 1, pointOfSale.getId());
+        Assert.assertEquals(category, page.getRows().get(0).getCategory());
+        page = pointOfSaleCategoryDao.queryByKeyset("e.pointOfSale.id = ?", sortOrders, page.getNextCursor(), 1,
+                pointOfSale.getId());
+        Assert.assertEquals(second, page.getRows().get(0).getCategory());
+        Assert.assertNull(page.getNextCursor());
+    }
+
+    @Test(expected = DAOException.class)
+    public void testQueryByKeysetUnknownAttribute() throws DAOException {
+        pointOfSaleCategoryDao.queryByKeyset(null, Collections.singletonList(SortOrder.asc("id, e.category")), null,
+                10);
+    }
+
+    @Test
+    public void testStreamByListWithParameter() throws DAOException {
+        final List<PointOfSaleCategory> rows = new ArrayList<PointOfSaleCategory>();
+        int count = pointOfSaleCategoryDao.streamByList(
+                "select posc from PointOfSaleCategory posc where posc.pointOfSale.id = ?1", 10,
+                new RowCallback<PointOfSaleCategory>() {
+                    @Override
+                    public boolean processRow(PointOfSaleCategory row) {
+                        rows.add(row);
+                        return true;
+                    }
+                }, pointOfSale.getId());
+        Assert.assertEquals(1, count);
+        Assert.assertEquals(pointOfSaleCategory.getId(), rows.get(0).getId());
+    }
 }
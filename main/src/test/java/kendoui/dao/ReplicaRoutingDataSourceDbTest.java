@@ -0,0 +1,90 @@
+package kendoui.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import javax.sql.DataSource;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * The health check of the replicas against real servers. The standby is given with
+ * <code>-Djdbc.kendo.replica.url=jdbc:postgresql://host/kendo</code>, the test on it is skipped without.
+ */
+public class ReplicaRoutingDataSourceDbTest extends BaseApplicationDaoTest {
+
+    @Autowired
+    @Qualifier("contentDataSource")
+    private DataSource dataSource;
+
+    @Test
+    public void testHealthCheckOfAnIndependentDatabase() throws SQLException {
+        Assert.assertFalse(isInRecovery(dataSource));
+        Assert.assertNull(getReplicationLag(dataSource));
+        Assert.assertEquals(1, checkHealth(dataSource));
+    }
+
+    @Test
+    public void testHealthCheckOfAStandby() throws SQLException {
+        String url = System.getProperty("jdbc.kendo.replica.url");
+        Assume.assumeNotNull(url);
+        DataSource replica = new DriverManagerDataSource(url, "kendo", "kendo");
+        Assert.assertTrue(isInRecovery(replica));
+        Assert.assertNotNull(getReplicationLag(replica));
+        Assert.assertEquals(1, checkHealth(replica));
+    }
+
+    private int checkHealth(DataSource replica) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource();
+        routing.setPrimary(dataSource);
+        routing.setReplicas(Arrays.asList(replica));
+        routing.setHealthCheckIntervalMillis(0);
+        routing.setMaxReplicationLagMillis(0);
+        routing.afterPropertiesSet();
+        routing.checkHealth();
+        return routing.getHealthyReplicaCount();
+    }
+
+    private static boolean isInRecovery(DataSource dataSource) throws SQLException {
+        return (Boolean) queryForObject(dataSource, "select pg_is_in_recovery()");
+    }
+
+    private static Object getReplicationLag(DataSource dataSource) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            return queryForObject(connection,
+                    ReplicaRoutingDataSource.getReplicationLagQuery(connection.getMetaData()
+                            .getDatabaseMajorVersion()));
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static Object queryForObject(DataSource dataSource, String sql) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            return queryForObject(connection, sql);
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static Object queryForObject(Connection connection, String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            ResultSet resultSet = statement.executeQuery(sql);
+            resultSet.next();
+            return resultSet.getObject(1);
+        } finally {
+            statement.close();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package kendoui.service;
+
+import kendoui.dao.BaseApplicationDaoTest;
+import kendoui.dao.ICategoryDao;
+import kendoui.dao.IDefaultTextDao;
+import kendoui.exception.BusinessException;
+import kendoui.model.Category;
+import kendoui.model.DefaultText;
+import kendoui.utils.CategoryGraph;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The service runs its own transactions, the snapshot is only patched once they commit, so the test is not
+ * transactional and removes the categories it created.
+ */
+public class CategoryGraphServiceTest extends BaseApplicationDaoTest {
+
+    @Autowired
+    private ICategoryGraphService categoryGraphService;
+
+    @Autowired
+    private ICategoryDao categoryDao;
+
+    @Autowired
+    private IDefaultTextDao defaultTextDao;
+
+    @Autowired
+    @Qualifier(CONTENT_TXM)
+    private PlatformTransactionManager transactionManager;
+
+    private Long parentId;
+
+    private Long childId;
+
+    @Before
+    public void setUp() {
+        parentId = createCategory();
+        childId = createCategory();
+        categoryGraphService.refresh();
+    }
+
+    @After
+    public void tearDown() throws BusinessException {
+        categoryGraphService.removeEdge(parentId, childId);
+        new TransactionTemplate(transactionManager).execute(new TransactionCallback<Object>() {
+            @Override
+            public Object doInTransaction(TransactionStatus status) {
+                for (Long id : new Long[] {childId, parentId}) {
+                    Category category = categoryDao.find(id);
+                    categoryDao.remove(category);
+                    defaultTextDao.remove(category.getName());
+                }
+                return null;
+            }
+        });
+        categoryGraphService.refresh();
+    }
+
+    @Test
+    public void testGetGraph() throws BusinessException {
+        CategoryGraph graph = categoryGraphService.getGraph();
+        Assert.assertTrue(graph.contains(parentId));
+        Assert.assertTrue(graph.contains(childId));
+        Assert.assertSame(graph, categoryGraphService.getGraph());
+    }
+
+    @Test
+    public void testEdgesPatchTheGraphAfterCommit() throws BusinessException {
+        categoryGraphService.getGraph();
+        categoryGraphService.addEdge(parentId, childId);
+        Assert.assertTrue(categoryGraphService.getGraph().hasEdge(parentId, childId));
+        try {
+            categoryGraphService.addEdge(childId, parentId);
+            Assert.fail();
+        } catch (BusinessException e) {
+            Assert.assertFalse(categoryGraphService.getGraph().hasEdge(childId, parentId));
+        }
+
+        categoryGraphService.moveCategory(childId, null);
+        Assert.assertFalse(categoryGraphService.getGraph().hasEdge(parentId, childId));
+        categoryGraphService.refresh();
+        Assert.assertFalse(categoryGraphService.getGraph().hasEdge(parentId, childId));
+    }
+
+    private Long createCategory() {
+        return new TransactionTemplate(transactionManager).execute(new TransactionCallback<Long>() {
+            @Override
+            public Long doInTransaction(TransactionStatus status) {
+                DefaultText name = new DefaultText();
+                name.setText("graph category");
+                defaultTextDao.persist(name);
+                Category category = new Category();
+                category.setName(name);
+                category.setDescription(name);
+                categoryDao.persist(category);
+                categoryDao.flush();
+                return category.getId();
+            }
+        });
+    }
+}